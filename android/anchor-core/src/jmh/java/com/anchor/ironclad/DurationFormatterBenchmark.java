@@ -0,0 +1,56 @@
+package com.anchor.ironclad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Formatting cost of one countdown render
+ * The reused buffers should report close to zero bytes per op under the gc
+ * profiler; stringFormat is the allocating baseline they replace.
+ */
+@State(Scope.Thread)
+public class DurationFormatterBenchmark {
+
+    /** Sub-hour and over-an-hour remaining times take different paths */
+    @Param({"1503000", "5400000"})
+    public long remaining;
+
+    private final DurationFormatter formatter = new DurationFormatter();
+    private final StringBuilder buffer = new StringBuilder(64);
+
+    @Setup
+    public void setUp() {
+        buffer.setLength(0);
+    }
+
+    @Benchmark
+    public long displayKey() {
+        return DurationFormatter.displayKey(remaining);
+    }
+
+    @Benchmark
+    public void format(Blackhole blackhole) {
+        blackhole.consume(formatter.format(remaining).length());
+    }
+
+    @Benchmark
+    public int appendCountdown() {
+        buffer.setLength(0);
+        DurationFormatter.appendCountdown(buffer, remaining, false);
+        return buffer.length();
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        long totalSeconds = remaining / 1000;
+        long minutes = totalSeconds / 60;
+        if (minutes >= 60) {
+            return String.format("%dh %02dm remaining", minutes / 60, minutes % 60);
+        }
+        return String.format("%dm %02ds remaining", minutes, totalSeconds % 60);
+    }
+}
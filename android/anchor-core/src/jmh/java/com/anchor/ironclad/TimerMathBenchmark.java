@@ -0,0 +1,65 @@
+package com.anchor.ironclad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-tick arithmetic of the notification, widget and Now Bar
+ * tick() is what TimerNotificationService does on every TickScheduler tick:
+ * compute the render key, compare it, and pick the next delay.
+ */
+@State(Scope.Thread)
+public class TimerMathBenchmark {
+
+    private static final long DURATION = 25 * 60 * 1000L;
+
+    @Param({"true", "false"})
+    public boolean showsTime;
+
+    private long remaining = DURATION;
+    private long lastKey;
+
+    /**
+     * Walk the remaining time down a second per call, wrapping at zero,
+     * so branches and keys change the way they do on a device
+     */
+    private long nextRemaining() {
+        remaining -= 1000;
+        if (remaining <= 0) {
+            remaining = DURATION;
+        }
+        return remaining;
+    }
+
+    @Benchmark
+    public long renderKey() {
+        return TimerMath.renderKey(nextRemaining(), DURATION, showsTime);
+    }
+
+    @Benchmark
+    public long delayUntilNextStep() {
+        return TimerMath.delayUntilNextStep(nextRemaining(), DURATION);
+    }
+
+    @Benchmark
+    public int elapsedPercent() {
+        return TimerMath.elapsedPercent(nextRemaining(), DURATION);
+    }
+
+    @Benchmark
+    public long delayUntilBoundary() {
+        return TimerMath.delayUntilBoundary(nextRemaining(), 60000, 500);
+    }
+
+    @Benchmark
+    public long tick() {
+        long now = nextRemaining();
+        long key = TimerMath.renderKey(now, DURATION, showsTime);
+        boolean changed = key != lastKey;
+        lastKey = key;
+        long delay = TimerMath.delayUntilNextRender(now, DURATION, showsTime);
+        return changed ? delay : -delay;
+    }
+}
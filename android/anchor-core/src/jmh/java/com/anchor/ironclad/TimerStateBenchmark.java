@@ -0,0 +1,63 @@
+package com.anchor.ironclad;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Snapshot codec cost, without the file system
+ * TimerEngine writes a snapshot on every transition and reads one on
+ * process start; readAfterReboot takes the wall-clock rebase path.
+ */
+@State(Scope.Thread)
+public class TimerStateBenchmark {
+
+    private static final long NOW_ELAPSED = 3_600_000L;
+    private static final long NOW_WALL = 1_760_000_000_000L;
+    private static final int BOOT = 42;
+
+    private final TimerState running = new TimerState(TimerState.STATUS_RUNNING,
+            "Write the quarterly report", 25 * 60 * 1000L, NOW_ELAPSED + 20 * 60 * 1000L, 0, true);
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private byte[] written;
+
+    @Setup
+    public void setUp() throws IOException {
+        running.writeSnapshot(out, NOW_ELAPSED, NOW_WALL, BOOT);
+        out.flush();
+        written = bytes.toByteArray();
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        bytes.reset();
+        running.writeSnapshot(out, NOW_ELAPSED, NOW_WALL, BOOT);
+        out.flush();
+        return bytes.size();
+    }
+
+    @Benchmark
+    public TimerState read() throws IOException {
+        return TimerState.readSnapshot(new DataInputStream(new ByteArrayInputStream(written)),
+                NOW_ELAPSED + 1000, NOW_WALL + 1000, BOOT);
+    }
+
+    @Benchmark
+    public TimerState readAfterReboot() throws IOException {
+        return TimerState.readSnapshot(new DataInputStream(new ByteArrayInputStream(written)),
+                60_000L, NOW_WALL + 120_000L, BOOT + 1);
+    }
+
+    @Benchmark
+    public long remainingMillis() {
+        return running.remainingMillis(NOW_ELAPSED + 1000);
+    }
+}
@@ -0,0 +1,265 @@
+package com.anchor.ironclad;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable timer running through a fixed plan of phases
+ * A Pomodoro cycle is 4 x (25 min work + 5 min break) + 15 min long break; a tea
+ * timer is a plan with a single phase. Like TimerState every clock reading is
+ * passed in, on the monotonic elapsed clock. Each phase ends exactly one phase
+ * length after the previous one, so a late alarm never makes the plan drift.
+ */
+public final class CycleTimer {
+
+    public static final int STATUS_RUNNING = 1;
+    public static final int STATUS_PAUSED = 2;
+    public static final int STATUS_FINISHED = 3;
+
+    public static final int SNAPSHOT_VERSION = 2;
+    // Same layout without the boot count
+    private static final int SNAPSHOT_VERSION_NO_BOOT = 1;
+
+    /**
+     * One step of the plan; kind is free-form, e.g. "work", "break", "longBreak"
+     */
+    public static final class Phase {
+        public final String label;
+        public final String kind;
+        public final long durationMillis;
+
+        public Phase(String label, String kind, long durationMillis) {
+            this.label = label;
+            this.kind = kind;
+            this.durationMillis = durationMillis;
+        }
+    }
+
+    /**
+     * The end of a phase, at the elapsed-clock time it was due
+     */
+    public static final class Boundary {
+        public final int endedIndex;
+        public final long atElapsedMillis;
+
+        Boundary(int endedIndex, long atElapsedMillis) {
+            this.endedIndex = endedIndex;
+            this.atElapsedMillis = atElapsedMillis;
+        }
+    }
+
+    public final int id;
+    public final String label;
+    private final Phase[] phases;
+    public final int phaseIndex;
+    public final int status;
+    /** Elapsed-clock time at which the current phase of a running timer ends */
+    public final long phaseEndElapsedMillis;
+    /** Time left in the current phase when the timer was paused */
+    public final long pausedRemainingMillis;
+
+    private CycleTimer(int id, String label, Phase[] phases, int phaseIndex, int status,
+                       long phaseEndElapsedMillis, long pausedRemainingMillis) {
+        this.id = id;
+        this.label = label;
+        this.phases = phases;
+        this.phaseIndex = phaseIndex;
+        this.status = status;
+        this.phaseEndElapsedMillis = phaseEndElapsedMillis;
+        this.pausedRemainingMillis = pausedRemainingMillis;
+    }
+
+    /**
+     * Start the first phase now
+     */
+    public static CycleTimer start(int id, String label, List<Phase> phases, long nowElapsed) {
+        if (phases.isEmpty()) {
+            throw new IllegalArgumentException("A timer needs at least one phase");
+        }
+        Phase[] plan = phases.toArray(new Phase[0]);
+        for (Phase phase : plan) {
+            if (phase.durationMillis <= 0) {
+                throw new IllegalArgumentException("Phase \"" + phase.label + "\" has no duration");
+            }
+        }
+        return new CycleTimer(id, label, plan, 0, STATUS_RUNNING, nowElapsed + plan[0].durationMillis, 0);
+    }
+
+    public int phaseCount() {
+        return phases.length;
+    }
+
+    public Phase phase(int index) {
+        return phases[index];
+    }
+
+    public Phase currentPhase() {
+        return phases[phaseIndex];
+    }
+
+    public boolean isFinished() {
+        return status == STATUS_FINISHED;
+    }
+
+    public boolean isLastPhase(int index) {
+        return index == phases.length - 1;
+    }
+
+    public long remainingMillis(long nowElapsed) {
+        switch (status) {
+            case STATUS_RUNNING:
+                return Math.max(0, phaseEndElapsedMillis - nowElapsed);
+            case STATUS_PAUSED:
+                return pausedRemainingMillis;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Time left until the whole plan is done
+     */
+    public long planRemainingMillis(long nowElapsed) {
+        if (status == STATUS_FINISHED) {
+            return 0;
+        }
+        long remaining = remainingMillis(nowElapsed);
+        for (int i = phaseIndex + 1; i < phases.length; i++) {
+            remaining += phases[i].durationMillis;
+        }
+        return remaining;
+    }
+
+    public String statusName() {
+        switch (status) {
+            case STATUS_RUNNING:
+                return "running";
+            case STATUS_PAUSED:
+                return "paused";
+            default:
+                return "finished";
+        }
+    }
+
+    public CycleTimer pause(long nowElapsed) {
+        if (status != STATUS_RUNNING) {
+            return this;
+        }
+        return new CycleTimer(id, label, phases, phaseIndex, STATUS_PAUSED, 0, remainingMillis(nowElapsed));
+    }
+
+    public CycleTimer resume(long nowElapsed) {
+        if (status != STATUS_PAUSED) {
+            return this;
+        }
+        return new CycleTimer(id, label, phases, phaseIndex, STATUS_RUNNING,
+                nowElapsed + pausedRemainingMillis, 0);
+    }
+
+    /**
+     * End the current phase now and start the next one, running
+     */
+    public CycleTimer skip(long nowElapsed, List<Boundary> boundaries) {
+        if (status == STATUS_FINISHED) {
+            return this;
+        }
+        boundaries.add(new Boundary(phaseIndex, nowElapsed));
+        return next(nowElapsed);
+    }
+
+    /**
+     * Move past every phase of a running timer that has ended by nowElapsed,
+     * adding one boundary per phase end. Catches up any number of phases, for
+     * alarms that were missed while the device was off.
+     */
+    public CycleTimer advance(long nowElapsed, List<Boundary> boundaries) {
+        CycleTimer timer = this;
+        while (timer.status == STATUS_RUNNING && timer.phaseEndElapsedMillis <= nowElapsed) {
+            boundaries.add(new Boundary(timer.phaseIndex, timer.phaseEndElapsedMillis));
+            timer = timer.next(timer.phaseEndElapsedMillis);
+        }
+        return timer;
+    }
+
+    private CycleTimer next(long phaseStartElapsed) {
+        int index = phaseIndex + 1;
+        if (index >= phases.length) {
+            return new CycleTimer(id, label, phases, phaseIndex, STATUS_FINISHED, 0, 0);
+        }
+        return new CycleTimer(id, label, phases, index, STATUS_RUNNING,
+                phaseStartElapsed + phases[index].durationMillis, 0);
+    }
+
+    // --- Snapshot ---
+
+    /**
+     * Write every timer, with the boot count and both clocks at write time so a
+     * reader can rebase phase ends after a reboot (see SnapshotClock)
+     */
+    public static void writeSnapshot(DataOutput out, int nextId, List<CycleTimer> timers,
+                                     long nowElapsed, long nowWall, int bootCount) throws IOException {
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeLong(nowElapsed);
+        out.writeLong(nowWall);
+        out.writeInt(bootCount);
+        out.writeInt(nextId);
+        out.writeInt(timers.size());
+        for (CycleTimer timer : timers) {
+            out.writeInt(timer.id);
+            out.writeUTF(timer.label != null ? timer.label : "");
+            out.writeInt(timer.status);
+            out.writeInt(timer.phaseIndex);
+            out.writeLong(timer.phaseEndElapsedMillis);
+            out.writeLong(timer.pausedRemainingMillis);
+            out.writeInt(timer.phases.length);
+            for (Phase phase : timer.phases) {
+                out.writeUTF(phase.label != null ? phase.label : "");
+                out.writeUTF(phase.kind != null ? phase.kind : "");
+                out.writeLong(phase.durationMillis);
+            }
+        }
+    }
+
+    /**
+     * Read timers written by writeSnapshot() into timers and return the next
+     * free id, or 0 (and no timers) for an older format
+     */
+    public static int readSnapshot(DataInput in, long nowElapsed, long nowWall, int bootCount,
+                                   List<CycleTimer> timers) throws IOException {
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION && version != SNAPSHOT_VERSION_NO_BOOT) {
+            return 0;
+        }
+        long writtenElapsed = in.readLong();
+        long writtenWall = in.readLong();
+        int writtenBoot = version == SNAPSHOT_VERSION ? in.readInt() : SnapshotClock.UNKNOWN_BOOT;
+        int nextId = in.readInt();
+        long shift = SnapshotClock.shift(writtenBoot, writtenElapsed, writtenWall,
+                bootCount, nowElapsed, nowWall);
+
+        int count = in.readInt();
+        List<CycleTimer> read = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = in.readInt();
+            String label = in.readUTF();
+            int status = in.readInt();
+            int phaseIndex = in.readInt();
+            long phaseEnd = in.readLong();
+            long pausedRemaining = in.readLong();
+            Phase[] phases = new Phase[in.readInt()];
+            for (int p = 0; p < phases.length; p++) {
+                phases[p] = new Phase(in.readUTF(), in.readUTF(), in.readLong());
+            }
+            if (status == STATUS_RUNNING) {
+                phaseEnd += shift;
+            }
+            read.add(new CycleTimer(id, label.isEmpty() ? null : label, phases, phaseIndex, status,
+                    phaseEnd, pausedRemaining));
+        }
+        timers.addAll(read);
+        return nextId;
+    }
+}
@@ -0,0 +1,79 @@
+package com.anchor.ironclad;
+
+/**
+ * Reusable, allocation-free formatter for remaining timer durations
+ * Produces "1h 05m" above one hour and "25m 03s" below it
+ */
+public final class DurationFormatter {
+
+    private final StringBuilder buffer = new StringBuilder(16);
+
+    /**
+     * Value that changes exactly when the formatted text changes.
+     * Lets callers skip work for ticks that would render identically.
+     */
+    public static long displayKey(long milliseconds) {
+        long totalSeconds = Math.max(0, milliseconds / 1000);
+        long minutes = totalSeconds / 60;
+        if (minutes >= 60) {
+            // Seconds are not shown above one hour; keep the key distinct from the sub-hour range
+            return -minutes;
+        }
+        return totalSeconds;
+    }
+
+    /**
+     * Milliseconds until displayKey() next changes: just past the next whole
+     * second, or the next whole minute above one hour
+     */
+    public static long delayUntilNextChange(long milliseconds) {
+        long unit = milliseconds >= 60 * 60 * 1000 ? 60 * 1000 : 1000;
+        return Math.max(0, milliseconds) % unit + 1;
+    }
+
+    /**
+     * Format into the internal buffer. The returned sequence is only valid
+     * until the next call; copy it with toString() if it has to be kept.
+     */
+    public CharSequence format(long milliseconds) {
+        buffer.setLength(0);
+        appendTo(buffer, milliseconds);
+        return buffer;
+    }
+
+    /**
+     * Countdown line shared by the notification and the Now Bar:
+     * "25m 03s remaining", or "Paused · 25m 03s left"
+     */
+    public static void appendCountdown(StringBuilder out, long milliseconds, boolean paused) {
+        if (paused) {
+            out.append("Paused · ");
+        }
+        appendTo(out, milliseconds);
+        out.append(paused ? " left" : " remaining");
+    }
+
+    public static void appendTo(StringBuilder out, long milliseconds) {
+        long totalSeconds = Math.max(0, milliseconds / 1000);
+        long minutes = totalSeconds / 60;
+        long seconds = totalSeconds % 60;
+
+        if (minutes >= 60) {
+            out.append(minutes / 60).append("h ");
+            appendTwoDigits(out, minutes % 60);
+            out.append('m');
+            return;
+        }
+
+        out.append(minutes).append("m ");
+        appendTwoDigits(out, seconds);
+        out.append('s');
+    }
+
+    private static void appendTwoDigits(StringBuilder out, long value) {
+        if (value < 10) {
+            out.append('0');
+        }
+        out.append(value);
+    }
+}
@@ -0,0 +1,52 @@
+package com.anchor.ironclad;
+
+/**
+ * Carries elapsed-clock times in a snapshot over to the current boot
+ * The elapsed clock restarts from zero at every boot, so a snapshot stores the
+ * boot count (Settings.Global.BOOT_COUNT on Android) and both clocks at write
+ * time. Comparing boot counts catches a reboot even when the new boot has
+ * already run longer than the old one; without a boot count on either side,
+ * the two clocks disagreeing about how much time passed is taken as a reboot.
+ */
+public final class SnapshotClock {
+
+    /** Boot count for snapshots written before it was stored, or when it can't be read */
+    public static final int UNKNOWN_BOOT = -1;
+
+    // Slack between the two clocks before they count as disagreeing; the wall
+    // clock can be nudged by network time sync without a reboot
+    static final long CLOCK_TOLERANCE_MS = 10_000;
+
+    private SnapshotClock() {
+    }
+
+    /**
+     * Whether the elapsed clock restarted since the snapshot was written
+     */
+    public static boolean rebooted(int writtenBoot, long writtenElapsed, long writtenWall,
+                                   int nowBoot, long nowElapsed, long nowWall) {
+        if (writtenBoot != UNKNOWN_BOOT && nowBoot != UNKNOWN_BOOT) {
+            return writtenBoot != nowBoot;
+        }
+        long elapsedPassed = nowElapsed - writtenElapsed;
+        if (elapsedPassed < 0) {
+            return true;
+        }
+        // The elapsed clock counts deep sleep, so within one boot it keeps pace with the wall clock
+        return Math.abs((nowWall - writtenWall) - elapsedPassed) > CLOCK_TOLERANCE_MS;
+    }
+
+    /**
+     * Amount to add to an elapsed-clock time from the snapshot so it lands on
+     * the current clock; 0 within the same boot. Across a reboot the time that
+     * passed comes from the wall clock.
+     */
+    public static long shift(int writtenBoot, long writtenElapsed, long writtenWall,
+                             int nowBoot, long nowElapsed, long nowWall) {
+        if (!rebooted(writtenBoot, writtenElapsed, writtenWall, nowBoot, nowElapsed, nowWall)) {
+            return 0;
+        }
+        long wallPassed = Math.max(0, nowWall - writtenWall);
+        return nowElapsed - writtenElapsed - wallPassed;
+    }
+}
@@ -0,0 +1,76 @@
+package com.anchor.ironclad;
+
+/**
+ * Progress and scheduling arithmetic behind every timer surface
+ * Lets the notification, widget and Now Bar skip ticks that would render
+ * identically and sleep until the next visible change instead.
+ */
+public final class TimerMath {
+
+    public static final int PROGRESS_MAX = 100;
+
+    private TimerMath() {
+    }
+
+    /**
+     * Share of the session still left, 0-100, rounded down
+     */
+    public static int remainingPercent(long remaining, long duration) {
+        if (duration <= 0 || remaining <= 0) {
+            return 0;
+        }
+        return (int) Math.min(PROGRESS_MAX, (remaining * PROGRESS_MAX) / duration);
+    }
+
+    /**
+     * Share of the session already elapsed, 0-100
+     */
+    public static int elapsedPercent(long remaining, long duration) {
+        return PROGRESS_MAX - remainingPercent(remaining, duration);
+    }
+
+    /**
+     * Milliseconds until remainingPercent() drops to the next step.
+     * The final step lands on the end time, so completion is still detected on time.
+     */
+    public static long delayUntilNextStep(long remaining, long duration) {
+        int progress = remainingPercent(remaining, duration);
+        // Smallest remaining value that still rounds down to the current step
+        long stepStart = (progress * duration + PROGRESS_MAX - 1) / PROGRESS_MAX;
+        return Math.max(1, remaining - stepStart + 1);
+    }
+
+    /**
+     * Identifies what a notification for this remaining time would show:
+     * the progress step, plus the formatted time when it is rendered as text
+     */
+    public static long renderKey(long remaining, long duration, boolean showsTime) {
+        long timeKey = showsTime ? DurationFormatter.displayKey(remaining) : 0;
+        return (timeKey << 8) | remainingPercent(remaining, duration);
+    }
+
+    /**
+     * Delay until renderKey() next changes: the next progress step, or the next
+     * change of the formatted time when it is shown. Computed from the clock on
+     * every tick, so a late tick never pushes the following ones back.
+     */
+    public static long delayUntilNextRender(long remaining, long duration, boolean showsTime) {
+        long delay = delayUntilNextStep(remaining, duration);
+        if (showsTime) {
+            delay = Math.min(delay, DurationFormatter.delayUntilNextChange(remaining));
+        }
+        return delay;
+    }
+
+    /**
+     * Delay until just before the remaining time next crosses a multiple of interval.
+     * Aiming lead milliseconds early means a late tick never shows a value under it.
+     */
+    public static long delayUntilBoundary(long remaining, long interval, long lead) {
+        long delay = remaining % interval;
+        if (delay <= lead) {
+            delay += interval;
+        }
+        return delay - lead;
+    }
+}
@@ -0,0 +1,116 @@
+package com.anchor.ironclad;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Immutable timer state and its on-disk snapshot format
+ * Times are on the monotonic elapsed clock (SystemClock.elapsedRealtime() on
+ * Android); every clock reading is passed in, so this class has no platform
+ * dependencies. TimerEngine.State adds the Android clock on top.
+ */
+public class TimerState {
+
+    public static final int STATUS_IDLE = 0;
+    public static final int STATUS_RUNNING = 1;
+    public static final int STATUS_PAUSED = 2;
+    public static final int STATUS_COMPLETED = 3;
+
+    public static final int SNAPSHOT_VERSION = 2;
+    // Same layout without the boot count
+    private static final int SNAPSHOT_VERSION_NO_BOOT = 1;
+
+    public final int status;
+    public final String taskText;
+    /** Total length including extensions */
+    public final long durationMillis;
+    /** Elapsed-clock time at which a running timer ends */
+    public final long endElapsedMillis;
+    /** Time left when the timer was paused */
+    public final long pausedRemainingMillis;
+    public final boolean useChronometer;
+
+    public TimerState(int status, String taskText, long durationMillis, long endElapsedMillis,
+                      long pausedRemainingMillis, boolean useChronometer) {
+        this.status = status;
+        this.taskText = taskText;
+        this.durationMillis = durationMillis;
+        this.endElapsedMillis = endElapsedMillis;
+        this.pausedRemainingMillis = pausedRemainingMillis;
+        this.useChronometer = useChronometer;
+    }
+
+    public final boolean isActive() {
+        return status == STATUS_RUNNING || status == STATUS_PAUSED;
+    }
+
+    public final long remainingMillis(long nowElapsed) {
+        switch (status) {
+            case STATUS_RUNNING:
+                return Math.max(0, endElapsedMillis - nowElapsed);
+            case STATUS_PAUSED:
+                return pausedRemainingMillis;
+            default:
+                return 0;
+        }
+    }
+
+    public final String statusName() {
+        switch (status) {
+            case STATUS_RUNNING:
+                return "running";
+            case STATUS_PAUSED:
+                return "paused";
+            case STATUS_COMPLETED:
+                return "completed";
+            default:
+                return "idle";
+        }
+    }
+
+    /**
+     * Write the snapshot, with the boot count and both clocks at write time so
+     * a reader can rebase endElapsedMillis after a reboot (see SnapshotClock)
+     */
+    public final void writeSnapshot(DataOutput out, long nowElapsed, long nowWall, int bootCount)
+            throws IOException {
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(status);
+        out.writeUTF(taskText != null ? taskText : "");
+        out.writeLong(durationMillis);
+        out.writeLong(endElapsedMillis);
+        out.writeLong(pausedRemainingMillis);
+        out.writeBoolean(useChronometer);
+        out.writeLong(nowElapsed);
+        out.writeLong(nowWall);
+        out.writeInt(bootCount);
+    }
+
+    /**
+     * Read a snapshot written by writeSnapshot(), or null for an older format
+     */
+    public static TimerState readSnapshot(DataInput in, long nowElapsed, long nowWall, int bootCount)
+            throws IOException {
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION && version != SNAPSHOT_VERSION_NO_BOOT) {
+            return null;
+        }
+        int status = in.readInt();
+        String taskText = in.readUTF();
+        long durationMillis = in.readLong();
+        long endElapsedMillis = in.readLong();
+        long pausedRemainingMillis = in.readLong();
+        boolean useChronometer = in.readBoolean();
+        long writtenElapsed = in.readLong();
+        long writtenWall = in.readLong();
+        int writtenBoot = version == SNAPSHOT_VERSION ? in.readInt() : SnapshotClock.UNKNOWN_BOOT;
+
+        if (status == STATUS_RUNNING) {
+            endElapsedMillis += SnapshotClock.shift(writtenBoot, writtenElapsed, writtenWall,
+                    bootCount, nowElapsed, nowWall);
+        }
+        return new TimerState(status, taskText.isEmpty() ? null : taskText, durationMillis,
+                endElapsedMillis, pausedRemainingMillis, useChronometer);
+    }
+}
@@ -0,0 +1,61 @@
+package com.anchor.ironclad;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * Native SQLite database shared by the widget, search, history, action and cycle stores
+ * Each schema version adds its tables in onUpgrade, so a fresh install simply
+ * replays every step from version 0.
+ */
+final class AnchorDatabase extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "anchor.db";
+    private static final int DATABASE_VERSION = 7;
+
+    private static AnchorDatabase instance;
+
+    private AnchorDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Widget reads run next to bridge writes - let them proceed concurrently
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    static synchronized AnchorDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new AnchorDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        onUpgrade(db, 0, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 1) {
+            NoteSummaryStore.createTables(db);
+        }
+        if (oldVersion < 2) {
+            NoteSearchIndex.createTables(db);
+        }
+        if (oldVersion < 3) {
+            HistoryStore.createTables(db);
+        }
+        if (oldVersion < 4) {
+            HistoryStore.addRollups(db);
+        }
+        if (oldVersion < 5) {
+            AnchorEventBus.createTables(db);
+        }
+        if (oldVersion < 6) {
+            AnchorEventBus.addTaskIds(db);
+        }
+        if (oldVersion < 7) {
+            CycleEventLog.createTables(db);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.anchor.ironclad;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delivers notification and widget actions to JS without launching the activity
+ * Every action is first appended to a durable queue, then the attached JS runtime
+ * (if any) is told to drain it. JS takes the pending actions, applies them and
+ * acknowledges them, which removes them from the queue. Actions posted while no
+ * runtime is attached wait in the queue until JS next attaches.
+ */
+final class AnchorEventBus {
+
+    private static final String TABLE = "pending_actions";
+
+    /**
+     * A queued action; id increases in posting order. taskId is the task it was
+     * applied to natively, or null when JS should apply it to its top task.
+     */
+    static final class Action {
+        final long id;
+        final String name;
+        final String taskId;
+        final long postedAt;
+
+        Action(long id, String name, String taskId, long postedAt) {
+            this.id = id;
+            this.name = name;
+            this.taskId = taskId;
+            this.postedAt = postedAt;
+        }
+    }
+
+    /**
+     * The attached JS runtime; told when new actions are waiting
+     */
+    interface Listener {
+        void onActionsPending();
+    }
+
+    private static AnchorEventBus instance;
+
+    private final AnchorDatabase database;
+    private volatile Listener listener;
+    // Highest id handed to the attached runtime; actions up to it are not handed out again
+    private long deliveredId;
+
+    private AnchorEventBus(Context context) {
+        database = AnchorDatabase.getInstance(context);
+    }
+
+    static synchronized AnchorEventBus getInstance(Context context) {
+        if (instance == null) {
+            instance = new AnchorEventBus(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    static void createTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+            + "_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + "action TEXT NOT NULL, "
+            + "posted_at INTEGER NOT NULL)");
+    }
+
+    /**
+     * Version 6: the task a natively applied action changed
+     */
+    static void addTaskIds(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN task_id TEXT");
+    }
+
+    /**
+     * Queue an action and wake the attached runtime. taskId names the task it
+     * was already applied to natively, for JS to reconcile; null if none.
+     */
+    void post(String name, String taskId) {
+        ContentValues values = new ContentValues();
+        values.put("action", name);
+        values.put("task_id", taskId);
+        values.put("posted_at", System.currentTimeMillis());
+        database.getWritableDatabase().insert(TABLE, null, values);
+        AnchorTrace.count("disk.eventBus");
+
+        Listener current = listener;
+        if (current != null) {
+            current.onActionsPending();
+        }
+    }
+
+    /**
+     * Attach a new runtime. Actions it has not acknowledged are handed out again,
+     * since a previous runtime may have died before applying them.
+     */
+    synchronized void attach(Listener newListener) {
+        deliveredId = 0;
+        listener = newListener;
+    }
+
+    synchronized void detach(Listener oldListener) {
+        if (listener == oldListener) {
+            listener = null;
+        }
+    }
+
+    /**
+     * Actions not yet handed to the attached runtime, oldest first
+     */
+    synchronized List<Action> take() {
+        List<Action> actions = new ArrayList<>();
+        Cursor rows = database.getReadableDatabase().rawQuery(
+            "SELECT _id, action, task_id, posted_at FROM " + TABLE + " WHERE _id > ? ORDER BY _id",
+            new String[] { Long.toString(deliveredId) });
+        try {
+            while (rows.moveToNext()) {
+                actions.add(new Action(rows.getLong(0), rows.getString(1), rows.getString(2), rows.getLong(3)));
+            }
+        } finally {
+            rows.close();
+        }
+        if (!actions.isEmpty()) {
+            deliveredId = actions.get(actions.size() - 1).id;
+        }
+        return actions;
+    }
+
+    /**
+     * Remove every action up to and including id; JS has applied them
+     */
+    void acknowledge(long id) {
+        database.getWritableDatabase().delete(TABLE, "_id <= ?", new String[] { Long.toString(id) });
+        AnchorTrace.count("disk.eventBus");
+    }
+}
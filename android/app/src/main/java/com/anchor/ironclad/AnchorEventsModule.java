@@ -0,0 +1,121 @@
+package com.anchor.ironclad;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * React Native module attaching the JS runtime to AnchorEventBus
+ * Emits AnchorActionsPending when actions are queued; JS then calls
+ * takeActions() and acknowledges what it applied.
+ */
+public class AnchorEventsModule extends ReactContextBaseJavaModule {
+    static final String MODULE_NAME = "AnchorEventsModule";
+    private static final String EVENT_PENDING = "AnchorActionsPending";
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final AnchorEventBus.Listener listener = new AnchorEventBus.Listener() {
+        @Override
+        public void onActionsPending() {
+            ReactApplicationContext context = getReactApplicationContext();
+            if (context.hasActiveReactInstance()) {
+                context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(EVENT_PENDING, null);
+            }
+        }
+    };
+
+    AnchorEventsModule(ReactApplicationContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        AnchorEventBus.getInstance(getReactApplicationContext()).attach(listener);
+    }
+
+    /**
+     * Resolves the actions not yet handed to this runtime: [{ id, action, taskId, postedAt }], oldest first
+     */
+    @ReactMethod
+    public void takeActions(final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("AnchorEventsModule.takeActions");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        WritableArray actions = Arguments.createArray();
+                        for (AnchorEventBus.Action action : AnchorEventBus.getInstance(getReactApplicationContext()).take()) {
+                            WritableMap map = Arguments.createMap();
+                            map.putDouble("id", action.id);
+                            map.putString("action", action.name);
+                            map.putString("taskId", action.taskId);
+                            map.putDouble("postedAt", action.postedAt);
+                            actions.pushMap(map);
+                        }
+                        promise.resolve(actions);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * Drop every action up to and including id from the queue
+     */
+    @ReactMethod
+    public void acknowledgeActions(final double id, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("AnchorEventsModule.acknowledgeActions");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        AnchorEventBus.getInstance(getReactApplicationContext()).acknowledge((long) id);
+                        promise.resolve(true);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    // Required by NativeEventEmitter
+    @ReactMethod
+    public void addListener(String eventName) {
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+    }
+
+    @Override
+    public void invalidate() {
+        AnchorEventBus.getInstance(getReactApplicationContext()).detach(listener);
+        executor.shutdown();
+        super.invalidate();
+    }
+}
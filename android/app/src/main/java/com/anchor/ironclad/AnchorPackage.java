@@ -1,32 +1,86 @@
 package com.anchor.ironclad;
 
-import com.facebook.react.ReactPackage;
+import com.facebook.react.BaseReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.uimanager.ViewManager;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Package to register custom native modules
+ * Modules are created lazily, the first time JS looks one up. Timer, widget,
+ * brain widget, DND and Now Bar are TurboModules generated from specs/;
+ * the rest are still classic bridge modules.
  */
-public class AnchorPackage implements ReactPackage {
+public class AnchorPackage extends BaseReactPackage {
 
     @Override
-    public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+    public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+        switch (name) {
+            case NativeTimerModuleSpec.NAME:
+                return new TimerModule(reactContext);
+            case NativeWidgetModuleSpec.NAME:
+                return new WidgetModule(reactContext);
+            case NativeBrainWidgetModuleSpec.NAME:
+                return new BrainWidgetModule(reactContext);
+            case NativeDNDModuleSpec.NAME:
+                return new DNDModule(reactContext);
+            case NativeNowBarModuleSpec.NAME:
+                return new NowBarModule(reactContext);
+            case SurfaceModule.MODULE_NAME:
+                return new SurfaceModule(reactContext);
+            case NoteSearchModule.MODULE_NAME:
+                return new NoteSearchModule(reactContext);
+            case HistoryStoreModule.MODULE_NAME:
+                return new HistoryStoreModule(reactContext);
+            case BackupModule.MODULE_NAME:
+                return new BackupModule(reactContext);
+            case AnchorEventsModule.MODULE_NAME:
+                return new AnchorEventsModule(reactContext);
+            case MetricsModule.MODULE_NAME:
+                return new MetricsModule(reactContext);
+            case CycleModule.MODULE_NAME:
+                return new CycleModule(reactContext);
+            default:
+                return null;
+        }
     }
 
     @Override
-    public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        List<NativeModule> modules = new ArrayList<>();
-        modules.add(new TimerModule(reactContext));
-        modules.add(new WidgetModule(reactContext));
-        modules.add(new BrainWidgetModule(reactContext));
-        modules.add(new DNDModule(reactContext));
-        modules.add(new NowBarModule(reactContext));
-        return modules;
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return new ReactModuleInfoProvider() {
+            @Override
+            public Map<String, ReactModuleInfo> getReactModuleInfos() {
+                Map<String, ReactModuleInfo> infos = new HashMap<>();
+                add(infos, NativeTimerModuleSpec.NAME, TimerModule.class, true);
+                add(infos, NativeWidgetModuleSpec.NAME, WidgetModule.class, true);
+                add(infos, NativeBrainWidgetModuleSpec.NAME, BrainWidgetModule.class, true);
+                add(infos, NativeDNDModuleSpec.NAME, DNDModule.class, true);
+                add(infos, NativeNowBarModuleSpec.NAME, NowBarModule.class, true);
+                add(infos, SurfaceModule.MODULE_NAME, SurfaceModule.class, false);
+                add(infos, NoteSearchModule.MODULE_NAME, NoteSearchModule.class, false);
+                add(infos, HistoryStoreModule.MODULE_NAME, HistoryStoreModule.class, false);
+                add(infos, BackupModule.MODULE_NAME, BackupModule.class, false);
+                add(infos, AnchorEventsModule.MODULE_NAME, AnchorEventsModule.class, false);
+                add(infos, MetricsModule.MODULE_NAME, MetricsModule.class, false);
+                add(infos, CycleModule.MODULE_NAME, CycleModule.class, false);
+                return infos;
+            }
+        };
+    }
+
+    private static void add(Map<String, ReactModuleInfo> infos, String name, Class<?> moduleClass,
+                            boolean turboModule) {
+        infos.put(name, new ReactModuleInfo(
+            name,
+            moduleClass.getName(),
+            false, // canOverrideExistingModule
+            false, // needsEagerInit
+            false, // isCxxModule
+            turboModule
+        ));
     }
 }
@@ -0,0 +1,266 @@
+package com.anchor.ironclad;
+
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The one native copy of what every surface shows
+ * Top of the task stack, timer length and DND state as published by JS (or changed
+ * by native actions), plus the current TimerEngine state. Widget, notification,
+ * Now Bar and tile all render from it. Snapshots are immutable; readers take the
+ * current one without locking, writers replace it under the class lock.
+ *
+ * The stack part is kept in a small binary file; the timer part is restored
+ * by TimerEngine from its own snapshot and the DND state is read from the system.
+ */
+final class AnchorSnapshot {
+
+    private static final String TAG = "AnchorSnapshot";
+    private static final String SNAPSHOT_FILE = "anchor_snapshot.bin";
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int DEFAULT_TIMER_MINUTES = 25;
+
+    /**
+     * One task on the stack
+     */
+    static final class Task {
+        final String id;
+        final String text;
+
+        Task(String id, String text) {
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    /**
+     * The JS-owned part: { tasks: [{ id, text }], timerMinutes, autoDND }
+     */
+    static final class Stack {
+        final List<Task> tasks;
+        final int timerMinutes;
+        final boolean autoDnd;
+
+        Stack(List<Task> tasks, int timerMinutes, boolean autoDnd) {
+            this.tasks = Collections.unmodifiableList(tasks);
+            this.timerMinutes = timerMinutes;
+            this.autoDnd = autoDnd;
+        }
+
+        static Stack fromMap(ReadableMap map) {
+            List<Task> tasks = new ArrayList<>();
+            ReadableArray array = map.hasKey("tasks") && !map.isNull("tasks") ? map.getArray("tasks") : null;
+            if (array != null) {
+                for (int i = 0; i < array.size(); i++) {
+                    ReadableMap task = array.getMap(i);
+                    tasks.add(new Task(task.getString("id"), task.getString("text")));
+                }
+            }
+            return new Stack(
+                tasks,
+                map.hasKey("timerMinutes") && !map.isNull("timerMinutes") ? map.getInt("timerMinutes") : DEFAULT_TIMER_MINUTES,
+                map.hasKey("autoDND") && !map.isNull("autoDND") && map.getBoolean("autoDND")
+            );
+        }
+    }
+
+    /**
+     * Notified after every change, on the thread that made it
+     */
+    interface Listener {
+        void onSnapshotChanged(AnchorSnapshot snapshot);
+    }
+
+    final Stack stack;
+    final boolean dndActive;
+    final TimerEngine.State timer;
+
+    private AnchorSnapshot(Stack stack, boolean dndActive, TimerEngine.State timer) {
+        this.stack = stack;
+        this.dndActive = dndActive;
+        this.timer = timer;
+    }
+
+    Task top() {
+        return stack.tasks.isEmpty() ? null : stack.tasks.get(0);
+    }
+
+    /**
+     * Text of the top task, falling back to the timer's task for timers started without a stack
+     */
+    String currentTaskText() {
+        Task top = top();
+        return top != null ? top.text : timer.taskText;
+    }
+
+    // --- Holder ---
+
+    private static final AtomicReference<AnchorSnapshot> current = new AtomicReference<>();
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static AtomicFile snapshotFile;
+
+    /**
+     * Current snapshot; lock-free once loaded
+     */
+    static AnchorSnapshot get(Context context) {
+        AnchorSnapshot snapshot = current.get();
+        return snapshot != null ? snapshot : load(context);
+    }
+
+    static void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Replace the stack part with what JS published
+     */
+    static synchronized void setStack(Context context, Stack stack) {
+        AnchorSnapshot snapshot = get(context);
+        apply(new AnchorSnapshot(stack, snapshot.dndActive, snapshot.timer), true);
+    }
+
+    /**
+     * Take the top task off the stack, as a native Complete/Defer does.
+     * Returns the task removed, or null if the stack was empty.
+     */
+    static synchronized Task popTop(Context context) {
+        AnchorSnapshot snapshot = get(context);
+        Task top = snapshot.top();
+        if (top == null) {
+            return null;
+        }
+        List<Task> rest = new ArrayList<>(snapshot.stack.tasks.subList(1, snapshot.stack.tasks.size()));
+        Stack stack = new Stack(rest, snapshot.stack.timerMinutes, snapshot.stack.autoDnd);
+        apply(new AnchorSnapshot(stack, snapshot.dndActive, snapshot.timer), true);
+        return top;
+    }
+
+    /**
+     * Record the DND state. Ignored until the snapshot is loaded, which reads it
+     * from the system - so TimerEngine and DndSession can call this while loading.
+     */
+    static synchronized void setDndActive(Context context, boolean active) {
+        AnchorSnapshot snapshot = current.get();
+        if (snapshot != null && snapshot.dndActive != active) {
+            apply(new AnchorSnapshot(snapshot.stack, active, snapshot.timer), false);
+        }
+    }
+
+    private static synchronized AnchorSnapshot load(Context context) {
+        AnchorSnapshot snapshot = current.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        Context appContext = context.getApplicationContext();
+        snapshotFile = new AtomicFile(new File(appContext.getFilesDir(), SNAPSHOT_FILE));
+        TimerEngine engine = TimerEngine.getInstance(appContext);
+        snapshot = readFile(engine.getState(), isDndActive(appContext));
+        current.set(snapshot);
+
+        // The timer part follows the engine
+        engine.addListener(new TimerEngine.Listener() {
+            @Override
+            public void onTimerStateChanged(TimerEngine.State state) {
+                setTimer(state);
+            }
+        });
+        // Surfaces follow the snapshot from here on
+        SurfaceUpdateCoordinator.getInstance(appContext);
+        return snapshot;
+    }
+
+    private static synchronized void setTimer(TimerEngine.State timer) {
+        AnchorSnapshot snapshot = current.get();
+        apply(new AnchorSnapshot(snapshot.stack, snapshot.dndActive, timer), false);
+    }
+
+    private static void apply(AnchorSnapshot next, boolean persist) {
+        current.set(next);
+        if (persist) {
+            writeFile(next);
+        }
+        for (Listener listener : listeners) {
+            listener.onSnapshotChanged(next);
+        }
+    }
+
+    // --- Persistence ---
+
+    private static void writeFile(AnchorSnapshot snapshot) {
+        AnchorTrace.count("disk.anchorSnapshot");
+        FileOutputStream stream = null;
+        try {
+            stream = snapshotFile.startWrite();
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(snapshot.stack.tasks.size());
+            for (Task task : snapshot.stack.tasks) {
+                out.writeUTF(task.id);
+                out.writeUTF(task.text);
+            }
+            out.writeInt(snapshot.stack.timerMinutes);
+            out.writeBoolean(snapshot.stack.autoDnd);
+            out.flush();
+            snapshotFile.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write snapshot", e);
+            if (stream != null) {
+                snapshotFile.failWrite(stream);
+            }
+        }
+    }
+
+    private static AnchorSnapshot readFile(TimerEngine.State timer, boolean dndActive) {
+        AnchorSnapshot empty = new AnchorSnapshot(
+            new Stack(new ArrayList<Task>(), DEFAULT_TIMER_MINUTES, false), dndActive, timer);
+        try (DataInputStream in = new DataInputStream(snapshotFile.openRead())) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                return empty;
+            }
+            int count = in.readInt();
+            List<Task> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tasks.add(new Task(in.readUTF(), in.readUTF()));
+            }
+            int timerMinutes = in.readInt();
+            boolean autoDnd = in.readBoolean();
+            return new AnchorSnapshot(new Stack(tasks, timerMinutes, autoDnd), dndActive, timer);
+        } catch (FileNotFoundException e) {
+            return empty;
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable snapshot", e);
+            return empty;
+        }
+    }
+
+    private static boolean isDndActive(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return false;
+        }
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        return manager != null
+            && manager.getCurrentInterruptionFilter() != NotificationManager.INTERRUPTION_FILTER_ALL;
+    }
+}
@@ -1,29 +1,109 @@
 package com.anchor.ironclad;
 
+import android.app.PendingIntent;
+import android.content.Context;
 import android.content.Intent;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.service.quicksettings.Tile;
 import android.service.quicksettings.TileService;
+import android.text.format.DateFormat;
+
+import java.util.Date;
 
 /**
  * Quick Settings Tile for Anchor Timer
- * Allows users to quickly open Anchor app from Samsung One UI Quick Panel
+ * Shows the current task and when its timer ends, read from the AnchorSnapshot.
+ * Tapping starts, pauses or resumes the focus timer without opening the app,
+ * applied on SurfaceUpdateCoordinator's thread rather than the main thread;
+ * long-press opens the app (MainActivity handles QS_TILE_PREFERENCES).
+ * Snapshot changes are only pushed to the tile while the panel is open -
+ * the tile is rendered afresh whenever it starts listening, so nothing ticks.
  */
 public class AnchorTileService extends TileService {
 
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable renderRunnable = new Runnable() {
+        @Override
+        public void run() {
+            updateTileState();
+        }
+    };
+    private final AnchorSnapshot.Listener snapshotListener = new AnchorSnapshot.Listener() {
+        @Override
+        public void onSnapshotChanged(AnchorSnapshot snapshot) {
+            // Changes come from any thread - render on the main looper
+            mainHandler.removeCallbacks(renderRunnable);
+            mainHandler.post(renderRunnable);
+        }
+    };
+
     @Override
     public void onStartListening() {
-        super.onStartListening();
-        updateTileState();
+        AnchorTrace.Span trace = AnchorTrace.begin("AnchorTileService.onStartListening");
+        try {
+            super.onStartListening();
+            AnchorSnapshot.addListener(snapshotListener);
+            updateTileState();
+        } finally {
+            AnchorTrace.end(trace);
+        }
     }
 
     @Override
     public void onClick() {
-        super.onClick();
+        AnchorTrace.Span trace = AnchorTrace.begin("AnchorTileService.onClick");
+        try {
+            super.onClick();
+
+            AnchorSnapshot snapshot = AnchorSnapshot.get(this);
+            AnchorSnapshot.Task top = snapshot.top();
+            final Context context = getApplicationContext();
+            switch (snapshot.timer.status) {
+                case TimerEngine.STATUS_RUNNING:
+                case TimerEngine.STATUS_PAUSED:
+                    final boolean pause = snapshot.timer.status == TimerEngine.STATUS_RUNNING;
+                    // The engine writes its snapshot; the tile re-renders from the snapshot listener
+                    SurfaceUpdateCoordinator.getInstance(this).post(new Runnable() {
+                        @Override
+                        public void run() {
+                            TimerEngine engine = TimerEngine.getInstance(context);
+                            if (pause) {
+                                engine.pause();
+                            } else {
+                                engine.resume();
+                            }
+                            TimerNotificationService.ensureRunning(context);
+                        }
+                    });
+                    break;
+                default:
+                    if (top == null) {
+                        // Nothing to focus on yet - open the app to add a task
+                        openApp();
+                        return;
+                    }
+                    SurfaceUpdateCoordinator.getInstance(this).submit(new SurfaceFrame(null,
+                        new SurfaceFrame.TaskSurface(top.id, top.text, snapshot.stack.timerMinutes * 60L * 1000L), null));
+                    break;
+            }
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
 
-        // Open the main activity when tile is tapped
+    private void openApp() {
         Intent launchIntent = getPackageManager().getLaunchIntentForPackage(getPackageName());
-        if (launchIntent != null) {
-            launchIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        if (launchIntent == null) {
+            return;
+        }
+        launchIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            // The Intent overload throws for apps targeting 34+
+            startActivityAndCollapse(PendingIntent.getActivity(this, 0, launchIntent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT));
+        } else {
             startActivityAndCollapse(launchIntent);
         }
     }
@@ -33,9 +113,31 @@ public class AnchorTileService extends TileService {
         if (tile == null)
             return;
 
-        tile.setState(Tile.STATE_INACTIVE);
-        tile.setLabel("Anchor");
-        tile.setContentDescription("Open Anchor app");
+        AnchorSnapshot snapshot = AnchorSnapshot.get(this);
+        TimerEngine.State timer = snapshot.timer;
+        String text = snapshot.currentTaskText();
+        String detail;
+        switch (timer.status) {
+            case TimerEngine.STATUS_RUNNING:
+                // An end time stays correct without ticking, unlike a countdown
+                detail = "Until " + DateFormat.getTimeFormat(this).format(new Date(timer.endWallTimeMillis()));
+                break;
+            case TimerEngine.STATUS_PAUSED:
+                detail = "Paused, " + Math.max(1, timer.remainingMillis() / 60000) + " min left";
+                break;
+            default:
+                detail = text != null ? "Tap to focus" : null;
+                break;
+        }
+
+        tile.setState(timer.status == TimerEngine.STATUS_RUNNING ? Tile.STATE_ACTIVE : Tile.STATE_INACTIVE);
+        tile.setLabel(text != null ? text : "Anchor");
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            tile.setSubtitle(detail);
+        }
+        tile.setContentDescription(text != null
+            ? (detail != null ? text + ", " + detail : text)
+            : "Open Anchor app");
 
         tile.updateTile();
     }
@@ -53,6 +155,8 @@ public class AnchorTileService extends TileService {
 
     @Override
     public void onStopListening() {
+        AnchorSnapshot.removeListener(snapshotListener);
+        mainHandler.removeCallbacks(renderRunnable);
         super.onStopListening();
     }
 }
@@ -0,0 +1,159 @@
+package com.anchor.ironclad;
+
+import android.os.SystemClock;
+import android.os.Trace;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Trace sections and in-process latency metrics for native entry points
+ * Every React method, widget provider, receiver and timer tick runs between
+ * begin() and end(): the section shows up in systrace/Perfetto, and its
+ * duration lands in a per-section log2 histogram (calls, calls/sec, p50/p99).
+ * count() keeps plain event counters such as notification posts and disk
+ * writes (named "disk.*").
+ * Everything is lock-free; each call allocates only its Span. MetricsModule
+ * reads and resets it.
+ */
+final class AnchorTrace {
+
+    // Bucket i holds durations in [2^i, 2^(i+1)) microseconds; the last one is open-ended
+    private static final int BUCKETS = 32;
+
+    /**
+     * Durations recorded for one section
+     */
+    static final class Section {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max;
+            do {
+                max = maxNanos.get();
+            } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+            long micros = Math.max(1, nanos / 1000);
+            int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+            buckets.incrementAndGet(bucket);
+        }
+
+        /**
+         * Upper bound of the bucket holding the given percentile, in milliseconds
+         */
+        double percentileMillis(double percentile) {
+            long total = count.get();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min((1L << (i + 1)) / 1000.0, maxNanos.get() / 1e6);
+                }
+            }
+            return maxNanos.get() / 1e6;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, Section> sections = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static volatile long sessionStartElapsed = SystemClock.elapsedRealtime();
+    private static volatile long sessionStartWall = System.currentTimeMillis();
+
+    private AnchorTrace() {
+    }
+
+    /**
+     * An open section, returned by begin(); it carries its own name so end()
+     * always records into the section that was opened
+     */
+    static final class Span {
+        final String name;
+        final long startNanos;
+
+        private Span(String name, long startNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * Open a trace section; pass the result to end() on the same thread
+     */
+    static Span begin(String name) {
+        Trace.beginSection(name);
+        return new Span(name, SystemClock.elapsedRealtimeNanos());
+    }
+
+    static void end(Span span) {
+        long nanos = SystemClock.elapsedRealtimeNanos() - span.startNanos;
+        Trace.endSection();
+        Section section = sections.get(span.name);
+        if (section == null) {
+            Section created = new Section();
+            section = sections.putIfAbsent(span.name, created);
+            if (section == null) {
+                section = created;
+            }
+        }
+        section.record(nanos);
+    }
+
+    static void count(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * Sections recorded this session, sorted by name
+     */
+    static Map<String, Section> sections() {
+        return new TreeMap<>(sections);
+    }
+
+    static Map<String, Long> counters() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        return values;
+    }
+
+    static long sessionStartWall() {
+        return sessionStartWall;
+    }
+
+    /**
+     * Milliseconds since the process started or metrics were last reset
+     */
+    static long sessionMillis() {
+        return SystemClock.elapsedRealtime() - sessionStartElapsed;
+    }
+
+    /**
+     * Start a new session. Calls in flight may land in either one.
+     */
+    static void reset() {
+        sections.clear();
+        counters.clear();
+        sessionStartElapsed = SystemClock.elapsedRealtime();
+        sessionStartWall = System.currentTimeMillis();
+    }
+}
@@ -1,58 +1,187 @@
 package com.anchor.ironclad;
 
+import android.app.AlarmManager;
 import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.view.View;
 import android.widget.RemoteViews;
 
 /**
  * Home screen widget showing current anchor task
+ * Renders the AnchorSnapshot: top task, and the timer as a RemoteViews chronometer;
+ * the progress bar is refreshed by a coarse, non-waking alarm until the timer ends.
+ * Refreshes only send the views that changed (see WidgetRenderer).
  */
 public class AnchorWidgetProvider extends AppWidgetProvider {
     
-    private static final String PREFS_NAME = "AnchorWidgetPrefs";
-    private static final String PREF_CURRENT_TASK = "currentTask";
-    private static final String PREF_TIME_REMAINING = "timeRemaining";
+    static final String ACTION_REFRESH_PROGRESS = "com.anchor.ironclad.WIDGET_REFRESH_PROGRESS";
+    
+    // Progress bar moves in 5% steps, but never more often than once a minute
+    private static final int PROGRESS_STEPS = 20;
+    private static final long MIN_REFRESH_INTERVAL_MS = 60 * 1000;
     
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId);
+        AnchorTrace.Span trace = AnchorTrace.begin("AnchorWidgetProvider.onUpdate");
+        try {
+            WidgetIdCache.add(AnchorWidgetProvider.class, appWidgetIds);
+            // Host asked for these instances - it may have lost their views, so redraw fully
+            WidgetRenderer.renderAnchor(context, appWidgetIds, true);
+            scheduleProgressRefresh(context);
+        } finally {
+            AnchorTrace.end(trace);
         }
     }
     
-    static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
-        // Get current task from SharedPreferences
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        // Get task data  
-        String taskText = prefs.getString(PREF_CURRENT_TASK, "No active task");
-        long endTime = prefs.getLong(PREF_TIME_REMAINING, 0);
-        
-        // Create RemoteViews
-        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_anchor);
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        AnchorTrace.Span trace = AnchorTrace.begin("AnchorWidgetProvider.onReceive");
+        try {
+            if (ACTION_REFRESH_PROGRESS.equals(intent.getAction())) {
+                WidgetRenderer.renderAnchor(context, null, false);
+                scheduleProgressRefresh(context);
+                return;
+            }
+            super.onReceive(context, intent);
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+    
+    @Override
+    public void onEnabled(Context context) {
+        AnchorTrace.Span trace = AnchorTrace.begin("AnchorWidgetProvider.onEnabled");
+        try {
+            WidgetIdCache.invalidate(AnchorWidgetProvider.class);
+            super.onEnabled(context);
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+    
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
+        AnchorTrace.Span trace = AnchorTrace.begin("AnchorWidgetProvider.onDeleted");
+        try {
+            WidgetIdCache.invalidate(AnchorWidgetProvider.class);
+            WidgetRenderer.forget(AnchorWidgetProvider.class, appWidgetIds);
+            super.onDeleted(context, appWidgetIds);
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+    
+    @Override
+    public void onRestored(Context context, int[] oldWidgetIds, int[] newWidgetIds) {
+        AnchorTrace.Span trace = AnchorTrace.begin("AnchorWidgetProvider.onRestored");
+        try {
+            WidgetIdCache.invalidate(AnchorWidgetProvider.class);
+            WidgetRenderer.forgetAll(AnchorWidgetProvider.class);
+            super.onRestored(context, oldWidgetIds, newWidgetIds);
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+    
+    @Override
+    public void onDisabled(Context context) {
+        AnchorTrace.Span trace = AnchorTrace.begin("AnchorWidgetProvider.onDisabled");
+        try {
+            WidgetIdCache.invalidate(AnchorWidgetProvider.class);
+            WidgetRenderer.forgetAll(AnchorWidgetProvider.class);
+            cancelProgressRefresh(context);
+            super.onDisabled(context);
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+    
+    /**
+     * What one anchor widget instance shows
+     */
+    static final class WidgetContent implements WidgetRenderer.Content {
+        final String taskText;
+        /** Elapsed share of the session, 0-100 */
+        final int progress;
+        /** Chronometer base in the elapsedRealtime timebase, 0 when no countdown is shown */
+        final long chronometerBase;
         
-        // Set task text
-        views.setTextViewText(R.id.widget_task_text, taskText);
+        WidgetContent(String taskText, int progress, long chronometerBase) {
+            this.taskText = taskText;
+            this.progress = progress;
+            this.chronometerBase = chronometerBase;
+        }
         
-        // Update progress bar
-        if (endTime > 0) {
-            long now = System.currentTimeMillis();
-            long remaining = endTime - now;
-            long totalDuration = prefs.getLong("totalDuration", 25 * 60 * 1000);
+        @Override
+        public RemoteViews buildViews(Context context, WidgetRenderer.Content previous) {
+            WidgetContent shown = (WidgetContent) previous;
+            RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_anchor);
+            boolean changed = false;
+            
+            // Set task text
+            if (shown == null || !TextUtils.equals(shown.taskText, taskText)) {
+                views.setTextViewText(R.id.widget_task_text, taskText);
+                changed = true;
+            }
             
-            if (remaining > 0) {
-                int progress = (int) ((remaining * 100) / totalDuration);
-                views.setProgressBar(R.id.widget_progress, 100, 100 - progress, false);
-            } else {
-                views.setProgressBar(R.id.widget_progress, 100, 100, false);
+            // Update progress bar
+            if (shown == null || shown.progress != progress) {
+                views.setProgressBar(R.id.widget_progress, 100, progress, false);
+                changed = true;
             }
-        } else {
-            views.setProgressBar(R.id.widget_progress, 100, 0, false);
+            
+            // Update countdown
+            if (shown == null || shown.chronometerBase != chronometerBase) {
+                if (chronometerBase > 0) {
+                    // Chronometer counts down on its own, in the elapsedRealtime timebase
+                    views.setChronometer(R.id.widget_chronometer, chronometerBase, null, true);
+                    views.setChronometerCountDown(R.id.widget_chronometer, true);
+                    views.setViewVisibility(R.id.widget_chronometer, View.VISIBLE);
+                } else {
+                    views.setChronometer(R.id.widget_chronometer, SystemClock.elapsedRealtime(), null, false);
+                    views.setViewVisibility(R.id.widget_chronometer, View.GONE);
+                }
+                changed = true;
+            }
+            
+            if (shown == null) {
+                // Click intents only need to be attached once per instance
+                setClickIntents(context, views);
+                return views;
+            }
+            return changed ? views : null;
+        }
+
+    }
+    
+    static WidgetContent readContent(Context context) {
+        AnchorSnapshot snapshot = AnchorSnapshot.get(context);
+        String taskText = snapshot.currentTaskText();
+        if (taskText == null) {
+            taskText = "No active task";
+        }
+        
+        TimerEngine.State timer = snapshot.timer;
+        if (timer.status == TimerEngine.STATUS_COMPLETED) {
+            return new WidgetContent(taskText, 100, 0);
+        }
+        if (!timer.isActive() || timer.durationMillis <= 0) {
+            return new WidgetContent(taskText, 0, 0);
         }
         
+        long remaining = timer.remainingMillis();
+        int progress = TimerMath.elapsedPercent(remaining, timer.durationMillis);
+        // A paused timer shows its progress but no running countdown
+        long chronometerBase = timer.status == TimerEngine.STATUS_RUNNING ? timer.endElapsedMillis : 0;
+        return new WidgetContent(taskText, progress, chronometerBase);
+    }
+    
+    private static void setClickIntents(Context context, RemoteViews views) {
         // Set up click intents
         Intent openAppIntent = new Intent(context, MainActivity.class);
         PendingIntent openPendingIntent = PendingIntent.getActivity(
@@ -84,22 +213,55 @@ public class AnchorWidgetProvider extends AppWidgetProvider {
             PendingIntent.FLAG_IMMUTABLE
         );
         views.setOnClickPendingIntent(R.id.widget_defer_btn, deferPendingIntent);
-        
-        // Update widget
-        appWidgetManager.updateAppWidget(appWidgetId, views);
     }
     
     /**
-     * Update widget from React Native
+     * Arm the next coarse progress refresh, or cancel it once the timer is over.
+     * Uses a non-waking alarm: the widget is only visible with the screen on anyway.
      */
-    public static void updateWidgetTask(Context context, String taskText) {
-        // Save to SharedPreferences
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        prefs.edit().putString(PREF_CURRENT_TASK, taskText).apply();
+    static void scheduleProgressRefresh(Context context) {
+        TimerEngine.State timer = AnchorSnapshot.get(context).timer;
+        long remaining = timer.remainingMillis();
+        if (timer.status != TimerEngine.STATUS_RUNNING || remaining <= 0) {
+            cancelProgressRefresh(context);
+            return;
+        }
+        
+        long interval = Math.max(MIN_REFRESH_INTERVAL_MS, timer.durationMillis / PROGRESS_STEPS);
+        // Always land one refresh exactly on the end so the bar shows completion
+        long delay = Math.min(interval, remaining);
         
-        // Update all widgets
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) {
+            alarmManager.set(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime() + delay,
+                    createRefreshIntent(context));
+        }
+    }
+    
+    static void cancelProgressRefresh(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) {
+            alarmManager.cancel(createRefreshIntent(context));
+        }
+    }
+    
+    private static PendingIntent createRefreshIntent(Context context) {
         Intent intent = new Intent(context, AnchorWidgetProvider.class);
-        intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-        context.sendBroadcast(intent);
+        intent.setAction(ACTION_REFRESH_PROGRESS);
+        return PendingIntent.getBroadcast(
+            context,
+            0,
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+    
+    /**
+     * Redraw all placed widgets from the current snapshot
+     */
+    static void refresh(Context context) {
+        // Directly - no broadcast round-trip through the provider
+        WidgetRenderer.renderAnchor(context, null, false);
+        scheduleProgressRefresh(context);
     }
 }
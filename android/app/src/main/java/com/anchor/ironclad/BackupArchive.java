@@ -0,0 +1,305 @@
+package com.anchor.ironclad;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Streams backups between files and the native history store
+ * History is read and written in pages, one record at a time, so memory use
+ * does not grow with the size of the history. Formats match the JS exporters.
+ */
+final class BackupArchive {
+
+    private static final int PAGE_SIZE = 500;
+    private static final HistoryStore.Filter ALL = new HistoryStore.Filter(0, 0, null, null);
+
+    /**
+     * Called as records are processed; total is -1 when not known up front
+     */
+    interface Progress {
+        void onProgress(long processed, long total);
+    }
+
+    /**
+     * Result of an import: the non-history parts of the backup, for JS to apply
+     */
+    static final class ImportResult {
+        final String stateJson;
+        final int historyCount;
+
+        ImportResult(String stateJson, int historyCount) {
+            this.stateJson = stateJson;
+            this.historyCount = historyCount;
+        }
+    }
+
+    private final AnchorDatabase database;
+    private final HistoryStore store;
+
+    BackupArchive(Context context) {
+        database = AnchorDatabase.getInstance(context);
+        store = HistoryStore.getInstance(context);
+    }
+
+    /**
+     * Full JSON backup: the JS state object (stack, backlog, brainNotes, settings)
+     * with the stored history spliced in as "history"
+     */
+    int writeJson(Writer out, String stateJson, Progress progress) throws IOException {
+        String state = stateJson.trim();
+        if (!state.startsWith("{") || !state.endsWith("}")) {
+            throw new IOException("State must be a JSON object");
+        }
+        long total = store.count(ALL)[0];
+
+        // Everything but the closing brace, then history
+        String body = state.substring(0, state.length() - 1).trim();
+        out.write(body);
+        out.write(body.length() > 1 ? ",\"history\":[" : "\"history\":[");
+
+        int written = 0;
+        String cursor = null;
+        do {
+            HistoryStore.Page page = store.query(ALL, cursor, PAGE_SIZE);
+            for (String payload : page.payloads) {
+                if (written > 0) {
+                    out.write(',');
+                }
+                out.write(payload);
+                written++;
+            }
+            progress.onProgress(written, total);
+            cursor = page.nextCursor;
+        } while (cursor != null);
+
+        out.write("]}");
+        return written;
+    }
+
+    int writeCsv(Writer out, Progress progress) throws IOException, JSONException {
+        long total = store.count(ALL)[0];
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        out.write("Task,Created,Completed,Energy,Focus,Note\n");
+        int written = 0;
+        String cursor = null;
+        do {
+            HistoryStore.Page page = store.query(ALL, cursor, PAGE_SIZE);
+            for (String payload : page.payloads) {
+                JSONObject task = new JSONObject(payload);
+                JSONObject journal = task.optJSONObject("journal");
+                if (written > 0) {
+                    out.write('\n');
+                }
+                writeCsvField(out, task.optString("text"));
+                out.write(',');
+                writeCsvField(out, iso.format(new Date(task.optLong("createdAt"))));
+                out.write(',');
+                writeCsvField(out, task.has("completedAt") ? iso.format(new Date(task.optLong("completedAt"))) : "");
+                out.write(',');
+                writeCsvField(out, journal != null ? String.valueOf(journal.optInt("energy")) : "");
+                out.write(',');
+                writeCsvField(out, journal != null ? String.valueOf(journal.optInt("focus")) : "");
+                out.write(',');
+                writeCsvField(out, journal != null ? journal.optString("note") : "");
+                written++;
+            }
+            progress.onProgress(written, total);
+            cursor = page.nextCursor;
+        } while (cursor != null);
+        return written;
+    }
+
+    /**
+     * Obsidian-style markdown: frontmatter, one section per day (newest first), summary
+     */
+    int writeMarkdown(Writer out, Progress progress) throws IOException, JSONException {
+        long total = store.count(ALL)[0];
+        Date now = new Date();
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+        SimpleDateFormat dayKey = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        SimpleDateFormat dayName = new SimpleDateFormat("EEEE, MMMM d, yyyy", Locale.US);
+        SimpleDateFormat time = new SimpleDateFormat("hh:mm a", Locale.US);
+
+        out.write("---\n");
+        out.write("title: Anchor Task Export\n");
+        out.write("date: " + iso.format(now) + "\n");
+        out.write("total_tasks: " + total + "\n");
+        out.write("app_version: \"4.0 Ironclad\"\n");
+        out.write("---\n\n");
+        out.write("# Anchor Task History\n\n");
+
+        int written = 0;
+        String currentDay = null;
+        String cursor = null;
+        do {
+            HistoryStore.Page page = store.query(ALL, cursor, PAGE_SIZE);
+            for (String payload : page.payloads) {
+                JSONObject task = new JSONObject(payload);
+                written++;
+                if (!task.has("completedAt")) {
+                    continue;
+                }
+                Date completed = new Date(task.optLong("completedAt"));
+
+                // Rows arrive newest first, so a new day starts a new section
+                String day = dayKey.format(completed);
+                if (!day.equals(currentDay)) {
+                    if (currentDay != null) {
+                        out.write("\n");
+                    }
+                    out.write("## " + dayName.format(completed) + "\n\n");
+                    currentDay = day;
+                }
+
+                out.write("- [x] " + task.optString("text"));
+                out.write(" ⏰" + time.format(completed));
+                JSONObject journal = task.optJSONObject("journal");
+                if (journal != null) {
+                    int energy = journal.optInt("energy");
+                    int focus = journal.optInt("focus");
+                    out.write(" #energy-" + energy + " #focus-" + focus);
+                }
+                out.write("\n");
+
+                String note = journal != null ? journal.optString("note") : "";
+                if (!note.isEmpty()) {
+                    out.write("  - 📝 *" + note + "*\n");
+                }
+            }
+            progress.onProgress(written, total);
+            cursor = page.nextCursor;
+        } while (cursor != null);
+        if (currentDay != null) {
+            out.write("\n");
+        }
+
+        // Summary comes straight from the rollups
+        HistoryRollups.Rollup summary = store.rollup(null, 0, 0);
+        out.write("---\n\n");
+        out.write("## Summary\n\n");
+        out.write("- **Total Completed Tasks**: " + written + "\n");
+        out.write("- **Tasks with Journal Entries**: " + summary.journaled + "\n");
+        out.write("- **Average Energy Level**: " + average(summary.energySum, summary.journaled) + "/5\n");
+        out.write("- **Average Focus Quality**: " + average(summary.focusSum, summary.journaled) + "/5\n");
+        out.write("\n---\n");
+        out.write("\n*Exported from Anchor - Built for minds that work differently* 🎯");
+        return written;
+    }
+
+    /**
+     * Read a JSON backup. History goes straight into the native store, replacing it;
+     * everything else is returned as a JSON object string.
+     */
+    ImportResult readJson(JsonReader reader, Progress progress) throws IOException, JSONException {
+        JSONObject state = new JSONObject();
+        int imported = 0;
+
+        // One transaction around the whole import: a backup that fails to parse
+        // halfway leaves the existing history untouched
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            store.clear();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (!"history".equals(name)) {
+                    state.put(name, readValue(reader));
+                    continue;
+                }
+
+                List<String> batch = new ArrayList<>(PAGE_SIZE);
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    batch.add(readValue(reader).toString());
+                    if (batch.size() == PAGE_SIZE) {
+                        imported += store.put(batch);
+                        batch.clear();
+                        progress.onProgress(imported, -1);
+                    }
+                }
+                reader.endArray();
+                if (!batch.isEmpty()) {
+                    imported += store.put(batch);
+                    progress.onProgress(imported, -1);
+                }
+            }
+            reader.endObject();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return new ImportResult(state.toString(), imported);
+    }
+
+    private static Object readValue(JsonReader reader) throws IOException, JSONException {
+        JsonToken token = reader.peek();
+        switch (token) {
+            case BEGIN_OBJECT: {
+                JSONObject object = new JSONObject();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    object.put(reader.nextName(), readValue(reader));
+                }
+                reader.endObject();
+                return object;
+            }
+            case BEGIN_ARRAY: {
+                JSONArray array = new JSONArray();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    array.put(readValue(reader));
+                }
+                reader.endArray();
+                return array;
+            }
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            case NUMBER: {
+                // Keep integers (timestamps) integral so they round-trip unchanged
+                String number = reader.nextString();
+                try {
+                    return Long.parseLong(number);
+                } catch (NumberFormatException e) {
+                    return Double.parseDouble(number);
+                }
+            }
+            default:
+                return reader.nextString();
+        }
+    }
+
+    private static void writeCsvField(Writer out, String value) throws IOException {
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static String average(long sum, long count) {
+        if (count == 0) {
+            return "0";
+        }
+        return String.format(Locale.US, "%.1f", (double) sum / count);
+    }
+}
@@ -0,0 +1,211 @@
+package com.anchor.ironclad;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.JsonReader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * React Native module for streaming backup export and import
+ * Formats: "json", "json.gz" (gzip-compressed JSON), "csv" and "markdown".
+ * Files are written through buffered streams on a background thread, and
+ * progress is reported with BackupProgress events.
+ */
+public class BackupModule extends ReactContextBaseJavaModule {
+    static final String MODULE_NAME = "BackupModule";
+    private static final String EVENT_PROGRESS = "BackupProgress";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Progress events are throttled to keep the bridge quiet on large backups
+    private static final long PROGRESS_INTERVAL_MS = 250;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    BackupModule(ReactApplicationContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    /**
+     * Write a backup file. stateJson carries the non-history state for "json" and
+     * "json.gz" and is ignored otherwise. Resolves the number of history records written.
+     */
+    @ReactMethod
+    public void exportBackup(final String format, final String fileUri, final String stateJson, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("BackupModule.exportBackup");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    File file = null;
+                    int written;
+                    try {
+                        file = toFile(fileUri);
+                        try (Writer out = openWriter(file, "json.gz".equals(format))) {
+                            written = write(format, out, stateJson);
+                        }
+                    } catch (Exception e) {
+                        // Don't leave a truncated backup behind
+                        if (file != null) {
+                            file.delete();
+                        }
+                        promise.reject("ERROR", e.getMessage());
+                        return;
+                    }
+                    // Resolve only after close() has flushed the last buffer
+                    promise.resolve(written);
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    private int write(String format, Writer out, String stateJson) throws Exception {
+        BackupArchive archive = new BackupArchive(getReactApplicationContext());
+        BackupArchive.Progress progress = createProgress("export");
+        switch (format) {
+            case "json":
+            case "json.gz":
+                return archive.writeJson(out, stateJson != null ? stateJson : "{}", progress);
+            case "csv":
+                return archive.writeCsv(out, progress);
+            case "markdown":
+                return archive.writeMarkdown(out, progress);
+            default:
+                throw new IllegalArgumentException("Unknown backup format: " + format);
+        }
+    }
+
+    /**
+     * Read a JSON backup (plain or gzip, detected from the file). History is loaded
+     * straight into the native history store; resolves { state, historyCount } where
+     * state is the JSON string of everything else in the backup.
+     */
+    @ReactMethod
+    public void importBackup(final String fileUri, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("BackupModule.importBackup");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try (JsonReader reader = new JsonReader(new InputStreamReader(openInput(toFile(fileUri)),
+                            StandardCharsets.UTF_8))) {
+                        BackupArchive.ImportResult result = new BackupArchive(getReactApplicationContext())
+                            .readJson(reader, createProgress("import"));
+                        WritableMap map = Arguments.createMap();
+                        map.putString("state", result.stateJson);
+                        map.putInt("historyCount", result.historyCount);
+                        promise.resolve(map);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    // Required by NativeEventEmitter
+    @ReactMethod
+    public void addListener(String eventName) {
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+    }
+
+    @Override
+    public void invalidate() {
+        executor.shutdown();
+        super.invalidate();
+    }
+
+    /**
+     * The file behind a file:// URI (or plain path) from JS; content:// and
+     * other schemes are rejected
+     */
+    private static File toFile(String fileUri) {
+        Uri uri = fileUri != null ? Uri.parse(fileUri) : null;
+        String scheme = uri != null ? uri.getScheme() : null;
+        String path = uri != null && (scheme == null || "file".equalsIgnoreCase(scheme)) ? uri.getPath() : null;
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("Not a file URI: " + fileUri);
+        }
+        return new File(path);
+    }
+
+    private static Writer openWriter(File file, boolean compressed) throws IOException {
+        OutputStream stream = new FileOutputStream(file);
+        if (compressed) {
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private static InputStream openInput(File file) throws IOException {
+        BufferedInputStream stream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        // gzip files start with 0x1f 0x8b
+        stream.mark(2);
+        int first = stream.read();
+        int second = stream.read();
+        stream.reset();
+        if (first == 0x1f && second == 0x8b) {
+            return new GZIPInputStream(stream, BUFFER_SIZE);
+        }
+        return stream;
+    }
+
+    private BackupArchive.Progress createProgress(final String operation) {
+        return new BackupArchive.Progress() {
+            private long lastEmit;
+
+            @Override
+            public void onProgress(long processed, long total) {
+                long now = SystemClock.elapsedRealtime();
+                boolean done = total >= 0 && processed >= total;
+                if (!done && now - lastEmit < PROGRESS_INTERVAL_MS) {
+                    return;
+                }
+                lastEmit = now;
+
+                WritableMap event = Arguments.createMap();
+                event.putString("operation", operation);
+                event.putDouble("processed", processed);
+                event.putDouble("total", total);
+                ReactApplicationContext context = getReactApplicationContext();
+                if (context.hasActiveReactInstance()) {
+                    context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                        .emit(EVENT_PROGRESS, event);
+                }
+            }
+        };
+    }
+}
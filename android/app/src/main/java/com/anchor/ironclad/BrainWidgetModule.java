@@ -1,48 +1,132 @@
 package com.anchor.ironclad;
 
-import android.appwidget.AppWidgetManager;
-import android.content.ComponentName;
-import android.content.Context;
-import android.content.Intent;
-import android.content.SharedPreferences;
-
 import com.facebook.react.bridge.*;
 
-public class BrainWidgetModule extends ReactContextBaseJavaModule {
-    private static final String PREFS_NAME = "BrainWidgetPrefs";
-    
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Feeds note summaries (title + short preview) to the brain widget's native store
+ * JS sends incremental upserts/removals as notes change. After launch or an import
+ * it diffs its notes against getNoteVersions() and syncs only what changed, in
+ * small batches, so the whole note set never crosses the bridge at once.
+ */
+public class BrainWidgetModule extends NativeBrainWidgetModuleSpec {
+    // A sync spans several syncNotes() calls, which arrive in order on the module thread
+    private boolean syncChanged;
+
     public BrainWidgetModule(ReactApplicationContext reactContext) {
         super(reactContext);
     }
 
+    /**
+     * Insert or update notes: [{ id, title, preview, updatedAt }]
+     */
+    @Override
+    public void upsertNotes(ReadableArray notes) {
+        AnchorTrace.Span trace = AnchorTrace.begin("BrainWidgetModule.upsertNotes");
+        try {
+            getStore().upsert(readSummaries(notes));
+            BrainWidgetProvider.notesChanged(getReactApplicationContext());
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
+    public void removeNotes(ReadableArray noteIds) {
+        AnchorTrace.Span trace = AnchorTrace.begin("BrainWidgetModule.removeNotes");
+        try {
+            getStore().remove(readIds(noteIds));
+            BrainWidgetProvider.notesChanged(getReactApplicationContext());
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * Resolves { [noteId]: updatedAt } for every stored note, for JS to diff against
+     */
+    @Override
+    public void getNoteVersions(Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("BrainWidgetModule.getNoteVersions");
+        try {
+            WritableMap versions = Arguments.createMap();
+            for (Map.Entry<String, Long> entry : getStore().loadVersions().entrySet()) {
+                versions.putDouble(entry.getKey(), entry.getValue());
+            }
+            promise.resolve(versions);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * One batch of a sync: notes that changed, and notes to drop. The widget is
+     * only told once, after the last batch, and not at all if no batch changed anything.
+     */
+    @Override
+    public void syncNotes(ReadableArray notes, ReadableArray removedIds, boolean last) {
+        AnchorTrace.Span trace = AnchorTrace.begin("BrainWidgetModule.syncNotes");
+        try {
+            NoteSummaryStore store = getStore();
+            if (notes.size() > 0) {
+                store.upsert(readSummaries(notes));
+                syncChanged = true;
+            }
+            if (removedIds.size() > 0) {
+                store.remove(readIds(removedIds));
+                syncChanged = true;
+            }
+            if (last) {
+                if (syncChanged) {
+                    BrainWidgetProvider.notesChanged(getReactApplicationContext());
+                }
+                syncChanged = false;
+            }
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
     @Override
-    public String getName() {
-        return "BrainWidgetModule";
-    }
-
-    @ReactMethod
-    public void updateWidget(String title, String content, int noteCount) {
-        Context context = getReactApplicationContext();
-        
-        // Save to preferences
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        prefs.edit()
-            .putString("note_title", title)
-            .putString("note_content", content)
-            .putInt("note_count", noteCount)
-            .apply();
-        
-        // Trigger widget update
-        Intent intent = new Intent(context, BrainWidgetProvider.class);
-        intent.setAction(AppWidgetManager.ACTION_APPWIDGET_UPDATE);
-        int[] ids = AppWidgetManager.getInstance(context)
-            .getAppWidgetIds(new ComponentName(context, BrainWidgetProvider.class));
-        intent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS, ids);
-        context.sendBroadcast(intent);
-    }
-
-    @ReactMethod
     public void clearWidget() {
-        updateWidget("No notes yet", "Add notes in Second Brain", 0);
+        AnchorTrace.Span trace = AnchorTrace.begin("BrainWidgetModule.clearWidget");
+        try {
+            getStore().clear();
+            BrainWidgetProvider.notesChanged(getReactApplicationContext());
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    private NoteSummaryStore getStore() {
+        return NoteSummaryStore.getInstance(getReactApplicationContext());
+    }
+
+    private static List<String> readIds(ReadableArray noteIds) {
+        List<String> ids = new ArrayList<>(noteIds.size());
+        for (int i = 0; i < noteIds.size(); i++) {
+            ids.add(noteIds.getString(i));
+        }
+        return ids;
+    }
+
+    private static List<NoteSummaryStore.Summary> readSummaries(ReadableArray notes) {
+        List<NoteSummaryStore.Summary> summaries = new ArrayList<>(notes.size());
+        for (int i = 0; i < notes.size(); i++) {
+            ReadableMap note = notes.getMap(i);
+            summaries.add(new NoteSummaryStore.Summary(
+                0,
+                note.getString("id"),
+                note.hasKey("title") ? note.getString("title") : null,
+                note.hasKey("preview") ? note.getString("preview") : null,
+                note.hasKey("updatedAt") ? (long) note.getDouble("updatedAt") : 0
+            ));
+        }
+        return summaries;
     }
 }
@@ -4,43 +4,141 @@ import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
+import android.net.Uri;
 import android.widget.RemoteViews;
 import android.app.PendingIntent;
 
+/**
+ * Home screen widget listing recent Second Brain notes
+ * The list is a collection backed by BrainWidgetService and NoteSummaryStore.
+ */
 public class BrainWidgetProvider extends AppWidgetProvider {
-    private static final String PREFS_NAME = "BrainWidgetPrefs";
-    private static final String KEY_NOTE_TITLE = "note_title";
-    private static final String KEY_NOTE_CONTENT = "note_content";
-    private static final String KEY_NOTE_COUNT = "note_count";
+    // expo-router deep links into the app's scheme
+    private static final String BRAIN_URI = "anchor://brain";
+    static final String NOTE_URI = "anchor://note-editor?id=";
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        AnchorTrace.Span trace = AnchorTrace.begin("BrainWidgetProvider.onUpdate");
+        try {
+            WidgetIdCache.add(BrainWidgetProvider.class, appWidgetIds);
+            // Host asked for these instances - it may have lost their views, so redraw fully
+            WidgetRenderer.renderBrain(context, appWidgetIds, true);
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
+    public void onEnabled(Context context) {
+        AnchorTrace.Span trace = AnchorTrace.begin("BrainWidgetProvider.onEnabled");
+        try {
+            WidgetIdCache.invalidate(BrainWidgetProvider.class);
+            super.onEnabled(context);
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
+    public void onDeleted(Context context, int[] appWidgetIds) {
+        AnchorTrace.Span trace = AnchorTrace.begin("BrainWidgetProvider.onDeleted");
+        try {
+            WidgetIdCache.invalidate(BrainWidgetProvider.class);
+            WidgetRenderer.forget(BrainWidgetProvider.class, appWidgetIds);
+            super.onDeleted(context, appWidgetIds);
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
+    public void onRestored(Context context, int[] oldWidgetIds, int[] newWidgetIds) {
+        AnchorTrace.Span trace = AnchorTrace.begin("BrainWidgetProvider.onRestored");
+        try {
+            WidgetIdCache.invalidate(BrainWidgetProvider.class);
+            WidgetRenderer.forgetAll(BrainWidgetProvider.class);
+            super.onRestored(context, oldWidgetIds, newWidgetIds);
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
+    public void onDisabled(Context context) {
+        AnchorTrace.Span trace = AnchorTrace.begin("BrainWidgetProvider.onDisabled");
+        try {
+            WidgetIdCache.invalidate(BrainWidgetProvider.class);
+            WidgetRenderer.forgetAll(BrainWidgetProvider.class);
+            super.onDisabled(context);
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * What one brain widget instance shows outside its note list
+     */
+    static final class WidgetContent implements WidgetRenderer.Content {
+        final int noteCount;
         
-        for (int appWidgetId : appWidgetIds) {
-            RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_brain);
-            
-            // Get note data
-            String noteTitle = prefs.getString(KEY_NOTE_TITLE, "No notes yet");
-            String noteContent = prefs.getString(KEY_NOTE_CONTENT, "Add notes in Second Brain");
-            int noteCount = prefs.getInt(KEY_NOTE_COUNT, 0);
+        WidgetContent(int noteCount) {
+            this.noteCount = noteCount;
+        }
+
+        @Override
+        public RemoteViews buildViews(Context context, WidgetRenderer.Content previous) {
+            WidgetContent shown = (WidgetContent) previous;
+            if (shown != null && shown.noteCount == noteCount) {
+                return null;
+            }
             
-            // Set text
-            views.setTextViewText(R.id.widget_brain_title, noteTitle);
-            views.setTextViewText(R.id.widget_brain_content, noteContent);
+            RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_brain);
             views.setTextViewText(R.id.widget_brain_count, noteCount + " notes");
             
-            // Click to open app
-            Intent intent = new Intent(context, MainActivity.class);
-            intent.putExtra("openBrain", true);
-            PendingIntent pendingIntent = PendingIntent.getActivity(
-                context, 0, intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            views.setOnClickPendingIntent(R.id.widget_brain_container, pendingIntent);
-            
-            appWidgetManager.updateAppWidget(appWidgetId, views);
+            if (shown == null) {
+                // Note list is filled page by page by BrainWidgetService
+                Intent serviceIntent = new Intent(context, BrainWidgetService.class);
+                views.setRemoteAdapter(R.id.widget_brain_list, serviceIntent);
+                views.setEmptyView(R.id.widget_brain_list, R.id.widget_brain_empty);
+
+                // Click header to open the Second Brain screen (an expo-router deep link)
+                Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(BRAIN_URI), context, MainActivity.class);
+                PendingIntent pendingIntent = PendingIntent.getActivity(
+                    context, 0, intent,
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+                );
+                views.setOnClickPendingIntent(R.id.widget_brain_header, pendingIntent);
+                views.setOnClickPendingIntent(R.id.widget_brain_empty, pendingIntent);
+
+                // Click a note to open it in the editor - rows fill in its link, so this one must be mutable
+                Intent noteIntent = new Intent(Intent.ACTION_VIEW);
+                noteIntent.setClass(context, MainActivity.class);
+                PendingIntent noteTemplate = PendingIntent.getActivity(
+                    context, 1, noteIntent,
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_MUTABLE
+                );
+                views.setPendingIntentTemplate(R.id.widget_brain_list, noteTemplate);
+            }
+            return views;
+        }
+    }
+
+    static WidgetContent readContent(Context context) {
+        return new WidgetContent(NoteSummaryStore.getInstance(context).count());
+    }
+
+    /**
+     * Redraw all brain widgets after the note summaries changed
+     */
+    static void notesChanged(Context context) {
+        // Redraw all placed widgets directly - no broadcast round-trip through the provider
+        WidgetRenderer.renderBrain(context, null, false);
+        int[] ids = WidgetIdCache.getIds(context, BrainWidgetProvider.class);
+        if (ids.length > 0) {
+            // Makes the list factory reload its pages
+            AppWidgetManager.getInstance(context).notifyAppWidgetViewDataChanged(ids, R.id.widget_brain_list);
+            AnchorTrace.count("widget.notifyAppWidgetViewDataChanged");
         }
     }
 }
@@ -0,0 +1,111 @@
+package com.anchor.ironclad;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.util.LruCache;
+import android.widget.RemoteViews;
+import android.widget.RemoteViewsService;
+
+import java.util.List;
+
+/**
+ * Supplies the brain widget's note list
+ * Rows are read from NoteSummaryStore one page at a time as the launcher
+ * scrolls; only a few pages are kept in memory.
+ */
+public class BrainWidgetService extends RemoteViewsService {
+
+    @Override
+    public RemoteViewsFactory onGetViewFactory(Intent intent) {
+        return new NoteListFactory(getApplicationContext());
+    }
+
+    static final class NoteListFactory implements RemoteViewsFactory {
+
+        private static final int PAGE_SIZE = 25;
+        private static final int MAX_CACHED_PAGES = 4;
+
+        private final Context context;
+        private final NoteSummaryStore store;
+        private final LruCache<Integer, List<NoteSummaryStore.Summary>> pages =
+            new LruCache<>(MAX_CACHED_PAGES);
+        private int count;
+
+        NoteListFactory(Context context) {
+            this.context = context;
+            this.store = NoteSummaryStore.getInstance(context);
+        }
+
+        @Override
+        public void onCreate() {
+        }
+
+        @Override
+        public void onDataSetChanged() {
+            // Runs on a binder thread - safe to hit the database here
+            pages.evictAll();
+            count = store.count();
+        }
+
+        @Override
+        public void onDestroy() {
+            pages.evictAll();
+        }
+
+        @Override
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public RemoteViews getViewAt(int position) {
+            NoteSummaryStore.Summary summary = getSummary(position);
+            if (summary == null) {
+                return null;
+            }
+
+            RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_brain_item);
+            views.setTextViewText(R.id.widget_brain_item_title, summary.title);
+            views.setTextViewText(R.id.widget_brain_item_preview, summary.preview);
+
+            // Merged into the list's pending intent template, which has no data of its own
+            Intent fillInIntent = new Intent();
+            fillInIntent.setData(Uri.parse(BrainWidgetProvider.NOTE_URI + Uri.encode(summary.noteId)));
+            views.setOnClickFillInIntent(R.id.widget_brain_item, fillInIntent);
+            return views;
+        }
+
+        @Override
+        public RemoteViews getLoadingView() {
+            return null;
+        }
+
+        @Override
+        public int getViewTypeCount() {
+            return 1;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            NoteSummaryStore.Summary summary = getSummary(position);
+            return summary != null ? summary.id : position;
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return true;
+        }
+
+        private NoteSummaryStore.Summary getSummary(int position) {
+            int pageIndex = position / PAGE_SIZE;
+            List<NoteSummaryStore.Summary> page = pages.get(pageIndex);
+            if (page == null) {
+                page = store.loadPage(pageIndex * PAGE_SIZE, PAGE_SIZE);
+                pages.put(pageIndex, page);
+            }
+            int index = position % PAGE_SIZE;
+            return index < page.size() ? page.get(index) : null;
+        }
+    }
+}
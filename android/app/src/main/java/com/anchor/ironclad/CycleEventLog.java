@@ -0,0 +1,215 @@
+package com.anchor.ironclad;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Durable log of cycle timer boundaries and status changes for JS
+ * Works like AnchorEventBus: CycleScheduler appends every phase change, pause,
+ * resume and stop, the attached JS runtime (if any) is told to drain the log,
+ * and acknowledged rows are deleted. Events logged while JS was not running
+ * wait here, so it can catch up on launch; only the newest MAX_EVENTS are kept,
+ * so the log stays bounded when nothing ever drains it.
+ */
+final class CycleEventLog {
+
+    private static final String TABLE = "cycle_events";
+
+    static final String PHASE_STARTED = "PHASE_STARTED";
+    static final String CYCLE_FINISHED = "CYCLE_FINISHED";
+    static final String PAUSED = "PAUSED";
+    static final String RESUMED = "RESUMED";
+    static final String STOPPED = "STOPPED";
+
+    static final int MAX_EVENTS = 200;
+
+    /**
+     * A logged event; id increases in order. phaseIndex is the phase that
+     * started, the last phase for CYCLE_FINISHED, or the current phase for a
+     * status change. at is the wall-clock time a boundary was due, not when it
+     * was noticed.
+     */
+    static final class Event {
+        final long id;
+        final int timerId;
+        final String timerLabel;
+        final String name;
+        final int phaseIndex;
+        final String phaseLabel;
+        final String phaseKind;
+        final long at;
+
+        Event(long id, int timerId, String timerLabel, String name, int phaseIndex,
+              String phaseLabel, String phaseKind, long at) {
+            this.id = id;
+            this.timerId = timerId;
+            this.timerLabel = timerLabel;
+            this.name = name;
+            this.phaseIndex = phaseIndex;
+            this.phaseLabel = phaseLabel;
+            this.phaseKind = phaseKind;
+            this.at = at;
+        }
+    }
+
+    /**
+     * The attached JS runtime; told when new events are waiting
+     */
+    interface Listener {
+        void onEventsPending();
+    }
+
+    private static CycleEventLog instance;
+
+    private final AnchorDatabase database;
+    private volatile Listener listener;
+    // Highest id handed to the attached runtime; events up to it are not handed out again
+    private long deliveredId;
+
+    private CycleEventLog(Context context) {
+        database = AnchorDatabase.getInstance(context);
+    }
+
+    static synchronized CycleEventLog getInstance(Context context) {
+        if (instance == null) {
+            instance = new CycleEventLog(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    static void createTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+            + "_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + "timer_id INTEGER NOT NULL, "
+            + "timer_label TEXT, "
+            + "event TEXT NOT NULL, "
+            + "phase_index INTEGER NOT NULL, "
+            + "phase_label TEXT, "
+            + "phase_kind TEXT, "
+            + "at INTEGER NOT NULL)");
+    }
+
+    /**
+     * Append the boundaries a timer just passed, in one transaction, and wake
+     * the attached runtime
+     */
+    void append(CycleTimer timer, List<CycleTimer.Boundary> boundaries, long nowElapsed, long nowWall) {
+        if (boundaries.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            long lastId = 0;
+            for (CycleTimer.Boundary boundary : boundaries) {
+                boolean finished = timer.isLastPhase(boundary.endedIndex);
+                int phaseIndex = finished ? boundary.endedIndex : boundary.endedIndex + 1;
+                lastId = insert(db, values, timer, finished ? CYCLE_FINISHED : PHASE_STARTED, phaseIndex,
+                    nowWall - (nowElapsed - boundary.atElapsedMillis));
+            }
+            prune(db, lastId);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        AnchorTrace.count("disk.cycleEvents");
+        notifyListener();
+    }
+
+    /**
+     * Append a status change (PAUSED, RESUMED or STOPPED) at the timer's
+     * current phase, and wake the attached runtime
+     */
+    void appendStatus(CycleTimer timer, String name, long nowWall) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            prune(db, insert(db, new ContentValues(), timer, name, timer.phaseIndex, nowWall));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        AnchorTrace.count("disk.cycleEvents");
+        notifyListener();
+    }
+
+    private static long insert(SQLiteDatabase db, ContentValues values, CycleTimer timer, String name,
+                               int phaseIndex, long at) {
+        CycleTimer.Phase phase = timer.phase(phaseIndex);
+        values.clear();
+        values.put("timer_id", timer.id);
+        values.put("timer_label", timer.label);
+        values.put("event", name);
+        values.put("phase_index", phaseIndex);
+        values.put("phase_label", phase.label);
+        values.put("phase_kind", phase.kind);
+        values.put("at", at);
+        return db.insert(TABLE, null, values);
+    }
+
+    // Drop everything older than the newest MAX_EVENTS; ids only ever grow
+    private static void prune(SQLiteDatabase db, long lastId) {
+        if (lastId > MAX_EVENTS) {
+            db.delete(TABLE, "_id <= ?", new String[] { Long.toString(lastId - MAX_EVENTS) });
+        }
+    }
+
+    private void notifyListener() {
+        Listener current = listener;
+        if (current != null) {
+            current.onEventsPending();
+        }
+    }
+
+    /**
+     * Attach a new runtime. Events it has not acknowledged are handed out again,
+     * since a previous runtime may have died before applying them.
+     */
+    synchronized void attach(Listener newListener) {
+        deliveredId = 0;
+        listener = newListener;
+    }
+
+    synchronized void detach(Listener oldListener) {
+        if (listener == oldListener) {
+            listener = null;
+        }
+    }
+
+    /**
+     * Events not yet handed to the attached runtime, oldest first
+     */
+    synchronized List<Event> take() {
+        List<Event> events = new ArrayList<>();
+        Cursor rows = database.getReadableDatabase().rawQuery(
+            "SELECT _id, timer_id, timer_label, event, phase_index, phase_label, phase_kind, at FROM "
+                + TABLE + " WHERE _id > ? ORDER BY _id",
+            new String[] { Long.toString(deliveredId) });
+        try {
+            while (rows.moveToNext()) {
+                events.add(new Event(rows.getLong(0), rows.getInt(1), rows.getString(2), rows.getString(3),
+                    rows.getInt(4), rows.getString(5), rows.getString(6), rows.getLong(7)));
+            }
+        } finally {
+            rows.close();
+        }
+        if (!events.isEmpty()) {
+            deliveredId = events.get(events.size() - 1).id;
+        }
+        return events;
+    }
+
+    /**
+     * Remove every event up to and including id; JS has applied them
+     */
+    void acknowledge(long id) {
+        database.getWritableDatabase().delete(TABLE, "_id <= ?", new String[] { Long.toString(id) });
+        AnchorTrace.count("disk.cycleEvents");
+    }
+}
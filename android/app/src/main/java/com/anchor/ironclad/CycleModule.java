@@ -0,0 +1,298 @@
+package com.anchor.ironclad;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * React Native module for CycleScheduler: Pomodoro cycles and parallel timers
+ * JS hands over a whole plan once; phase changes then happen natively. Emits
+ * AnchorCycleEventsPending when boundaries are logged; JS calls takeEvents()
+ * and acknowledges what it applied, like AnchorEventsModule.
+ * Work runs on one background thread, in call order.
+ */
+public class CycleModule extends ReactContextBaseJavaModule {
+    static final String MODULE_NAME = "CycleModule";
+    private static final String EVENT_PENDING = "AnchorCycleEventsPending";
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final CycleEventLog.Listener listener = new CycleEventLog.Listener() {
+        @Override
+        public void onEventsPending() {
+            ReactApplicationContext context = getReactApplicationContext();
+            if (context.hasActiveReactInstance()) {
+                context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(EVENT_PENDING, null);
+            }
+        }
+    };
+
+    CycleModule(ReactApplicationContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        CycleEventLog.getInstance(getReactApplicationContext()).attach(listener);
+    }
+
+    /**
+     * Start a timer running through phases: [{ label, kind, minutes }]. Resolves
+     * the new timer; a one-phase plan is a plain countdown next to the focus timer.
+     */
+    @ReactMethod
+    public void startCycle(final String label, ReadableArray phases, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("CycleModule.startCycle");
+        try {
+            final List<CycleTimer.Phase> plan = new ArrayList<>(phases.size());
+            for (int i = 0; i < phases.size(); i++) {
+                ReadableMap phase = phases.getMap(i);
+                plan.add(new CycleTimer.Phase(
+                    phase.hasKey("label") ? phase.getString("label") : null,
+                    phase.hasKey("kind") ? phase.getString("kind") : null,
+                    (long) (phase.getDouble("minutes") * 60 * 1000)));
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        promise.resolve(toMap(getScheduler().start(label, plan)));
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @ReactMethod
+    public void pauseCycle(final double id, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("CycleModule.pauseCycle");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        promise.resolve(toMap(getScheduler().pause((int) id)));
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @ReactMethod
+    public void resumeCycle(final double id, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("CycleModule.resumeCycle");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        promise.resolve(toMap(getScheduler().resume((int) id)));
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * End the current phase now; resolves the timer, finished if that was the last phase
+     */
+    @ReactMethod
+    public void skipPhase(final double id, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("CycleModule.skipPhase");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        promise.resolve(toMap(getScheduler().skip((int) id)));
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @ReactMethod
+    public void stopCycle(final double id, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("CycleModule.stopCycle");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        promise.resolve(getScheduler().stop((int) id));
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * Every unfinished timer, in start order
+     */
+    @ReactMethod
+    public void getCycles(final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("CycleModule.getCycles");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        WritableArray timers = Arguments.createArray();
+                        for (CycleTimer timer : getScheduler().getTimers()) {
+                            timers.pushMap(toMap(timer));
+                        }
+                        promise.resolve(timers);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * Resolves the boundaries not yet handed to this runtime, oldest first:
+     * [{ id, timerId, timerLabel, event, phaseIndex, phaseLabel, phaseKind, at }]
+     */
+    @ReactMethod
+    public void takeEvents(final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("CycleModule.takeEvents");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        // Loading the scheduler first logs phases that ended while nothing was running
+                        getScheduler();
+                        WritableArray events = Arguments.createArray();
+                        for (CycleEventLog.Event event : CycleEventLog.getInstance(getReactApplicationContext()).take()) {
+                            WritableMap map = Arguments.createMap();
+                            map.putDouble("id", event.id);
+                            map.putInt("timerId", event.timerId);
+                            map.putString("timerLabel", event.timerLabel);
+                            map.putString("event", event.name);
+                            map.putInt("phaseIndex", event.phaseIndex);
+                            map.putString("phaseLabel", event.phaseLabel);
+                            map.putString("phaseKind", event.phaseKind);
+                            map.putDouble("at", event.at);
+                            events.pushMap(map);
+                        }
+                        promise.resolve(events);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * Drop every event up to and including id from the log
+     */
+    @ReactMethod
+    public void acknowledgeEvents(final double id, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("CycleModule.acknowledgeEvents");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        CycleEventLog.getInstance(getReactApplicationContext()).acknowledge((long) id);
+                        promise.resolve(true);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    // Required by NativeEventEmitter
+    @ReactMethod
+    public void addListener(String eventName) {
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+    }
+
+    @Override
+    public void invalidate() {
+        CycleEventLog.getInstance(getReactApplicationContext()).detach(listener);
+        executor.shutdown();
+        super.invalidate();
+    }
+
+    private CycleScheduler getScheduler() {
+        return CycleScheduler.getInstance(getReactApplicationContext());
+    }
+
+    /**
+     * { id, label, status, phaseIndex, phaseCount, phaseLabel, phaseKind, remainingMs, planRemainingMs }
+     */
+    private static WritableMap toMap(CycleTimer timer) {
+        if (timer == null) {
+            return null;
+        }
+        long now = SystemClock.elapsedRealtime();
+        CycleTimer.Phase phase = timer.currentPhase();
+        WritableMap map = Arguments.createMap();
+        map.putInt("id", timer.id);
+        map.putString("label", timer.label);
+        map.putString("status", timer.statusName());
+        map.putInt("phaseIndex", timer.phaseIndex);
+        map.putInt("phaseCount", timer.phaseCount());
+        map.putString("phaseLabel", phase.label);
+        map.putString("phaseKind", phase.kind);
+        map.putDouble("remainingMs", timer.remainingMillis(now));
+        map.putDouble("planRemainingMs", timer.planRemainingMillis(now));
+        return map;
+    }
+}
@@ -0,0 +1,113 @@
+package com.anchor.ironclad;
+
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import androidx.core.app.NotificationCompat;
+
+/**
+ * One notification per cycle timer, next to the focus timer's
+ * The system chronometer counts down the current phase, so a notification is
+ * only posted when the timer changes state - never per tick. Boundaries the
+ * user did not cause (a phase ending on its own) make it alert.
+ */
+final class CycleNotifications {
+
+    // Ids below this belong to TimerNotificationService
+    private static final int NOTIFICATION_ID_BASE = 2000;
+    private static final String GROUP = "anchor_cycles";
+
+    static final String ACTION_PAUSE = "CYCLE_PAUSE";
+    static final String ACTION_RESUME = "CYCLE_RESUME";
+    static final String ACTION_SKIP = "CYCLE_SKIP";
+    static final String ACTION_STOP = "CYCLE_STOP";
+    static final String EXTRA_CYCLE_ID = "cycleId";
+
+    private CycleNotifications() {
+    }
+
+    static void post(Context context, CycleTimer timer, boolean alert, long nowElapsed) {
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (manager == null) {
+            return;
+        }
+        TimerNotificationService.createNotificationChannel(context);
+
+        Intent openAppIntent = new Intent(context, MainActivity.class);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, TimerNotificationService.CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_menu_recent_history)
+                .setContentIntent(PendingIntent.getActivity(context, 0, openAppIntent, PendingIntent.FLAG_IMMUTABLE))
+                .setGroup(GROUP)
+                .setSortKey(String.valueOf(timer.id));
+
+        String label = timer.label != null ? timer.label : "Timer";
+        if (timer.isFinished()) {
+            builder.setContentTitle("✅ " + label + " complete")
+                    .setContentText(timer.phaseCount() > 1 ? "All " + timer.phaseCount() + " phases done" : "Time's up")
+                    .setAutoCancel(true);
+        } else {
+            CycleTimer.Phase phase = timer.currentPhase();
+            boolean paused = timer.status == CycleTimer.STATUS_PAUSED;
+            long remaining = timer.remainingMillis(nowElapsed);
+            String title = phase.label != null && !phase.label.isEmpty() ? phase.label : label;
+
+            builder.setContentTitle((paused ? "⏸️ " : "⏱️ ") + title)
+                    .setOngoing(true)
+                    .setWhen(System.currentTimeMillis() + remaining)
+                    .setShowWhen(!paused)
+                    .setUsesChronometer(!paused)
+                    .setChronometerCountDown(!paused)
+                    .addAction(paused ? android.R.drawable.ic_media_play : android.R.drawable.ic_media_pause,
+                        paused ? "Resume" : "Pause",
+                        createActionIntent(context, paused ? ACTION_RESUME : ACTION_PAUSE, timer.id))
+                    .addAction(android.R.drawable.ic_media_next, "Skip",
+                        createActionIntent(context, ACTION_SKIP, timer.id))
+                    .addAction(android.R.drawable.ic_menu_close_clear_cancel, "Stop",
+                        createActionIntent(context, ACTION_STOP, timer.id));
+
+            StringBuilder text = new StringBuilder(64);
+            if (paused) {
+                DurationFormatter.appendCountdown(text, remaining, true);
+                text.append(" · ");
+            }
+            text.append(label);
+            if (timer.phaseCount() > 1) {
+                text.append(" · ").append(timer.phaseIndex + 1).append(" of ").append(timer.phaseCount());
+            }
+            builder.setContentText(text);
+        }
+
+        if (alert) {
+            builder.setPriority(NotificationCompat.PRIORITY_HIGH)
+                    .setSound(android.provider.Settings.System.DEFAULT_NOTIFICATION_URI)
+                    .setVibrate(new long[]{0, 500, 200, 500});
+        } else {
+            builder.setPriority(NotificationCompat.PRIORITY_LOW)
+                    .setSilent(true);
+        }
+
+        manager.notify(NOTIFICATION_ID_BASE + timer.id, builder.build());
+        AnchorTrace.count("notification.cycle");
+    }
+
+    static void cancel(Context context, int id) {
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (manager != null) {
+            manager.cancel(NOTIFICATION_ID_BASE + id);
+        }
+    }
+
+    private static PendingIntent createActionIntent(Context context, String action, int id) {
+        Intent intent = new Intent(context, NotificationActionReceiver.class);
+        intent.setAction(action);
+        intent.putExtra(EXTRA_CYCLE_ID, id);
+        // Request code per timer; the action already tells the buttons apart
+        return PendingIntent.getBroadcast(
+            context,
+            NOTIFICATION_ID_BASE + id,
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+}
@@ -0,0 +1,290 @@
+package com.anchor.ironclad;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Native scheduler for Pomodoro cycles and other multi-phase timers
+ * Any number of CycleTimers run side by side, independent of the focus timer in
+ * TimerEngine. Each keeps one exact alarm at the end of its current phase, so
+ * TimerAlarmReceiver moves it to the next phase with no JS running; every
+ * boundary, pause, resume and stop lands in CycleEventLog and each timer has
+ * its own notification (CycleNotifications). Timers are kept in a crash-safe
+ * snapshot and phases missed while the device was off are caught up on the
+ * next start. Receivers hand their work to handleAsync(), off the main thread.
+ */
+final class CycleScheduler {
+
+    private static final String TAG = "CycleScheduler";
+    private static final String SNAPSHOT_FILE = "cycle_timers.bin";
+
+    // Exact alarms may be delivered slightly early
+    private static final long BOUNDARY_TOLERANCE_MS = 1000;
+
+    // Receiver work, in arrival order
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private static CycleScheduler instance;
+
+    private final Context context;
+    private final AtomicFile snapshotFile;
+    // Unfinished timers, in start order
+    private final Map<Integer, CycleTimer> timers = new LinkedHashMap<>();
+    private int nextId = 1;
+    // Timers whose notification was posted since they were loaded
+    private final Set<Integer> notified = new HashSet<>();
+
+    private CycleScheduler(Context context) {
+        this.context = context;
+        snapshotFile = new AtomicFile(new File(context.getFilesDir(), SNAPSHOT_FILE));
+        readSnapshot();
+        // Phases may have ended while the process was dead, and alarms do not survive a reboot
+        catchUp();
+    }
+
+    static synchronized CycleScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new CycleScheduler(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Run receiver work off the main thread, keeping the broadcast alive until it is done
+     */
+    static void handleAsync(BroadcastReceiver receiver, final Runnable work) {
+        final BroadcastReceiver.PendingResult result = receiver.goAsync();
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    work.run();
+                } finally {
+                    result.finish();
+                }
+            }
+        });
+    }
+
+    synchronized List<CycleTimer> getTimers() {
+        return new ArrayList<>(timers.values());
+    }
+
+    synchronized CycleTimer start(String label, List<CycleTimer.Phase> phases) {
+        CycleTimer timer = CycleTimer.start(nextId++, label, phases, SystemClock.elapsedRealtime());
+        return apply(timer, new ArrayList<CycleTimer.Boundary>(), false);
+    }
+
+    synchronized CycleTimer pause(int id) {
+        CycleTimer timer = timers.get(id);
+        if (timer == null) {
+            return null;
+        }
+        return applyStatus(timer, timer.pause(SystemClock.elapsedRealtime()), CycleEventLog.PAUSED);
+    }
+
+    synchronized CycleTimer resume(int id) {
+        CycleTimer timer = timers.get(id);
+        if (timer == null) {
+            return null;
+        }
+        return applyStatus(timer, timer.resume(SystemClock.elapsedRealtime()), CycleEventLog.RESUMED);
+    }
+
+    /**
+     * End the current phase now and start the next one
+     */
+    synchronized CycleTimer skip(int id) {
+        CycleTimer timer = timers.get(id);
+        if (timer == null) {
+            return null;
+        }
+        List<CycleTimer.Boundary> boundaries = new ArrayList<>();
+        return apply(timer.skip(SystemClock.elapsedRealtime(), boundaries), boundaries, false);
+    }
+
+    /**
+     * Drop a timer; logs STOPPED rather than a boundary
+     */
+    synchronized boolean stop(int id) {
+        CycleTimer timer = timers.remove(id);
+        if (timer == null) {
+            return false;
+        }
+        notified.remove(id);
+        writeSnapshot();
+        CycleEventLog.getInstance(context).appendStatus(timer, CycleEventLog.STOPPED, System.currentTimeMillis());
+        cancelAlarm(id);
+        CycleNotifications.cancel(context, id);
+        return true;
+    }
+
+    /**
+     * A phase alarm fired: move the timer past every phase that has ended
+     */
+    synchronized void onAlarm(int id) {
+        CycleTimer timer = timers.get(id);
+        if (timer == null || timer.status != CycleTimer.STATUS_RUNNING) {
+            // Paused or stopped after the alarm was set
+            return;
+        }
+        List<CycleTimer.Boundary> boundaries = new ArrayList<>();
+        CycleTimer next = timer.advance(SystemClock.elapsedRealtime() + BOUNDARY_TOLERANCE_MS, boundaries);
+        if (boundaries.isEmpty()) {
+            // Stale alarm (e.g. resumed while it was in flight) - re-arm for the real end
+            syncAlarm(timer);
+            return;
+        }
+        apply(next, boundaries, true);
+    }
+
+    /**
+     * Post every timer's notification again, after a reboot or app update cleared
+     * them. Timers that caught up on missed phases when loaded already have theirs.
+     */
+    synchronized void restoreNotifications() {
+        long now = SystemClock.elapsedRealtime();
+        for (CycleTimer timer : timers.values()) {
+            if (notified.add(timer.id)) {
+                CycleNotifications.post(context, timer, false, now);
+            }
+        }
+    }
+
+    private void catchUp() {
+        long now = SystemClock.elapsedRealtime();
+        for (CycleTimer timer : new ArrayList<>(timers.values())) {
+            List<CycleTimer.Boundary> boundaries = new ArrayList<>();
+            CycleTimer next = timer.advance(now, boundaries);
+            if (boundaries.isEmpty()) {
+                syncAlarm(timer);
+            } else {
+                apply(next, boundaries, true);
+            }
+        }
+    }
+
+    /**
+     * Store the new timer state, log its boundaries, and bring its alarm and
+     * notification in line. alert makes the notification sound, for boundaries
+     * the user did not cause.
+     */
+    private CycleTimer apply(CycleTimer timer, List<CycleTimer.Boundary> boundaries, boolean alert) {
+        long nowElapsed = SystemClock.elapsedRealtime();
+        if (timer.isFinished()) {
+            timers.remove(timer.id);
+            notified.remove(timer.id);
+        } else {
+            timers.put(timer.id, timer);
+            notified.add(timer.id);
+        }
+        writeSnapshot();
+        CycleEventLog.getInstance(context).append(timer, boundaries, nowElapsed, System.currentTimeMillis());
+        syncAlarm(timer);
+        CycleNotifications.post(context, timer, alert && !boundaries.isEmpty(), nowElapsed);
+        return timer;
+    }
+
+    /**
+     * Apply a pause or resume, logging it when it changed anything
+     */
+    private CycleTimer applyStatus(CycleTimer before, CycleTimer after, String event) {
+        if (after == before) {
+            return before;
+        }
+        apply(after, new ArrayList<CycleTimer.Boundary>(), false);
+        CycleEventLog.getInstance(context).appendStatus(after, event, System.currentTimeMillis());
+        return after;
+    }
+
+    // --- Alarms ---
+
+    private void syncAlarm(CycleTimer timer) {
+        if (timer.status != CycleTimer.STATUS_RUNNING) {
+            cancelAlarm(timer.id);
+            return;
+        }
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) {
+            TimerAlarmScheduler.setExact(alarmManager, timer.phaseEndElapsedMillis, createAlarmIntent(timer.id));
+        }
+    }
+
+    private void cancelAlarm(int id) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager != null) {
+            alarmManager.cancel(createAlarmIntent(id));
+        }
+    }
+
+    private PendingIntent createAlarmIntent(int id) {
+        Intent intent = new Intent(context, TimerAlarmReceiver.class);
+        intent.setAction(TimerAlarmReceiver.ACTION_CYCLE_BOUNDARY);
+        intent.putExtra(TimerAlarmReceiver.EXTRA_CYCLE_ID, id);
+        // The request code keeps one alarm per timer
+        return PendingIntent.getBroadcast(
+            context,
+            id,
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+
+    // --- Snapshot ---
+
+    private void writeSnapshot() {
+        // Kept even when empty, so ids are never reused while old events may wait in the log
+        AnchorTrace.count("disk.cycleTimers");
+        FileOutputStream stream = null;
+        try {
+            stream = snapshotFile.startWrite();
+            DataOutputStream out = new DataOutputStream(stream);
+            CycleTimer.writeSnapshot(out, nextId, new ArrayList<>(timers.values()),
+                    SystemClock.elapsedRealtime(), System.currentTimeMillis(), TimerEngine.bootCount(context));
+            out.flush();
+            snapshotFile.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write cycle timers", e);
+            if (stream != null) {
+                snapshotFile.failWrite(stream);
+            }
+        }
+    }
+
+    private void readSnapshot() {
+        List<CycleTimer> read = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(snapshotFile.openRead())) {
+            nextId = Math.max(1, CycleTimer.readSnapshot(in, SystemClock.elapsedRealtime(),
+                    System.currentTimeMillis(), TimerEngine.bootCount(context), read));
+        } catch (FileNotFoundException e) {
+            return;
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable cycle timers", e);
+            return;
+        }
+        for (CycleTimer timer : read) {
+            timers.put(timer.id, timer);
+        }
+    }
+}
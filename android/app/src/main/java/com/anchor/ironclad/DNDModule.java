@@ -1,21 +1,30 @@
 package com.anchor.ironclad;
 
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
-import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 import android.app.NotificationManager;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.IntentFilter;
 import android.os.Build;
 import android.content.Intent;
 import android.provider.Settings;
+import androidx.core.content.ContextCompat;
 
 /**
  * React Native module for Do Not Disturb control
+ * Listens for interruption filter and policy access changes while JS is attached
+ * and emits AnchorDNDChanged with the new state, so JS never has to poll.
+ * startDNDSession/endDNDSession run a DndSession, which restores the user's
+ * filter natively when the timer ends.
  */
-public class DNDModule extends ReactContextBaseJavaModule {
-    private static final String MODULE_NAME = "DNDModule";
+public class DNDModule extends NativeDNDModuleSpec {
+    private static final String EVENT_CHANGED = "AnchorDNDChanged";
     private NotificationManager notificationManager;
+    private BroadcastReceiver changeReceiver;
 
     DNDModule(ReactApplicationContext context) {
         super(context);
@@ -23,33 +32,127 @@ public class DNDModule extends ReactContextBaseJavaModule {
     }
 
     @Override
-    public String getName() {
-        return MODULE_NAME;
+    public void initialize() {
+        super.initialize();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return;
+        }
+        // Both are only delivered to registered receivers
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(NotificationManager.ACTION_INTERRUPTION_FILTER_CHANGED);
+        filter.addAction(NotificationManager.ACTION_NOTIFICATION_POLICY_ACCESS_GRANTED_CHANGED);
+        changeReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                WritableMap state = readState();
+                AnchorSnapshot.setDndActive(context, state.getBoolean("enabled"));
+                ReactApplicationContext reactContext = getReactApplicationContext();
+                if (reactContext.hasActiveReactInstance()) {
+                    reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                        .emit(EVENT_CHANGED, state);
+                }
+            }
+        };
+        ContextCompat.registerReceiver(getReactApplicationContext(), changeReceiver, filter,
+            ContextCompat.RECEIVER_NOT_EXPORTED);
     }
 
-    @ReactMethod
-    public void checkDNDPermission(Promise promise) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            boolean hasPermission = notificationManager.isNotificationPolicyAccessGranted();
-            promise.resolve(hasPermission);
-        } else {
-            promise.resolve(true); // No permission needed on older Android
+    /**
+     * { permission, enabled, filter, session } - filter is the raw interruption filter
+     */
+    private WritableMap readState() {
+        WritableMap state = Arguments.createMap();
+        boolean supported = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M;
+        int filter = supported
+            ? notificationManager.getCurrentInterruptionFilter()
+            : NotificationManager.INTERRUPTION_FILTER_ALL;
+        state.putBoolean("permission", !supported || notificationManager.isNotificationPolicyAccessGranted());
+        state.putBoolean("enabled", filter != NotificationManager.INTERRUPTION_FILTER_ALL);
+        state.putInt("filter", filter);
+        state.putBoolean("session", DndSession.isActive(getReactApplicationContext()));
+        return state;
+    }
+
+    /**
+     * Current state, for JS to start from before change events arrive (synchronous)
+     */
+    @Override
+    public WritableMap getDNDState() {
+        AnchorTrace.Span trace = AnchorTrace.begin("DNDModule.getDNDState");
+        try {
+            return readState();
+        } finally {
+            AnchorTrace.end(trace);
         }
     }
 
-    @ReactMethod
+    /**
+     * Priority mode until endDNDSession or the end of the timer, then the user's previous filter.
+     * Without a timer starting within DndSession.TIMER_GRACE_MS the session ends on its own.
+     */
+    @Override
+    public void startDNDSession(Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("DNDModule.startDNDSession");
+        try {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+                promise.resolve(false);
+            } else if (DndSession.begin(getReactApplicationContext())) {
+                promise.resolve(true);
+            } else {
+                promise.reject("NO_PERMISSION", "DND permission not granted");
+            }
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
+    public void endDNDSession(Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("DNDModule.endDNDSession");
+        try {
+            DndSession.end(getReactApplicationContext());
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
+    public boolean checkDNDPermission() {
+        AnchorTrace.Span trace = AnchorTrace.begin("DNDModule.checkDNDPermission");
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                return notificationManager.isNotificationPolicyAccessGranted();
+            }
+            return true; // No permission needed on older Android
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
     public void requestDNDPermission() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            if (!notificationManager.isNotificationPolicyAccessGranted()) {
-                Intent intent = new Intent(Settings.ACTION_NOTIFICATION_POLICY_ACCESS_SETTINGS);
-                intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-                getReactApplicationContext().startActivity(intent);
+        AnchorTrace.Span trace = AnchorTrace.begin("DNDModule.requestDNDPermission");
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                if (!notificationManager.isNotificationPolicyAccessGranted()) {
+                    Intent intent = new Intent(Settings.ACTION_NOTIFICATION_POLICY_ACCESS_SETTINGS);
+                    intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+                    getReactApplicationContext().startActivity(intent);
+                }
             }
+        } finally {
+            AnchorTrace.end(trace);
         }
     }
 
-    @ReactMethod
+    @Override
     public void enableDND(Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("DNDModule.enableDND");
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
                 if (notificationManager.isNotificationPolicyAccessGranted()) {
@@ -57,6 +160,7 @@ public class DNDModule extends ReactContextBaseJavaModule {
                     notificationManager.setInterruptionFilter(
                         NotificationManager.INTERRUPTION_FILTER_PRIORITY
                     );
+                    AnchorSnapshot.setDndActive(getReactApplicationContext(), true);
                     promise.resolve(true);
                 } else {
                     promise.reject("NO_PERMISSION", "DND permission not granted");
@@ -66,18 +170,26 @@ public class DNDModule extends ReactContextBaseJavaModule {
             }
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
+        } finally {
+            AnchorTrace.end(trace);
         }
     }
 
-    @ReactMethod
+    @Override
     public void disableDND(Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("DNDModule.disableDND");
         try {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                if (notificationManager.isNotificationPolicyAccessGranted()) {
+                if (DndSession.isActive(getReactApplicationContext())) {
+                    // Give back the filter the session replaced
+                    DndSession.end(getReactApplicationContext());
+                    promise.resolve(true);
+                } else if (notificationManager.isNotificationPolicyAccessGranted()) {
                     // Restore normal interruption filter
                     notificationManager.setInterruptionFilter(
                         NotificationManager.INTERRUPTION_FILTER_ALL
                     );
+                    AnchorSnapshot.setDndActive(getReactApplicationContext(), false);
                     promise.resolve(true);
                 } else {
                     promise.reject("NO_PERMISSION", "DND permission not granted");
@@ -87,16 +199,40 @@ public class DNDModule extends ReactContextBaseJavaModule {
             }
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
+    public boolean isDNDEnabled() {
+        AnchorTrace.Span trace = AnchorTrace.begin("DNDModule.isDNDEnabled");
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                int filter = notificationManager.getCurrentInterruptionFilter();
+                return filter != NotificationManager.INTERRUPTION_FILTER_ALL;
+            }
+            return false;
+        } finally {
+            AnchorTrace.end(trace);
         }
     }
 
-    @ReactMethod
-    public void isDNDEnabled(Promise promise) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            int filter = notificationManager.getCurrentInterruptionFilter();
-            promise.resolve(filter != NotificationManager.INTERRUPTION_FILTER_ALL);
-        } else {
-            promise.resolve(false);
+    // Required by NativeEventEmitter
+    @Override
+    public void addListener(String eventName) {
+    }
+
+    @Override
+    public void removeListeners(double count) {
+    }
+
+    @Override
+    public void invalidate() {
+        if (changeReceiver != null) {
+            getReactApplicationContext().unregisterReceiver(changeReceiver);
+            changeReceiver = null;
         }
+        super.invalidate();
     }
 }
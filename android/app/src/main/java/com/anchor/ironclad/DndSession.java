@@ -0,0 +1,111 @@
+package com.anchor.ironclad;
+
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Do Not Disturb for the length of one focus session
+ * begin() records the user's interruption filter and switches to priority mode;
+ * end() puts the recorded filter back. The session is kept in SharedPreferences
+ * and TimerEngine syncs it on every state change, so it also ends when the timer
+ * completes or is cancelled with no JS runtime alive, or when the engine is
+ * restored after the process was killed. A session begun while no timer is
+ * running gets TIMER_GRACE_MS for one to start, then ends like any other.
+ */
+final class DndSession {
+
+    private static final String PREFS = "AnchorDndSession";
+    private static final String KEY_ACTIVE = "active";
+    private static final String KEY_PRIOR_FILTER = "priorFilter";
+    private static final int SESSION_FILTER = NotificationManager.INTERRUPTION_FILTER_PRIORITY;
+    // JS starts the timer alongside the session, through the coalesced surface frame
+    static final long TIMER_GRACE_MS = 5_000;
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    private DndSession() {
+    }
+
+    static boolean isActive(Context context) {
+        return prefs(context).getBoolean(KEY_ACTIVE, false);
+    }
+
+    /**
+     * Start a session, unless one is running. Returns false without policy access.
+     */
+    static synchronized boolean begin(Context context) {
+        NotificationManager manager = manager(context);
+        if (manager == null) {
+            return false;
+        }
+        if (!isActive(context)) {
+            prefs(context).edit()
+                .putBoolean(KEY_ACTIVE, true)
+                .putInt(KEY_PRIOR_FILTER, manager.getCurrentInterruptionFilter())
+                .apply();
+            AnchorTrace.count("disk.dndSession");
+        }
+        manager.setInterruptionFilter(SESSION_FILTER);
+        AnchorSnapshot.setDndActive(context, true);
+        if (!TimerEngine.getInstance(context).getState().isActive()) {
+            // No engine transition may ever come to end it, so check back once
+            final Context appContext = context.getApplicationContext();
+            handler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    sync(appContext, TimerEngine.getInstance(appContext).getState());
+                }
+            }, TIMER_GRACE_MS);
+        }
+        return true;
+    }
+
+    /**
+     * End the running session, restoring the filter the user had before it.
+     * If the user changed the filter themselves since, theirs is kept.
+     */
+    static synchronized void end(Context context) {
+        SharedPreferences prefs = prefs(context);
+        if (!prefs.getBoolean(KEY_ACTIVE, false)) {
+            return;
+        }
+        int prior = prefs.getInt(KEY_PRIOR_FILTER, NotificationManager.INTERRUPTION_FILTER_ALL);
+        prefs.edit().clear().apply();
+        AnchorTrace.count("disk.dndSession");
+
+        NotificationManager manager = manager(context);
+        if (manager == null || manager.getCurrentInterruptionFilter() != SESSION_FILTER) {
+            return;
+        }
+        manager.setInterruptionFilter(prior);
+        AnchorSnapshot.setDndActive(context, prior != NotificationManager.INTERRUPTION_FILTER_ALL);
+    }
+
+    /**
+     * Called by TimerEngine with every new state: a session never outlives its timer
+     */
+    static void sync(Context context, TimerEngine.State state) {
+        if (!state.isActive() && isActive(context)) {
+            end(context);
+        }
+    }
+
+    /**
+     * NotificationManager, or null below M or without policy access
+     */
+    private static NotificationManager manager(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return null;
+        }
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        return manager != null && manager.isNotificationPolicyAccessGranted() ? manager : null;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,378 @@
+package com.anchor.ironclad;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-day and per-category rollups of the task history
+ * One row per (category, local day); category "" covers every task. Rows are
+ * updated as tasks are added, and a day is recounted from the history tables
+ * when one of its tasks is replaced or removed (min/max cannot be subtracted).
+ * A range query reads one row per day in the range, however many tasks
+ * the history holds.
+ *
+ * Days are yyyyMMdd keys in the device time zone at the time of writing.
+ */
+final class HistoryRollups {
+
+    static final String TABLE = "history_daily";
+    /** category_id of the rollup over all tasks */
+    static final String ALL = "";
+
+    /**
+     * Aggregates for one day, or for a range of days. Min/max are only
+     * meaningful when journaled > 0.
+     */
+    static final class Rollup {
+        int day;
+        long count;
+        long journaled;
+        long energySum;
+        int energyMin;
+        int energyMax;
+        long focusSum;
+        int focusMin;
+        int focusMax;
+        long timeOnTaskMs;
+
+        void add(Entry entry) {
+            count++;
+            timeOnTaskMs += entry.timeOnTaskMs;
+            if (!entry.journaled) {
+                return;
+            }
+            energyMin = journaled == 0 ? entry.energy : Math.min(energyMin, entry.energy);
+            energyMax = journaled == 0 ? entry.energy : Math.max(energyMax, entry.energy);
+            focusMin = journaled == 0 ? entry.focus : Math.min(focusMin, entry.focus);
+            focusMax = journaled == 0 ? entry.focus : Math.max(focusMax, entry.focus);
+            energySum += entry.energy;
+            focusSum += entry.focus;
+            journaled++;
+        }
+    }
+
+    /**
+     * The fields of one history task that the rollups need
+     */
+    static final class Entry {
+        final long completedAt;
+        final boolean journaled;
+        final int energy;
+        final int focus;
+        final long timeOnTaskMs;
+        final List<String> categories;
+
+        Entry(long completedAt, boolean journaled, int energy, int focus, long timeOnTaskMs, List<String> categories) {
+            this.completedAt = completedAt;
+            this.journaled = journaled;
+            this.energy = energy;
+            this.focus = focus;
+            this.timeOnTaskMs = timeOnTaskMs;
+            this.categories = categories;
+        }
+    }
+
+    private HistoryRollups() {
+    }
+
+    static void createTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+            + "category_id TEXT NOT NULL, "
+            + "day INTEGER NOT NULL, "
+            + "task_count INTEGER NOT NULL, "
+            + "journaled INTEGER NOT NULL, "
+            + "energy_sum INTEGER NOT NULL, "
+            + "energy_min INTEGER, "
+            + "energy_max INTEGER, "
+            + "focus_sum INTEGER NOT NULL, "
+            + "focus_min INTEGER, "
+            + "focus_max INTEGER, "
+            + "time_on_task INTEGER NOT NULL, "
+            + "PRIMARY KEY (category_id, day)) WITHOUT ROWID");
+    }
+
+    /**
+     * Fold one newly stored task into its day's rows
+     */
+    static void add(SQLiteDatabase db, Entry entry) {
+        int day = dayKey(entry.completedAt);
+        Rollup delta = new Rollup();
+        delta.add(entry);
+
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE + " SET "
+            + "task_count = task_count + ?1, journaled = journaled + ?2, "
+            + "energy_sum = energy_sum + ?3, "
+            + "energy_min = MIN(COALESCE(energy_min, ?4), COALESCE(?4, energy_min)), "
+            + "energy_max = MAX(COALESCE(energy_max, ?5), COALESCE(?5, energy_max)), "
+            + "focus_sum = focus_sum + ?6, "
+            + "focus_min = MIN(COALESCE(focus_min, ?7), COALESCE(?7, focus_min)), "
+            + "focus_max = MAX(COALESCE(focus_max, ?8), COALESCE(?8, focus_max)), "
+            + "time_on_task = time_on_task + ?9 "
+            + "WHERE category_id = ?10 AND day = ?11");
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE
+            + " (task_count, journaled, energy_sum, energy_min, energy_max, focus_sum, focus_min, focus_max,"
+            + " time_on_task, category_id, day) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        try {
+            write(update, insert, ALL, day, delta);
+            for (String category : entry.categories) {
+                write(update, insert, category, day, delta);
+            }
+        } finally {
+            update.close();
+            insert.close();
+        }
+    }
+
+    /**
+     * Recount the given days from the history tables, e.g. after a task was
+     * journaled, moved or removed
+     */
+    static void recount(SQLiteDatabase db, Collection<Integer> days) {
+        for (int day : days) {
+            db.delete(TABLE, "day = ?", new String[] { Integer.toString(day) });
+            long start = dayStart(day);
+            writeAll(db, readEntries(db, start, nextDayStart(day)));
+        }
+    }
+
+    /**
+     * Drop every rollup and rebuild them from the history tables
+     */
+    static void rebuild(SQLiteDatabase db) {
+        db.delete(TABLE, null, null);
+        writeAll(db, readEntries(db, 0, Long.MAX_VALUE));
+    }
+
+    static void clear(SQLiteDatabase db) {
+        db.delete(TABLE, null, null);
+    }
+
+    /**
+     * Aggregates over the days covering [from, to); 0 leaves a bound open
+     */
+    static Rollup query(SQLiteDatabase db, String category, long from, long to) {
+        StringBuilder sql = new StringBuilder("SELECT TOTAL(task_count), TOTAL(journaled), TOTAL(energy_sum), "
+            + "MIN(energy_min), MAX(energy_max), TOTAL(focus_sum), MIN(focus_min), MAX(focus_max), "
+            + "TOTAL(time_on_task) FROM " + TABLE + " WHERE category_id = ?");
+        List<String> args = new ArrayList<>();
+        args.add(category != null ? category : ALL);
+        appendDayBounds(sql, args, from, to);
+
+        Rollup rollup = new Rollup();
+        Cursor rows = db.rawQuery(sql.toString(), args.toArray(new String[0]));
+        try {
+            if (rows.moveToFirst()) {
+                rollup.count = rows.getLong(0);
+                rollup.journaled = rows.getLong(1);
+                rollup.energySum = rows.getLong(2);
+                rollup.energyMin = rows.getInt(3);
+                rollup.energyMax = rows.getInt(4);
+                rollup.focusSum = rows.getLong(5);
+                rollup.focusMin = rows.getInt(6);
+                rollup.focusMax = rows.getInt(7);
+                rollup.timeOnTaskMs = rows.getLong(8);
+            }
+        } finally {
+            rows.close();
+        }
+        return rollup;
+    }
+
+    /**
+     * One rollup per day with completed tasks in [from, to), oldest first
+     */
+    static List<Rollup> daily(SQLiteDatabase db, String category, long from, long to) {
+        StringBuilder sql = new StringBuilder("SELECT day, task_count, journaled, energy_sum, energy_min, "
+            + "energy_max, focus_sum, focus_min, focus_max, time_on_task FROM " + TABLE + " WHERE category_id = ?");
+        List<String> args = new ArrayList<>();
+        args.add(category != null ? category : ALL);
+        appendDayBounds(sql, args, from, to);
+        sql.append(" ORDER BY day");
+
+        List<Rollup> days = new ArrayList<>();
+        Cursor rows = db.rawQuery(sql.toString(), args.toArray(new String[0]));
+        try {
+            while (rows.moveToNext()) {
+                Rollup rollup = new Rollup();
+                rollup.day = rows.getInt(0);
+                rollup.count = rows.getLong(1);
+                rollup.journaled = rows.getLong(2);
+                rollup.energySum = rows.getLong(3);
+                rollup.energyMin = rows.getInt(4);
+                rollup.energyMax = rows.getInt(5);
+                rollup.focusSum = rows.getLong(6);
+                rollup.focusMin = rows.getInt(7);
+                rollup.focusMax = rows.getInt(8);
+                rollup.timeOnTaskMs = rows.getLong(9);
+                days.add(rollup);
+            }
+        } finally {
+            rows.close();
+        }
+        return days;
+    }
+
+    /**
+     * Consecutive days with a completed task, ending today; 0 if nothing was done today
+     */
+    static int streak(SQLiteDatabase db, long now) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        int streak = 0;
+        Cursor rows = db.rawQuery("SELECT day FROM " + TABLE + " WHERE category_id = ? AND day <= ? ORDER BY day DESC",
+            new String[] { ALL, Integer.toString(dayKey(calendar)) });
+        try {
+            while (rows.moveToNext() && rows.getInt(0) == dayKey(calendar)) {
+                streak++;
+                calendar.add(Calendar.DAY_OF_MONTH, -1);
+            }
+        } finally {
+            rows.close();
+        }
+        return streak;
+    }
+
+    static int dayKey(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        return dayKey(calendar);
+    }
+
+    private static int dayKey(Calendar calendar) {
+        return calendar.get(Calendar.YEAR) * 10000
+            + (calendar.get(Calendar.MONTH) + 1) * 100
+            + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    private static long dayStart(int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(day / 10000, (day / 100) % 100 - 1, day % 100);
+        return calendar.getTimeInMillis();
+    }
+
+    private static long nextDayStart(int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(dayStart(day));
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    private static void appendDayBounds(StringBuilder sql, List<String> args, long from, long to) {
+        if (from > 0) {
+            sql.append(" AND day >= ?");
+            args.add(Integer.toString(dayKey(from)));
+        }
+        if (to > 0) {
+            sql.append(" AND day <= ?");
+            args.add(Integer.toString(dayKey(to - 1)));
+        }
+    }
+
+    private static void write(SQLiteStatement update, SQLiteStatement insert, String category, int day, Rollup delta) {
+        bindRollup(update, delta);
+        update.bindString(10, category);
+        update.bindLong(11, day);
+        if (update.executeUpdateDelete() > 0) {
+            return;
+        }
+        bindRollup(insert, delta);
+        insert.bindString(10, category);
+        insert.bindLong(11, day);
+        insert.executeInsert();
+    }
+
+    private static void bindRollup(SQLiteStatement statement, Rollup rollup) {
+        statement.clearBindings();
+        statement.bindLong(1, rollup.count);
+        statement.bindLong(2, rollup.journaled);
+        statement.bindLong(3, rollup.energySum);
+        statement.bindLong(6, rollup.focusSum);
+        if (rollup.journaled > 0) {
+            statement.bindLong(4, rollup.energyMin);
+            statement.bindLong(5, rollup.energyMax);
+            statement.bindLong(7, rollup.focusMin);
+            statement.bindLong(8, rollup.focusMax);
+        }
+        statement.bindLong(9, rollup.timeOnTaskMs);
+    }
+
+    private static void writeAll(SQLiteDatabase db, List<Entry> entries) {
+        Map<String, Rollup> rollups = new HashMap<>();
+        for (Entry entry : entries) {
+            int day = dayKey(entry.completedAt);
+            accumulate(rollups, ALL, day, entry);
+            for (String category : entry.categories) {
+                accumulate(rollups, category, day, entry);
+            }
+        }
+
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE
+            + " (task_count, journaled, energy_sum, energy_min, energy_max, focus_sum, focus_min, focus_max,"
+            + " time_on_task, category_id, day) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        try {
+            for (Map.Entry<String, Rollup> item : rollups.entrySet()) {
+                String key = item.getKey();
+                Rollup rollup = item.getValue();
+                bindRollup(insert, rollup);
+                insert.bindString(10, key.substring(key.indexOf(':') + 1));
+                insert.bindLong(11, rollup.day);
+                insert.executeInsert();
+            }
+        } finally {
+            insert.close();
+        }
+    }
+
+    private static void accumulate(Map<String, Rollup> rollups, String category, int day, Entry entry) {
+        String key = day + ":" + category;
+        Rollup rollup = rollups.get(key);
+        if (rollup == null) {
+            rollup = new Rollup();
+            rollup.day = day;
+            rollups.put(key, rollup);
+        }
+        rollup.add(entry);
+    }
+
+    /**
+     * Tasks completed in [from, to) with their categories, read from the history tables
+     */
+    private static List<Entry> readEntries(SQLiteDatabase db, long from, long to) {
+        List<Entry> entries = new ArrayList<>();
+        Cursor rows = db.rawQuery("SELECT h.completed_at, h.energy, h.focus, h.time_on_task, "
+            + "(SELECT GROUP_CONCAT(c.category_id, char(31)) FROM " + HistoryStore.CATEGORY_TABLE + " c"
+            + " WHERE c.task_row = h._id) FROM " + HistoryStore.TABLE + " h"
+            + " WHERE h.completed_at >= ? AND h.completed_at < ?",
+            new String[] { Long.toString(from), Long.toString(to) });
+        try {
+            while (rows.moveToNext()) {
+                List<String> categories = new ArrayList<>();
+                if (!rows.isNull(4)) {
+                    for (String category : rows.getString(4).split("\u001f")) {
+                        categories.add(category);
+                    }
+                }
+                entries.add(new Entry(
+                    rows.getLong(0),
+                    !rows.isNull(1),
+                    rows.getInt(1),
+                    rows.getInt(2),
+                    rows.getLong(3),
+                    categories
+                ));
+            }
+        } finally {
+            rows.close();
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,415 @@
+package com.anchor.ironclad;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-disk store of completed tasks and their journal entries
+ * Each task is kept as its JSON payload plus the few columns queries need.
+ * Tasks are appended, so rows go in roughly completedAt order and the
+ * (completed_at, _id) index stays append-only; categories get their own
+ * (category, completed_at) index table.
+ *
+ * Pages use keyset cursors ("completedAt:rowId" of the last row), so a page
+ * costs the same however deep into history it is. Daily rollups are kept
+ * up to date in the same transactions (see HistoryRollups).
+ */
+final class HistoryStore {
+
+    static final String TABLE = "history_tasks";
+    static final String CATEGORY_TABLE = "history_categories";
+
+    /**
+     * Which tasks to return. Bounds are completedAt millis, from inclusive, to exclusive;
+     * 0 means unbounded.
+     */
+    static final class Filter {
+        final long from;
+        final long to;
+        final String category;
+        final String text;
+
+        Filter(long from, long to, String category, String text) {
+            this.from = from;
+            this.to = to;
+            this.category = category;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Task payloads, newest first, and the cursor for the next page (null at the end)
+     */
+    static final class Page {
+        final List<String> payloads;
+        final String nextCursor;
+
+        Page(List<String> payloads, String nextCursor) {
+            this.payloads = payloads;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    private static HistoryStore instance;
+
+    private final AnchorDatabase database;
+
+    private HistoryStore(Context context) {
+        database = AnchorDatabase.getInstance(context);
+    }
+
+    static synchronized HistoryStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new HistoryStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    static void createTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+            + "_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + "task_id TEXT NOT NULL UNIQUE, "
+            + "text TEXT NOT NULL, "
+            + "completed_at INTEGER NOT NULL, "
+            + "energy INTEGER, "
+            + "focus INTEGER, "
+            + "journal_note TEXT, "
+            + "payload TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX history_completed ON " + TABLE + " (completed_at DESC, _id DESC)");
+        db.execSQL("CREATE TABLE " + CATEGORY_TABLE + " ("
+            + "category_id TEXT NOT NULL, "
+            + "completed_at INTEGER NOT NULL, "
+            + "task_row INTEGER NOT NULL, "
+            + "PRIMARY KEY (category_id, completed_at, task_row)) WITHOUT ROWID");
+        db.execSQL("CREATE INDEX history_categories_task ON " + CATEGORY_TABLE + " (task_row)");
+    }
+
+    /**
+     * Version 4: time on task per row, and the daily rollups built from existing history
+     */
+    static void addRollups(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN time_on_task INTEGER NOT NULL DEFAULT 0");
+        HistoryRollups.createTables(db);
+        HistoryRollups.rebuild(db);
+    }
+
+    /**
+     * Add tasks, or replace them if a task with the same id is already stored
+     * (e.g. when a journal entry is added after completion)
+     *
+     * @return number of tasks written; payloads that are not valid tasks are skipped
+     */
+    int put(List<String> payloads) throws JSONException {
+        SQLiteDatabase db = database.getWritableDatabase();
+        int written = 0;
+        // Days whose rollups must be recounted because a stored task changed
+        Set<Integer> changedDays = new HashSet<>();
+        db.beginTransaction();
+        try {
+            SQLiteStatement update = db.compileStatement("UPDATE " + TABLE
+                + " SET text = ?, completed_at = ?, energy = ?, focus = ?, journal_note = ?, time_on_task = ?,"
+                + " payload = ? WHERE task_id = ?");
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE
+                + " (text, completed_at, energy, focus, journal_note, time_on_task, payload, task_id)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+            SQLiteStatement insertCategory = db.compileStatement("INSERT OR IGNORE INTO " + CATEGORY_TABLE
+                + " (category_id, completed_at, task_row) VALUES (?, ?, ?)");
+
+            for (String payload : payloads) {
+                JSONObject task = new JSONObject(payload);
+                String taskId = task.optString("id", null);
+                if (taskId == null) {
+                    continue;
+                }
+                long completedAt = task.optLong("completedAt", task.optLong("createdAt", 0));
+
+                long[] existing = findRow(db, taskId);
+                long row;
+                if (existing != null) {
+                    row = existing[0];
+                    bindTask(update, task, completedAt, payload);
+                    update.executeUpdateDelete();
+                    db.delete(CATEGORY_TABLE, "task_row = ?", new String[] { Long.toString(row) });
+                    changedDays.add(HistoryRollups.dayKey(existing[1]));
+                    changedDays.add(HistoryRollups.dayKey(completedAt));
+                } else {
+                    bindTask(insert, task, completedAt, payload);
+                    row = insert.executeInsert();
+                }
+
+                // Duplicate ids would count a task twice in a category's rollup
+                Set<String> categoryIds = new LinkedHashSet<>();
+                JSONArray categories = task.optJSONArray("categories");
+                if (categories != null) {
+                    for (int i = 0; i < categories.length(); i++) {
+                        categoryIds.add(categories.getString(i));
+                    }
+                }
+                for (String categoryId : categoryIds) {
+                    insertCategory.bindString(1, categoryId);
+                    insertCategory.bindLong(2, completedAt);
+                    insertCategory.bindLong(3, row);
+                    insertCategory.executeInsert();
+                }
+                if (existing == null) {
+                    HistoryRollups.add(db, toEntry(task, completedAt, new ArrayList<>(categoryIds)));
+                }
+                written++;
+            }
+            update.close();
+            insert.close();
+            insertCategory.close();
+            HistoryRollups.recount(db, changedDays);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return written;
+    }
+
+    void remove(List<String> taskIds) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        Set<Integer> changedDays = new HashSet<>();
+        db.beginTransaction();
+        try {
+            for (String taskId : taskIds) {
+                long[] existing = findRow(db, taskId);
+                if (existing == null) {
+                    continue;
+                }
+                String row = Long.toString(existing[0]);
+                db.delete(CATEGORY_TABLE, "task_row = ?", new String[] { row });
+                db.delete(TABLE, "_id = ?", new String[] { row });
+                changedDays.add(HistoryRollups.dayKey(existing[1]));
+            }
+            HistoryRollups.recount(db, changedDays);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    void clear() {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(CATEGORY_TABLE, null, null);
+            db.delete(TABLE, null, null);
+            HistoryRollups.clear(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    Page query(Filter filter, String cursor, int limit) {
+        StringBuilder sql = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        // Column holding completedAt / row id in the driving table
+        String timeColumn;
+        String rowColumn;
+        if (filter.category != null) {
+            // Walk the (category, completed_at) index and join the payloads
+            sql.append("SELECT h._id, h.completed_at, h.payload FROM ").append(CATEGORY_TABLE)
+                .append(" c JOIN ").append(TABLE).append(" h ON h._id = c.task_row WHERE c.category_id = ?");
+            args.add(filter.category);
+            timeColumn = "c.completed_at";
+            rowColumn = "c.task_row";
+        } else {
+            sql.append("SELECT h._id, h.completed_at, h.payload FROM ").append(TABLE).append(" h WHERE 1");
+            timeColumn = "h.completed_at";
+            rowColumn = "h._id";
+        }
+        appendBounds(sql, args, filter, timeColumn);
+
+        if (cursor != null) {
+            long[] position = parseCursor(cursor);
+            String time = Long.toString(position[0]);
+            String row = Long.toString(position[1]);
+            sql.append(" AND (").append(timeColumn).append(" < ? OR (").append(timeColumn)
+                .append(" = ? AND ").append(rowColumn).append(" < ?))");
+            args.add(time);
+            args.add(time);
+            args.add(row);
+        }
+        sql.append(" ORDER BY ").append(timeColumn).append(" DESC, ").append(rowColumn)
+            .append(" DESC LIMIT ").append(limit + 1);
+
+        List<String> payloads = new ArrayList<>(limit);
+        String nextCursor = null;
+        Cursor rows = database.getReadableDatabase().rawQuery(sql.toString(), args.toArray(new String[0]));
+        try {
+            long lastRow = 0;
+            long lastTime = 0;
+            while (rows.moveToNext()) {
+                if (payloads.size() == limit) {
+                    // One extra row fetched: there is a next page
+                    nextCursor = lastTime + ":" + lastRow;
+                    break;
+                }
+                lastRow = rows.getLong(0);
+                lastTime = rows.getLong(1);
+                payloads.add(rows.getString(2));
+            }
+        } finally {
+            rows.close();
+        }
+        return new Page(payloads, nextCursor);
+    }
+
+    /**
+     * { total, journaled } for the tasks matching the filter
+     */
+    long[] count(Filter filter) {
+        StringBuilder sql = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        String timeColumn;
+        if (filter.category != null) {
+            sql.append("SELECT COUNT(*), COUNT(h.energy) FROM ").append(CATEGORY_TABLE)
+                .append(" c JOIN ").append(TABLE).append(" h ON h._id = c.task_row WHERE c.category_id = ?");
+            args.add(filter.category);
+            timeColumn = "c.completed_at";
+        } else {
+            sql.append("SELECT COUNT(*), COUNT(h.energy) FROM ").append(TABLE).append(" h WHERE 1");
+            timeColumn = "h.completed_at";
+        }
+        appendBounds(sql, args, filter, timeColumn);
+
+        Cursor rows = database.getReadableDatabase().rawQuery(sql.toString(), args.toArray(new String[0]));
+        try {
+            rows.moveToFirst();
+            return new long[] { rows.getLong(0), rows.getLong(1) };
+        } finally {
+            rows.close();
+        }
+    }
+
+    /**
+     * { total, journaled } per category id for the tasks matching the filter,
+     * in one grouped query over the category index. The filter's own category
+     * is ignored; categories without matching tasks are left out.
+     */
+    Map<String, long[]> countByCategory(Filter filter) {
+        StringBuilder sql = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        sql.append("SELECT c.category_id, COUNT(*), COUNT(h.energy) FROM ").append(CATEGORY_TABLE)
+            .append(" c JOIN ").append(TABLE).append(" h ON h._id = c.task_row WHERE 1");
+        appendBounds(sql, args, filter, "c.completed_at");
+        sql.append(" GROUP BY c.category_id");
+
+        Map<String, long[]> counts = new HashMap<>();
+        Cursor rows = database.getReadableDatabase().rawQuery(sql.toString(), args.toArray(new String[0]));
+        try {
+            while (rows.moveToNext()) {
+                counts.put(rows.getString(0), new long[] { rows.getLong(1), rows.getLong(2) });
+            }
+        } finally {
+            rows.close();
+        }
+        return counts;
+    }
+
+    /**
+     * Rollup of the tasks completed on the days covering [from, to), optionally for one category
+     */
+    HistoryRollups.Rollup rollup(String category, long from, long to) {
+        return HistoryRollups.query(database.getReadableDatabase(), category, from, to);
+    }
+
+    List<HistoryRollups.Rollup> daily(String category, long from, long to) {
+        return HistoryRollups.daily(database.getReadableDatabase(), category, from, to);
+    }
+
+    int streak(long now) {
+        return HistoryRollups.streak(database.getReadableDatabase(), now);
+    }
+
+    /**
+     * "completedAt:rowId" as handed out in Page.nextCursor
+     */
+    private static long[] parseCursor(String cursor) {
+        int split = cursor.indexOf(':');
+        if (split > 0) {
+            try {
+                return new long[] {
+                    Long.parseLong(cursor.substring(0, split)),
+                    Long.parseLong(cursor.substring(split + 1))
+                };
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+        }
+        throw new IllegalArgumentException("Invalid history cursor: " + cursor);
+    }
+
+    private static void appendBounds(StringBuilder sql, List<String> args, Filter filter, String timeColumn) {
+        if (filter.from > 0) {
+            sql.append(" AND ").append(timeColumn).append(" >= ?");
+            args.add(Long.toString(filter.from));
+        }
+        if (filter.to > 0) {
+            sql.append(" AND ").append(timeColumn).append(" < ?");
+            args.add(Long.toString(filter.to));
+        }
+        if (filter.text != null && !filter.text.isEmpty()) {
+            String pattern = "%" + filter.text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            sql.append(" AND (h.text LIKE ? ESCAPE '\\' OR h.journal_note LIKE ? ESCAPE '\\')");
+            args.add(pattern);
+            args.add(pattern);
+        }
+    }
+
+    private static void bindTask(SQLiteStatement statement, JSONObject task, long completedAt, String payload) {
+        statement.clearBindings();
+        statement.bindString(1, task.optString("text", ""));
+        statement.bindLong(2, completedAt);
+        JSONObject journal = task.optJSONObject("journal");
+        if (journal != null) {
+            statement.bindLong(3, journal.optInt("energy"));
+            statement.bindLong(4, journal.optInt("focus"));
+            statement.bindString(5, journal.optString("note", ""));
+        }
+        statement.bindLong(6, task.optLong("timeOnTaskMs", 0));
+        statement.bindString(7, payload);
+        statement.bindString(8, task.optString("id"));
+    }
+
+    private static HistoryRollups.Entry toEntry(JSONObject task, long completedAt, List<String> categories) {
+        JSONObject journal = task.optJSONObject("journal");
+        return new HistoryRollups.Entry(
+            completedAt,
+            journal != null,
+            journal != null ? journal.optInt("energy") : 0,
+            journal != null ? journal.optInt("focus") : 0,
+            task.optLong("timeOnTaskMs", 0),
+            categories
+        );
+    }
+
+    /**
+     * { rowId, completedAt } of a stored task, or null
+     */
+    private static long[] findRow(SQLiteDatabase db, String taskId) {
+        Cursor cursor = db.rawQuery("SELECT _id, completed_at FROM " + TABLE + " WHERE task_id = ?",
+            new String[] { taskId });
+        try {
+            return cursor.moveToFirst() ? new long[] { cursor.getLong(0), cursor.getLong(1) } : null;
+        } finally {
+            cursor.close();
+        }
+    }
+}
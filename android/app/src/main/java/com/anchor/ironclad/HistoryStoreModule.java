@@ -0,0 +1,318 @@
+package com.anchor.ironclad;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * React Native module for the native task history store
+ * Tasks cross the bridge as JSON strings; queries return one page at a time.
+ * Work runs on one background thread, in call order.
+ */
+public class HistoryStoreModule extends ReactContextBaseJavaModule {
+    static final String MODULE_NAME = "HistoryStoreModule";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    HistoryStoreModule(ReactApplicationContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    /**
+     * Append or replace completed tasks, each given as JSON.stringify(task)
+     */
+    @ReactMethod
+    public void putTasks(ReadableArray payloads, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("HistoryStoreModule.putTasks");
+        try {
+            final List<String> tasks = toStringList(payloads);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        promise.resolve(getStore().put(tasks));
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @ReactMethod
+    public void removeTasks(ReadableArray taskIds, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("HistoryStoreModule.removeTasks");
+        try {
+            final List<String> ids = toStringList(taskIds);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        getStore().remove(ids);
+                        promise.resolve(ids.size());
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * filter: { from?, to?, category?, text?, cursor?, limit? }
+     * Resolves { items: string[], nextCursor: string | null }, newest first
+     */
+    @ReactMethod
+    public void query(ReadableMap filter, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("HistoryStoreModule.query");
+        try {
+            final HistoryStore.Filter storeFilter = readFilter(filter);
+            final String cursor = filter.hasKey("cursor") && !filter.isNull("cursor") ? filter.getString("cursor") : null;
+            final int limit = filter.hasKey("limit") && !filter.isNull("limit") ? filter.getInt("limit") : DEFAULT_PAGE_SIZE;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        HistoryStore.Page page = getStore().query(storeFilter, cursor, limit);
+                        WritableArray items = Arguments.createArray();
+                        for (String payload : page.payloads) {
+                            items.pushString(payload);
+                        }
+                        WritableMap map = Arguments.createMap();
+                        map.putArray("items", items);
+                        map.putString("nextCursor", page.nextCursor);
+                        promise.resolve(map);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * Resolves { total, journaled } for the tasks matching the filter
+     */
+    @ReactMethod
+    public void count(ReadableMap filter, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("HistoryStoreModule.count");
+        try {
+            final HistoryStore.Filter storeFilter = readFilter(filter);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        long[] counts = getStore().count(storeFilter);
+                        WritableMap map = Arguments.createMap();
+                        map.putDouble("total", counts[0]);
+                        map.putDouble("journaled", counts[1]);
+                        promise.resolve(map);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * Like count() for every category at once: resolves { [categoryId]: { total, journaled } },
+     * leaving out categories with no matching tasks
+     */
+    @ReactMethod
+    public void countByCategory(ReadableMap filter, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("HistoryStoreModule.countByCategory");
+        try {
+            final HistoryStore.Filter storeFilter = readFilter(filter);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        WritableMap result = Arguments.createMap();
+                        for (Map.Entry<String, long[]> entry : getStore().countByCategory(storeFilter).entrySet()) {
+                            WritableMap map = Arguments.createMap();
+                            map.putDouble("total", entry.getValue()[0]);
+                            map.putDouble("journaled", entry.getValue()[1]);
+                            result.putMap(entry.getKey(), map);
+                        }
+                        promise.resolve(result);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * range: { from?, to?, category? } - whole days covering [from, to)
+     * Resolves the rollup of those days: count, journaled, energy and focus sum/min/max, timeOnTaskMs
+     */
+    @ReactMethod
+    public void rollup(ReadableMap range, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("HistoryStoreModule.rollup");
+        try {
+            final HistoryStore.Filter storeFilter = readFilter(range);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        promise.resolve(toMap(getStore().rollup(storeFilter.category, storeFilter.from, storeFilter.to)));
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * Resolves one rollup per day with completed tasks in the range, oldest first;
+     * day is a yyyyMMdd number
+     */
+    @ReactMethod
+    public void daily(ReadableMap range, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("HistoryStoreModule.daily");
+        try {
+            final HistoryStore.Filter storeFilter = readFilter(range);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        WritableArray days = Arguments.createArray();
+                        for (HistoryRollups.Rollup rollup : getStore().daily(storeFilter.category, storeFilter.from, storeFilter.to)) {
+                            WritableMap map = toMap(rollup);
+                            map.putInt("day", rollup.day);
+                            days.pushMap(map);
+                        }
+                        promise.resolve(days);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * Resolves the number of consecutive days, ending today, with a completed task
+     */
+    @ReactMethod
+    public void streak(final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("HistoryStoreModule.streak");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        promise.resolve(getStore().streak(System.currentTimeMillis()));
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @ReactMethod
+    public void clear(final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("HistoryStoreModule.clear");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        getStore().clear();
+                        promise.resolve(true);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        executor.shutdown();
+        super.invalidate();
+    }
+
+    private HistoryStore getStore() {
+        return HistoryStore.getInstance(getReactApplicationContext());
+    }
+
+    private static HistoryStore.Filter readFilter(ReadableMap filter) {
+        return new HistoryStore.Filter(
+            filter.hasKey("from") && !filter.isNull("from") ? (long) filter.getDouble("from") : 0,
+            filter.hasKey("to") && !filter.isNull("to") ? (long) filter.getDouble("to") : 0,
+            filter.hasKey("category") && !filter.isNull("category") ? filter.getString("category") : null,
+            filter.hasKey("text") && !filter.isNull("text") ? filter.getString("text") : null
+        );
+    }
+
+    private static WritableMap toMap(HistoryRollups.Rollup rollup) {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("count", rollup.count);
+        map.putDouble("journaled", rollup.journaled);
+        map.putDouble("energySum", rollup.energySum);
+        map.putDouble("focusSum", rollup.focusSum);
+        map.putDouble("timeOnTaskMs", rollup.timeOnTaskMs);
+        if (rollup.journaled > 0) {
+            map.putInt("energyMin", rollup.energyMin);
+            map.putInt("energyMax", rollup.energyMax);
+            map.putInt("focusMin", rollup.focusMin);
+            map.putInt("focusMax", rollup.focusMax);
+        } else {
+            map.putNull("energyMin");
+            map.putNull("energyMax");
+            map.putNull("focusMin");
+            map.putNull("focusMax");
+        }
+        return map;
+    }
+
+    private static List<String> toStringList(ReadableArray array) {
+        List<String> list = new ArrayList<>(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            list.add(array.getString(i));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,65 @@
+package com.anchor.ironclad;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Map;
+
+/**
+ * React Native module exposing the AnchorTrace metrics, for debug tooling
+ * getSnapshot() is synchronous: { sessionStartedAt, sessionMs,
+ * sections: { name: { count, perSecond, p50Ms, p99Ms, maxMs, totalMs } },
+ * counters: { name: count } }.
+ */
+public class MetricsModule extends ReactContextBaseJavaModule {
+    static final String MODULE_NAME = "MetricsModule";
+
+    MetricsModule(ReactApplicationContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getSnapshot() {
+        long sessionMs = AnchorTrace.sessionMillis();
+        double seconds = Math.max(1, sessionMs) / 1000.0;
+
+        WritableMap sections = Arguments.createMap();
+        for (Map.Entry<String, AnchorTrace.Section> entry : AnchorTrace.sections().entrySet()) {
+            AnchorTrace.Section section = entry.getValue();
+            long count = section.count.get();
+            WritableMap map = Arguments.createMap();
+            map.putDouble("count", count);
+            map.putDouble("perSecond", count / seconds);
+            map.putDouble("p50Ms", section.percentileMillis(0.50));
+            map.putDouble("p99Ms", section.percentileMillis(0.99));
+            map.putDouble("maxMs", section.maxNanos.get() / 1e6);
+            map.putDouble("totalMs", section.totalNanos.get() / 1e6);
+            sections.putMap(entry.getKey(), map);
+        }
+
+        WritableMap counters = Arguments.createMap();
+        for (Map.Entry<String, Long> entry : AnchorTrace.counters().entrySet()) {
+            counters.putDouble(entry.getKey(), entry.getValue());
+        }
+
+        WritableMap snapshot = Arguments.createMap();
+        snapshot.putDouble("sessionStartedAt", AnchorTrace.sessionStartWall());
+        snapshot.putDouble("sessionMs", sessionMs);
+        snapshot.putMap("sections", sections);
+        snapshot.putMap("counters", counters);
+        return snapshot;
+    }
+
+    @ReactMethod
+    public void reset() {
+        AnchorTrace.reset();
+    }
+}
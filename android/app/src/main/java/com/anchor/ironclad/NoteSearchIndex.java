@@ -0,0 +1,426 @@
+package com.anchor.ironclad;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+import android.util.JsonReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Incremental full-text index of Brain note titles and content (SQLite FTS4)
+ * note_docs maps each note id to a stable FTS docid; the FTS table holds the text.
+ * Results are ranked in Java from matchinfo(), title hits weighing more than content.
+ */
+final class NoteSearchIndex {
+
+    private static final String DOCS_TABLE = "note_docs";
+    private static final String FTS_TABLE = "note_index";
+
+    // FTS column order: title, content
+    private static final double[] COLUMN_WEIGHTS = { 3.0, 1.0 };
+    private static final int SNIPPET_TOKENS = 12;
+
+    /**
+     * Note to index
+     */
+    static final class Document {
+        final String noteId;
+        final String title;
+        final String content;
+
+        Document(String noteId, String title, String content) {
+            this.noteId = noteId;
+            this.title = title;
+            this.content = content;
+        }
+    }
+
+    /**
+     * One ranked search hit
+     */
+    static final class Hit {
+        final String noteId;
+        final String title;
+        final String snippet;
+        final double score;
+
+        Hit(String noteId, String title, String snippet, double score) {
+            this.noteId = noteId;
+            this.title = title;
+            this.snippet = snippet;
+            this.score = score;
+        }
+    }
+
+    /**
+     * A page of hits plus the total number of matches
+     */
+    static final class Page {
+        final int total;
+        final List<Hit> hits;
+
+        Page(int total, List<Hit> hits) {
+            this.total = total;
+            this.hits = hits;
+        }
+    }
+
+    private static final class ScoredDoc {
+        final long docid;
+        final double score;
+
+        ScoredDoc(long docid, double score) {
+            this.docid = docid;
+            this.score = score;
+        }
+    }
+
+    private static final Comparator<ScoredDoc> BY_SCORE = new Comparator<ScoredDoc>() {
+        @Override
+        public int compare(ScoredDoc a, ScoredDoc b) {
+            int byScore = Double.compare(b.score, a.score);
+            // Newer notes (higher docid) first on ties, for a stable order across pages
+            return byScore != 0 ? byScore : Long.compare(b.docid, a.docid);
+        }
+    };
+
+    private static NoteSearchIndex instance;
+
+    private final AnchorDatabase database;
+
+    private NoteSearchIndex(Context context) {
+        database = AnchorDatabase.getInstance(context);
+    }
+
+    static synchronized NoteSearchIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new NoteSearchIndex(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    static void createTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + DOCS_TABLE + " ("
+            + "docid INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + "note_id TEXT NOT NULL UNIQUE)");
+        db.execSQL("CREATE VIRTUAL TABLE " + FTS_TABLE
+            + " USING fts4(title, content, tokenize=unicode61)");
+    }
+
+    int documentCount() {
+        return (int) DatabaseUtils.queryNumEntries(database.getReadableDatabase(), DOCS_TABLE);
+    }
+
+    void upsert(List<Document> documents) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            Writer writer = new Writer(db);
+            for (Document document : documents) {
+                writer.upsert(document);
+            }
+            writer.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    void remove(List<String> noteIds) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (String noteId : noteIds) {
+                long docid = findDocid(db, noteId);
+                if (docid < 0) {
+                    continue;
+                }
+                db.delete(FTS_TABLE, "docid = ?", new String[] { Long.toString(docid) });
+                db.delete(DOCS_TABLE, "docid = ?", new String[] { Long.toString(docid) });
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    void clear() {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(FTS_TABLE, null, null);
+            db.delete(DOCS_TABLE, null, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Replace the index with the notes in an exported dump ({ "brainNotes": [...] }).
+     * The dump is streamed, never held in memory as a whole; searches keep seeing
+     * the old index until the rebuild commits.
+     *
+     * @return number of notes indexed
+     */
+    int rebuild(JsonReader reader) throws IOException {
+        SQLiteDatabase db = database.getWritableDatabase();
+        int indexed = 0;
+        db.beginTransaction();
+        try {
+            db.delete(FTS_TABLE, null, null);
+            db.delete(DOCS_TABLE, null, null);
+            Writer writer = new Writer(db);
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"brainNotes".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Document document = readDocument(reader);
+                    if (document.noteId == null) {
+                        continue;
+                    }
+                    // Upsert rather than insert: a hand-edited dump may repeat an id
+                    writer.upsert(document);
+                    indexed++;
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+            writer.close();
+
+            // Merge the FTS b-tree segments written by the bulk load
+            db.execSQL("INSERT INTO " + FTS_TABLE + "(" + FTS_TABLE + ") VALUES ('optimize')");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return indexed;
+    }
+
+    /**
+     * Ranked page of notes matching every word of the query (prefix match)
+     */
+    Page search(String query, int offset, int limit) {
+        String match = toMatchExpression(query);
+        if (match == null) {
+            return new Page(0, Collections.<Hit>emptyList());
+        }
+
+        SQLiteDatabase db = database.getReadableDatabase();
+
+        // Score every match from its matchinfo blob - small, and no text is loaded yet
+        List<ScoredDoc> scored = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT docid, matchinfo(" + FTS_TABLE + ", 'pcx') FROM "
+            + FTS_TABLE + " WHERE " + FTS_TABLE + " MATCH ?", new String[] { match });
+        try {
+            while (cursor.moveToNext()) {
+                scored.add(new ScoredDoc(cursor.getLong(0), score(cursor.getBlob(1))));
+            }
+        } finally {
+            cursor.close();
+        }
+        Collections.sort(scored, BY_SCORE);
+
+        int total = scored.size();
+        int end = Math.min(total, offset + limit);
+        if (offset >= end) {
+            return new Page(total, Collections.<Hit>emptyList());
+        }
+
+        // Only the requested page pays for titles and snippets, in one query
+        List<ScoredDoc> page = scored.subList(offset, end);
+        Map<Long, Hit> loaded = loadHits(db, page, match);
+        List<Hit> hits = new ArrayList<>(page.size());
+        for (ScoredDoc doc : page) {
+            Hit hit = loaded.get(doc.docid);
+            if (hit != null) {
+                hits.add(hit);
+            }
+        }
+        return new Page(total, hits);
+    }
+
+    private static Map<Long, Hit> loadHits(SQLiteDatabase db, List<ScoredDoc> docs, String match) {
+        Map<Long, Double> scores = new HashMap<>(docs.size() * 2);
+        String[] args = new String[docs.size() + 1];
+        StringBuilder placeholders = new StringBuilder(docs.size() * 2);
+        args[0] = match;
+        for (int i = 0; i < docs.size(); i++) {
+            ScoredDoc doc = docs.get(i);
+            scores.put(doc.docid, doc.score);
+            args[i + 1] = Long.toString(doc.docid);
+            placeholders.append(i == 0 ? "?" : ",?");
+        }
+
+        Map<Long, Hit> hits = new HashMap<>(docs.size() * 2);
+        Cursor cursor = db.rawQuery("SELECT f.docid, d.note_id, f.title, snippet(" + FTS_TABLE
+                + ", '', '', '…', -1, " + SNIPPET_TOKENS + ") FROM " + FTS_TABLE + " f JOIN " + DOCS_TABLE
+                + " d ON d.docid = f.docid WHERE " + FTS_TABLE + " MATCH ? AND f.docid IN (" + placeholders + ")",
+            args);
+        try {
+            while (cursor.moveToNext()) {
+                long docid = cursor.getLong(0);
+                hits.put(docid, new Hit(cursor.getString(1), cursor.getString(2), cursor.getString(3),
+                    scores.get(docid)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return hits;
+    }
+
+    /**
+     * Sum over phrases and columns of (hits in this note / hits in all notes) * column weight.
+     * matchinfo 'pcx' layout: phrase count, column count, then 3 ints per phrase/column pair.
+     */
+    static double score(byte[] matchinfo) {
+        ByteBuffer buffer = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int base = 8 + (phrase * columns + column) * 12;
+                int hitsThisRow = buffer.getInt(base);
+                int hitsAllRows = buffer.getInt(base + 4);
+                if (hitsThisRow > 0 && hitsAllRows > 0) {
+                    double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                    score += (double) hitsThisRow / hitsAllRows * weight;
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Turn free text into an FTS query: every word must match, as a prefix.
+     * A word the tokenizer splits on punctuation ("e-mail") becomes a phrase
+     * of its parts ("e mail*"). Returns null when nothing searchable is left.
+     */
+    static String toMatchExpression(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : query.trim().split("\\s+")) {
+            // unicode61 folds case anyway; lower case keeps AND/OR/NOT/NEAR from acting as operators
+            List<String> parts = new ArrayList<>();
+            for (String part : word.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+                if (!part.isEmpty()) {
+                    parts.add(part);
+                }
+            }
+            if (parts.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            if (parts.size() == 1) {
+                match.append(parts.get(0)).append('*');
+            } else {
+                match.append('"').append(TextUtils.join(" ", parts)).append("*\"");
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    private static long findDocid(SQLiteDatabase db, String noteId) {
+        Cursor cursor = db.rawQuery("SELECT docid FROM " + DOCS_TABLE + " WHERE note_id = ?",
+            new String[] { noteId });
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static Document readDocument(JsonReader reader) throws IOException {
+        String noteId = null;
+        String title = null;
+        String content = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("id".equals(name)) {
+                noteId = reader.nextString();
+            } else if ("title".equals(name)) {
+                title = reader.nextString();
+            } else if ("content".equals(name)) {
+                content = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Document(noteId, title, content);
+    }
+
+    /**
+     * Compiled statements reused across one write transaction
+     */
+    private static final class Writer {
+        private final SQLiteDatabase db;
+        private final SQLiteStatement insertDoc;
+        private final SQLiteStatement insertText;
+        private final SQLiteStatement updateText;
+
+        Writer(SQLiteDatabase db) {
+            this.db = db;
+            insertDoc = db.compileStatement("INSERT INTO " + DOCS_TABLE + " (note_id) VALUES (?)");
+            insertText = db.compileStatement("INSERT INTO " + FTS_TABLE + " (docid, title, content) VALUES (?, ?, ?)");
+            updateText = db.compileStatement("UPDATE " + FTS_TABLE + " SET title = ?, content = ? WHERE docid = ?");
+        }
+
+        void upsert(Document document) {
+            long docid = findDocid(db, document.noteId);
+            if (docid < 0) {
+                insert(document);
+                return;
+            }
+            updateText.clearBindings();
+            bindText(updateText, 1, document.title);
+            bindText(updateText, 2, document.content);
+            updateText.bindLong(3, docid);
+            updateText.executeUpdateDelete();
+        }
+
+        void insert(Document document) {
+            insertDoc.bindString(1, document.noteId);
+            long docid = insertDoc.executeInsert();
+            insertText.clearBindings();
+            insertText.bindLong(1, docid);
+            bindText(insertText, 2, document.title);
+            bindText(insertText, 3, document.content);
+            insertText.executeInsert();
+        }
+
+        void close() {
+            insertDoc.close();
+            insertText.close();
+            updateText.close();
+        }
+
+        private static void bindText(SQLiteStatement statement, int index, String value) {
+            statement.bindString(index, value != null ? value : "");
+        }
+    }
+}
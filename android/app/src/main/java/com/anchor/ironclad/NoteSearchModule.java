@@ -0,0 +1,208 @@
+package com.anchor.ironclad;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import android.net.Uri;
+import android.util.JsonReader;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * React Native module for full-text search over Brain notes
+ * JS sends upserts and deletes as notes change; queries return ranked pages with
+ * snippets. All index work runs on one background thread, in call order.
+ */
+public class NoteSearchModule extends ReactContextBaseJavaModule {
+    static final String MODULE_NAME = "NoteSearchModule";
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    NoteSearchModule(ReactApplicationContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    /**
+     * Index or re-index notes: [{ id, title, content }]
+     */
+    @ReactMethod
+    public void upsertNotes(ReadableArray notes, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("NoteSearchModule.upsertNotes");
+        try {
+            // Copy out of the bridge array before leaving the JS module thread
+            final List<NoteSearchIndex.Document> documents = new ArrayList<>(notes.size());
+            for (int i = 0; i < notes.size(); i++) {
+                ReadableMap note = notes.getMap(i);
+                documents.add(new NoteSearchIndex.Document(
+                    note.getString("id"),
+                    note.hasKey("title") ? note.getString("title") : null,
+                    note.hasKey("content") ? note.getString("content") : null
+                ));
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        getIndex().upsert(documents);
+                        promise.resolve(documents.size());
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @ReactMethod
+    public void removeNotes(ReadableArray noteIds, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("NoteSearchModule.removeNotes");
+        try {
+            final List<String> ids = new ArrayList<>(noteIds.size());
+            for (int i = 0; i < noteIds.size(); i++) {
+                ids.add(noteIds.getString(i));
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        getIndex().remove(ids);
+                        promise.resolve(ids.size());
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * Resolves { total, results: [{ id, title, snippet, score }] }, best match first
+     */
+    @ReactMethod
+    public void search(final String query, final double offset, final double limit, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("NoteSearchModule.search");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        NoteSearchIndex.Page page = getIndex().search(query, (int) offset, (int) limit);
+                        WritableArray results = Arguments.createArray();
+                        for (NoteSearchIndex.Hit hit : page.hits) {
+                            WritableMap result = Arguments.createMap();
+                            result.putString("id", hit.noteId);
+                            result.putString("title", hit.title);
+                            result.putString("snippet", hit.snippet);
+                            result.putDouble("score", hit.score);
+                            results.pushMap(result);
+                        }
+                        WritableMap map = Arguments.createMap();
+                        map.putInt("total", page.total);
+                        map.putArray("results", results);
+                        promise.resolve(map);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @ReactMethod
+    public void getIndexedCount(final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("NoteSearchModule.getIndexedCount");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        promise.resolve(getIndex().documentCount());
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * Rebuild the whole index from an exported JSON dump containing "brainNotes".
+     * Resolves the number of notes indexed.
+     */
+    @ReactMethod
+    public void rebuildFromDump(final String fileUri, final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("NoteSearchModule.rebuildFromDump");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    String path = Uri.parse(fileUri).getPath();
+                    try (JsonReader reader = new JsonReader(new BufferedReader(
+                            new InputStreamReader(new FileInputStream(path), StandardCharsets.UTF_8)))) {
+                        promise.resolve(getIndex().rebuild(reader));
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @ReactMethod
+    public void clearIndex(final Promise promise) {
+        AnchorTrace.Span trace = AnchorTrace.begin("NoteSearchModule.clearIndex");
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        getIndex().clear();
+                        promise.resolve(true);
+                    } catch (Exception e) {
+                        promise.reject("ERROR", e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        executor.shutdown();
+        super.invalidate();
+    }
+
+    private NoteSearchIndex getIndex() {
+        return NoteSearchIndex.getInstance(getReactApplicationContext());
+    }
+}
@@ -0,0 +1,186 @@
+package com.anchor.ironclad;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Paged store of Second Brain note summaries for the brain widget
+ * Holds only title and a short preview per note, never the full markdown.
+ * Rows keep their row id across updates, which the widget uses as a stable item id.
+ *
+ * JS keeps it in line by diffing against loadVersions(): only notes whose
+ * updatedAt changed are sent again, and notes that are gone are removed.
+ */
+final class NoteSummaryStore {
+
+    static final String TABLE = "note_summaries";
+
+    /**
+     * One row of the note list, newest first
+     */
+    static final class Summary {
+        final long id;
+        final String noteId;
+        final String title;
+        final String preview;
+        final long updatedAt;
+
+        Summary(long id, String noteId, String title, String preview, long updatedAt) {
+            this.id = id;
+            this.noteId = noteId;
+            this.title = title;
+            this.preview = preview;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    private static NoteSummaryStore instance;
+
+    private final AnchorDatabase database;
+    // -1 until first counted, reset on every write
+    private volatile int cachedCount = -1;
+
+    private NoteSummaryStore(Context context) {
+        database = AnchorDatabase.getInstance(context);
+    }
+
+    static synchronized NoteSummaryStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new NoteSummaryStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    static void createTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+            + "_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + "note_id TEXT NOT NULL UNIQUE, "
+            + "title TEXT, "
+            + "preview TEXT, "
+            + "updated_at INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX note_summaries_updated ON " + TABLE + " (updated_at DESC, _id DESC)");
+    }
+
+    int count() {
+        int count = cachedCount;
+        if (count < 0) {
+            count = (int) DatabaseUtils.queryNumEntries(database.getReadableDatabase(), TABLE);
+            cachedCount = count;
+        }
+        return count;
+    }
+
+    /**
+     * Summaries ordered newest first
+     */
+    List<Summary> loadPage(int offset, int limit) {
+        List<Summary> page = new ArrayList<>(limit);
+        Cursor cursor = database.getReadableDatabase().rawQuery(
+            "SELECT _id, note_id, title, preview, updated_at FROM " + TABLE
+                + " ORDER BY updated_at DESC, _id DESC LIMIT " + limit + " OFFSET " + offset,
+            null);
+        try {
+            while (cursor.moveToNext()) {
+                page.add(new Summary(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                    cursor.getString(3), cursor.getLong(4)));
+            }
+        } finally {
+            cursor.close();
+        }
+        return page;
+    }
+
+    /**
+     * updatedAt of every stored note, by note id
+     */
+    Map<String, Long> loadVersions() {
+        Map<String, Long> versions = new HashMap<>();
+        Cursor cursor = database.getReadableDatabase().rawQuery(
+            "SELECT note_id, updated_at FROM " + TABLE, null);
+        try {
+            while (cursor.moveToNext()) {
+                versions.put(cursor.getString(0), cursor.getLong(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        return versions;
+    }
+
+    /**
+     * Insert or update summaries
+     */
+    void upsert(List<Summary> summaries) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            // UPDATE first so an existing note keeps its row id
+            SQLiteStatement update = db.compileStatement("UPDATE " + TABLE
+                + " SET title = ?, preview = ?, updated_at = ? WHERE note_id = ?");
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE
+                + " (title, preview, updated_at, note_id) VALUES (?, ?, ?, ?)");
+            for (Summary summary : summaries) {
+                bind(update, summary);
+                if (update.executeUpdateDelete() == 0) {
+                    bind(insert, summary);
+                    insert.executeInsert();
+                }
+            }
+            update.close();
+            insert.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            cachedCount = -1;
+        }
+        AnchorTrace.count("disk.noteSummaries");
+    }
+
+    void remove(List<String> noteIds) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement delete = db.compileStatement("DELETE FROM " + TABLE + " WHERE note_id = ?");
+            for (String noteId : noteIds) {
+                delete.bindString(1, noteId);
+                delete.executeUpdateDelete();
+            }
+            delete.close();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            cachedCount = -1;
+        }
+        AnchorTrace.count("disk.noteSummaries");
+    }
+
+    void clear() {
+        database.getWritableDatabase().delete(TABLE, null, null);
+        cachedCount = -1;
+        AnchorTrace.count("disk.noteSummaries");
+    }
+
+    private static void bind(SQLiteStatement statement, Summary summary) {
+        statement.clearBindings();
+        bindNullable(statement, 1, summary.title);
+        bindNullable(statement, 2, summary.preview);
+        statement.bindLong(3, summary.updatedAt);
+        statement.bindString(4, summary.noteId);
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+}
@@ -6,45 +6,52 @@ import android.content.Intent;
 import android.widget.Toast;
 
 /**
- * Receives notification button actions (Complete/Defer)
+ * Receives notification button actions (Complete/Defer, and the cycle timer buttons)
  */
 public class NotificationActionReceiver extends BroadcastReceiver {
     
     @Override
     public void onReceive(Context context, Intent intent) {
-        String action = intent.getAction();
-        
-        if ("COMPLETE_TASK".equals(action)) {
-            // Stop timer service
-            Intent stopIntent = new Intent(context, TimerNotificationService.class);
-            context.stopService(stopIntent);
+        AnchorTrace.Span trace = AnchorTrace.begin("NotificationActionReceiver.onReceive");
+        try {
+            final String action = intent.getAction();
             
-            // Send event to React Native
-            sendEventToReactNative(context, "TASK_COMPLETED");
-            
-            Toast.makeText(context, "Task completed! 🎯", Toast.LENGTH_SHORT).show();
-            
-        } else if ("DEFER_TASK".equals(action)) {
-            // Stop timer service
-            Intent stopIntent = new Intent(context, TimerNotificationService.class);
-            context.stopService(stopIntent);
-            
-            // Send event to React Native
-            sendEventToReactNative(context, "TASK_DEFERRED");
-            
-            Toast.makeText(context, "Task deferred", Toast.LENGTH_SHORT).show();
+            if ("COMPLETE_TASK".equals(action)) {
+                // Applied natively in the background; the app is not opened
+                TaskActions.handleAsync(this, context, TaskActions.COMPLETED);
+                
+                Toast.makeText(context, "Task completed! 🎯", Toast.LENGTH_SHORT).show();
+                
+            } else if ("DEFER_TASK".equals(action)) {
+                TaskActions.handleAsync(this, context, TaskActions.DEFERRED);
+                
+                Toast.makeText(context, "Task deferred", Toast.LENGTH_SHORT).show();
+                
+            } else if (action != null && action.startsWith("CYCLE_")) {
+                final Context appContext = context.getApplicationContext();
+                final int id = intent.getIntExtra(CycleNotifications.EXTRA_CYCLE_ID, 0);
+                CycleScheduler.handleAsync(this, new Runnable() {
+                    @Override
+                    public void run() {
+                        handleCycleAction(appContext, action, id);
+                    }
+                });
+            }
+        } finally {
+            AnchorTrace.end(trace);
         }
     }
     
-    private void sendEventToReactNative(Context context, String eventName) {
-        // This will be handled by a React Native module bridge
-        // For now, we'll open the app
-        Intent launchIntent = context.getPackageManager()
-                .getLaunchIntentForPackage(context.getPackageName());
-        if (launchIntent != null) {
-            launchIntent.putExtra("action", eventName);
-            launchIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
-            context.startActivity(launchIntent);
+    private static void handleCycleAction(Context context, String action, int id) {
+        CycleScheduler scheduler = CycleScheduler.getInstance(context);
+        if (CycleNotifications.ACTION_PAUSE.equals(action)) {
+            scheduler.pause(id);
+        } else if (CycleNotifications.ACTION_RESUME.equals(action)) {
+            scheduler.resume(id);
+        } else if (CycleNotifications.ACTION_SKIP.equals(action)) {
+            scheduler.skip(id);
+        } else if (CycleNotifications.ACTION_STOP.equals(action)) {
+            scheduler.stop(id);
         }
     }
 }
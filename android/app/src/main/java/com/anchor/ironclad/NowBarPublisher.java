@@ -0,0 +1,101 @@
+package com.anchor.ironclad;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.text.TextUtils;
+
+/**
+ * Sends task updates to the Samsung One UI Now Bar
+ * Shared by NowBarModule and the batched surface updates; the coordinator
+ * drives it from the native timer. Availability is checked once per process,
+ * payloads identical to the last one sent are dropped, and one Intent and
+ * subtitle buffer are reused for every broadcast.
+ */
+final class NowBarPublisher {
+    static final String NOW_BAR_PACKAGE = "com.samsung.android.app.nowbar";
+    static final String NOW_BAR_ACTION = "com.samsung.android.app.nowbar.ACTION_UPDATE";
+
+    // Guarded by the class lock
+    private static Boolean available;
+    private static Intent intent;
+    private static final StringBuilder subtitle = new StringBuilder(24);
+    private static String sentText;
+    private static long sentKey;
+    // null until the first publish or clear of this process - the Now Bar may still show an old task
+    private static Boolean shown;
+
+    private NowBarPublisher() {
+    }
+
+    /**
+     * Samsung on Android 14+ (One UI 8) with a Now Bar receiver that actually resolves.
+     * Checked once; the Now Bar package is declared in the manifest's queries.
+     */
+    static synchronized boolean isAvailable(Context context) {
+        if (available == null) {
+            boolean supported = Build.MANUFACTURER.equalsIgnoreCase("samsung")
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE;
+            available = supported && !context.getPackageManager()
+                .queryBroadcastReceivers(new Intent(NOW_BAR_ACTION).setPackage(NOW_BAR_PACKAGE), 0)
+                .isEmpty();
+        }
+        return available;
+    }
+
+    static synchronized void publish(Context context, String taskText, long timeRemainingMs) {
+        if (!isAvailable(context)) {
+            return;
+        }
+        long key = timeRemainingMs > 0 ? DurationFormatter.displayKey(timeRemainingMs) : Long.MIN_VALUE;
+        if (Boolean.TRUE.equals(shown) && key == sentKey && TextUtils.equals(taskText, sentText)) {
+            return;
+        }
+
+        Intent update = reusableIntent();
+        update.putExtra("title", "Current Task");
+        update.putExtra("content", taskText);
+        update.putExtra("timestamp", System.currentTimeMillis());
+
+        // Add time remaining if available
+        if (timeRemainingMs > 0) {
+            subtitle.setLength(0);
+            DurationFormatter.appendCountdown(subtitle, timeRemainingMs, false);
+            update.putExtra("subtitle", subtitle.toString());
+        }
+
+        // Send broadcast to Now Bar
+        context.sendBroadcast(update);
+        AnchorTrace.count("nowBar.publish");
+        sentText = taskText;
+        sentKey = key;
+        shown = true;
+    }
+
+    static synchronized void clear(Context context) {
+        if (!isAvailable(context) || Boolean.FALSE.equals(shown)) {
+            return;
+        }
+        Intent update = reusableIntent();
+        update.putExtra("action", "clear");
+
+        context.sendBroadcast(update);
+        AnchorTrace.count("nowBar.clear");
+        sentText = null;
+        shown = false;
+    }
+
+    /**
+     * The shared Intent with only the extras every broadcast carries
+     */
+    private static Intent reusableIntent() {
+        if (intent == null) {
+            intent = new Intent(NOW_BAR_ACTION);
+            intent.setPackage(NOW_BAR_PACKAGE);
+        }
+        intent.replaceExtras((Bundle) null);
+        intent.putExtra("app_name", "Anchor");
+        return intent;
+    }
+}
@@ -0,0 +1,94 @@
+package com.anchor.ironclad;
+
+import android.text.TextUtils;
+
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * Immutable update frame for the native surfaces, parsed from a JS object
+ * { stack, timer, nowBar } - each section is optional; absent leaves that part alone.
+ * stack replaces the AnchorSnapshot stack; timer starts a session unless it
+ * repeats the one running, and null stops it; nowBar turns the Now Bar on, or
+ * off when null. The widget, notification and tile always render the snapshot,
+ * so they need no section of their own.
+ * The brain widget is fed separately through BrainWidgetModule's note store.
+ */
+final class SurfaceFrame {
+
+    /**
+     * Task shown on a surface, with a time in milliseconds (timer: session length)
+     */
+    static final class TaskSurface {
+        static final TaskSurface CLEAR = new TaskSurface(null, null, 0);
+
+        /** Stack task id, null from callers that don't send one */
+        final String taskId;
+        final String taskText;
+        final long timeMillis;
+
+        TaskSurface(String taskId, String taskText, long timeMillis) {
+            this.taskId = taskId;
+            this.taskText = taskText;
+            this.timeMillis = timeMillis;
+        }
+
+        /**
+         * Same task and length, so the same focus session
+         */
+        boolean sameSession(TaskSurface other) {
+            return other != null
+                && TextUtils.equals(taskId, other.taskId)
+                && TextUtils.equals(taskText, other.taskText)
+                && timeMillis == other.timeMillis;
+        }
+    }
+
+    final AnchorSnapshot.Stack stack;
+    final TaskSurface timer;
+    /** TRUE to show the Now Bar, FALSE to clear it, null to leave it */
+    final Boolean nowBar;
+
+    SurfaceFrame(AnchorSnapshot.Stack stack, TaskSurface timer, Boolean nowBar) {
+        this.stack = stack;
+        this.timer = timer;
+        this.nowBar = nowBar;
+    }
+
+    /**
+     * Later frame wins per section; sections it does not mention keep this frame's value
+     */
+    SurfaceFrame mergedWith(SurfaceFrame newer) {
+        return new SurfaceFrame(
+            newer.stack != null ? newer.stack : stack,
+            newer.timer != null ? newer.timer : timer,
+            newer.nowBar != null ? newer.nowBar : nowBar
+        );
+    }
+
+    /**
+     * Copy everything out of the ReadableMap on the calling (JS module) thread
+     */
+    static SurfaceFrame fromMap(ReadableMap map) {
+        TaskSurface timer = null;
+        if (map.hasKey("timer")) {
+            ReadableMap section = map.isNull("timer") ? null : map.getMap("timer");
+            timer = section == null ? TaskSurface.CLEAR : new TaskSurface(
+                getString(section, "taskId"),
+                getString(section, "taskText"),
+                (long) (getDouble(section, "durationMinutes") * 60 * 1000));
+        }
+        return new SurfaceFrame(
+            map.hasKey("stack") && !map.isNull("stack") ? AnchorSnapshot.Stack.fromMap(map.getMap("stack")) : null,
+            timer,
+            map.hasKey("nowBar") ? Boolean.valueOf(!map.isNull("nowBar")) : null
+        );
+    }
+
+    private static String getString(ReadableMap map, String key) {
+        return map.hasKey(key) && !map.isNull(key) ? map.getString(key) : null;
+    }
+
+    private static double getDouble(ReadableMap map, String key) {
+        return map.hasKey(key) && !map.isNull(key) ? map.getDouble(key) : 0;
+    }
+}
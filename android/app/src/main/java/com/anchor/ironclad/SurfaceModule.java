@@ -0,0 +1,34 @@
+package com.anchor.ironclad;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * Single entry point for updating the timer, widgets and Now Bar from JS
+ * Replaces one bridge call per surface with one compact frame per state change.
+ */
+public class SurfaceModule extends ReactContextBaseJavaModule {
+    static final String MODULE_NAME = "SurfaceModule";
+
+    SurfaceModule(ReactApplicationContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return MODULE_NAME;
+    }
+
+    @ReactMethod
+    public void publishFrame(ReadableMap frame) {
+        AnchorTrace.Span trace = AnchorTrace.begin("SurfaceModule.publishFrame");
+        try {
+            SurfaceUpdateCoordinator.getInstance(getReactApplicationContext())
+                .submit(SurfaceFrame.fromMap(frame));
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.anchor.ironclad;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.text.TextUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies SurfaceFrames to the AnchorSnapshot and renders the surfaces from it
+ * Frames arriving within COALESCE_WINDOW_MS of the first one in a burst are merged
+ * (newest wins per section) and flushed once on a background HandlerThread, so a
+ * reorder/defer/undo burst costs one snapshot write. Every snapshot change, from
+ * JS or native, schedules one redraw of the widget and Now Bar.
+ * While a timer runs and the Now Bar is on, the Now Bar is also re-sent from
+ * here every nowBarIntervalMs (at least a minute with the screen off), on the
+ * interval boundaries of the remaining time, so the lock screen stays current
+ * without JS. The shared TickScheduler drives it; it stops when the timer does.
+ */
+final class SurfaceUpdateCoordinator {
+
+    private static final long COALESCE_WINDOW_MS = 75;
+    private static final long FLUSH_TIMEOUT_MS = 2000;
+    private static final long DEFAULT_NOW_BAR_INTERVAL_MS = 60 * 1000;
+    private static final long MIN_NOW_BAR_INTERVAL_MS = 1000;
+    private static final long SCREEN_OFF_NOW_BAR_INTERVAL_MS = 60 * 1000;
+    private static final long NOW_BAR_TICK_LEAD_MS = 500;
+
+    private static SurfaceUpdateCoordinator instance;
+
+    private final Context context;
+    private final Handler handler;
+    private final TickScheduler ticks;
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    private final Runnable renderRunnable = new Runnable() {
+        @Override
+        public void run() {
+            render();
+        }
+    };
+    private final Runnable nowBarRender = new Runnable() {
+        @Override
+        public void run() {
+            renderNowBar(AnchorSnapshot.get(context));
+        }
+    };
+    private final TickScheduler.Subscriber nowBarTicker = new TickScheduler.Subscriber() {
+        @Override
+        public long nextTickDelay(boolean interactive) {
+            TimerEngine.State timer = AnchorSnapshot.get(context).timer;
+            long remaining = timer.remainingMillis();
+            if (!nowBarShown || timer.status != TimerEngine.STATUS_RUNNING || remaining <= 0) {
+                return TickScheduler.NO_TICK;
+            }
+            long interval = interactive
+                ? nowBarIntervalMs
+                : Math.max(nowBarIntervalMs, SCREEN_OFF_NOW_BAR_INTERVAL_MS);
+            // Aim a little before the boundary: a late tick would show a second under it
+            return TimerMath.delayUntilBoundary(remaining, interval, NOW_BAR_TICK_LEAD_MS);
+        }
+
+        @Override
+        public void onTick(boolean interactive) {
+            handler.post(nowBarRender);
+        }
+    };
+
+    // Guarded by this
+    private SurfaceFrame pending;
+
+    private volatile long nowBarIntervalMs = DEFAULT_NOW_BAR_INTERVAL_MS;
+
+    // Written on the render thread only; the ticker reads it on the main thread
+    private volatile boolean nowBarShown;
+
+    // Render thread only: the timer section that last started the engine
+    private SurfaceFrame.TaskSurface timerStarted;
+
+    private SurfaceUpdateCoordinator(Context context) {
+        this.context = context;
+        HandlerThread thread = new HandlerThread("AnchorSurfaceUpdates");
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        ticks = TickScheduler.getInstance(context);
+        AnchorSnapshot.addListener(new AnchorSnapshot.Listener() {
+            @Override
+            public void onSnapshotChanged(AnchorSnapshot snapshot) {
+                handler.removeCallbacks(renderRunnable);
+                handler.post(renderRunnable);
+            }
+        });
+    }
+
+    static synchronized SurfaceUpdateCoordinator getInstance(Context context) {
+        if (instance == null) {
+            instance = new SurfaceUpdateCoordinator(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    void submit(SurfaceFrame frame) {
+        synchronized (this) {
+            if (pending != null) {
+                // Flush already scheduled for this burst - newer sections supersede older ones
+                pending = pending.mergedWith(frame);
+                return;
+            }
+            pending = frame;
+        }
+        handler.postDelayed(flushRunnable, COALESCE_WINDOW_MS);
+    }
+
+    /**
+     * Run work on the render thread, e.g. a TimerEngine change from the main
+     * thread, which writes the timer snapshot and sets alarms
+     */
+    void post(Runnable work) {
+        handler.post(work);
+    }
+
+    /**
+     * How often a running timer re-sends the Now Bar
+     */
+    void setNowBarInterval(long intervalMs) {
+        nowBarIntervalMs = Math.max(MIN_NOW_BAR_INTERVAL_MS, intervalMs);
+        handler.post(renderRunnable);
+    }
+
+    /**
+     * Apply a frame, together with any pending burst, and render before returning.
+     * For broadcast receivers, whose process may be killed once they finish.
+     */
+    void submitNow(SurfaceFrame frame) {
+        synchronized (this) {
+            pending = pending != null ? pending.mergedWith(frame) : frame;
+        }
+        handler.removeCallbacks(flushRunnable);
+        final CountDownLatch rendered = new CountDownLatch(1);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+                render();
+                rendered.countDown();
+            }
+        });
+        try {
+            rendered.await(FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush() {
+        SurfaceFrame frame;
+        synchronized (this) {
+            frame = pending;
+            pending = null;
+        }
+        if (frame == null) {
+            return;
+        }
+
+        // Each of these changes the snapshot, which schedules the redraw
+        if (frame.stack != null) {
+            AnchorSnapshot.setStack(context, frame.stack);
+        }
+        if (frame.timer != null) {
+            applyTimer(frame.timer);
+        }
+        if (frame.nowBar != null && frame.nowBar != nowBarShown) {
+            nowBarShown = frame.nowBar;
+            if (nowBarShown) {
+                handler.post(renderRunnable);
+            } else {
+                ticks.remove(nowBarTicker);
+                NowBarPublisher.clear(context);
+            }
+        }
+    }
+
+    private void applyTimer(SurfaceFrame.TaskSurface timer) {
+        TimerEngine engine = TimerEngine.getInstance(context);
+        if (timer == SurfaceFrame.TaskSurface.CLEAR) {
+            timerStarted = null;
+            engine.cancel();
+            context.stopService(new Intent(context, TimerNotificationService.class));
+            return;
+        }
+        TimerEngine.State state = engine.getState();
+        // A repeated section for the session already counting down must not reset it
+        if (!state.isActive() || !timer.sameSession(timerStarted)
+                || !TextUtils.equals(state.taskText, timer.taskText)) {
+            engine.start(timer.taskText, timer.timeMillis, state.useChronometer);
+            timerStarted = timer;
+        }
+        TimerNotificationService.ensureRunning(context);
+    }
+
+    private void render() {
+        handler.removeCallbacks(renderRunnable);
+        AnchorSnapshot snapshot = AnchorSnapshot.get(context);
+        // The widget diffs its own views, so redrawing it is cheap when nothing moved.
+        // The Quick Settings tile listens to the snapshot itself while the panel is open.
+        AnchorWidgetProvider.refresh(context);
+        renderNowBar(snapshot);
+    }
+
+    /**
+     * Send the Now Bar (the publisher drops unchanged payloads) and plan the next tick
+     */
+    private void renderNowBar(AnchorSnapshot snapshot) {
+        handler.removeCallbacks(nowBarRender);
+        if (!nowBarShown) {
+            ticks.remove(nowBarTicker);
+            return;
+        }
+        String text = snapshot.currentTaskText();
+        TimerEngine.State timer = snapshot.timer;
+        if (text == null || !timer.isActive()) {
+            // Completed or cleared - nothing left to count down
+            ticks.remove(nowBarTicker);
+            NowBarPublisher.clear(context);
+            return;
+        }
+        NowBarPublisher.publish(context, text, timer.remainingMillis());
+        if (timer.status == TimerEngine.STATUS_RUNNING) {
+            ticks.schedule(nowBarTicker);
+        } else {
+            ticks.remove(nowBarTicker);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.anchor.ironclad;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Completes or defers the top task natively, for notification and widget buttons
+ * The top task leaves the AnchorSnapshot stack, the timer moves on to the next
+ * task (and every surface with it), and the change is queued on AnchorEventBus
+ * for the JS store to reconcile. React Native is never started.
+ */
+final class TaskActions {
+
+    static final String COMPLETED = "TASK_COMPLETED";
+    static final String DEFERRED = "TASK_DEFERRED";
+
+    // One thread, so taps are applied in the order they arrive
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private TaskActions() {
+    }
+
+    /**
+     * Apply an action off the main thread, keeping the broadcast alive until it is done
+     */
+    static void handleAsync(BroadcastReceiver receiver, Context context, final String action) {
+        final BroadcastReceiver.PendingResult result = receiver.goAsync();
+        final Context appContext = context.getApplicationContext();
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    apply(appContext, action);
+                } finally {
+                    result.finish();
+                }
+            }
+        });
+    }
+
+    static void apply(Context context, String action) {
+        AnchorSnapshot.Task done = AnchorSnapshot.popTop(context);
+
+        // Record the mutation before touching surfaces, so JS hears of it whatever happens next
+        AnchorEventBus.getInstance(context).post(action, done != null ? done.id : null);
+
+        AnchorSnapshot snapshot = AnchorSnapshot.get(context);
+        AnchorSnapshot.Task next = snapshot.top();
+        SurfaceFrame.TaskSurface timer = next != null
+            ? new SurfaceFrame.TaskSurface(next.id, next.text, snapshot.stack.timerMinutes * 60L * 1000L)
+            : SurfaceFrame.TaskSurface.CLEAR;
+        SurfaceUpdateCoordinator.getInstance(context).submitNow(new SurfaceFrame(null, timer, null));
+
+        // The focus session is over; give back the filter the user had
+        DndSession.end(context);
+    }
+}
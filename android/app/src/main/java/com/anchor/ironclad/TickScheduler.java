@@ -0,0 +1,221 @@
+package com.anchor.ironclad;
+
+import android.app.AlarmManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One tick loop shared by every live timer surface
+ * Each subscriber says how long until its output next changes, given whether
+ * the screen is on; the scheduler keeps a single main-looper callback at the
+ * earliest of those times. Delays are recomputed from the clock after every
+ * tick, so processing time never accumulates into skipped or repeated seconds.
+ * The screen is watched once, here: turning it off or on re-plans every
+ * subscriber at its screen-off or screen-on cadence.
+ * Due times are on the elapsed clock, which keeps counting in deep sleep. With
+ * the screen on the device is awake and a handler callback is enough; with it
+ * off the next tick is a non-waking ELAPSED_REALTIME alarm, delivered as soon
+ * as the device is awake past the due time. An uptime callback would slip by
+ * every second spent asleep. Such alarms are inexact, and batched with others.
+ * Apps get no signal for the notification shade being open, so an interactive
+ * screen is the closest observable stand-in for "visible"; subscribers that
+ * render nothing per second (chronometer mode, the tile) ask for no 1 Hz ticks.
+ * Every subscriber callback runs on the main thread.
+ */
+final class TickScheduler {
+
+    static final long NO_TICK = -1;
+
+    interface Subscriber {
+        /**
+         * Milliseconds until the next tick - 0 for right away - or NO_TICK
+         */
+        long nextTickDelay(boolean interactive);
+
+        void onTick(boolean interactive);
+    }
+
+    private static TickScheduler instance;
+
+    private final Context context;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable tickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            tick();
+        }
+    };
+    private final AlarmManager.OnAlarmListener tickAlarm;
+    private boolean alarmSet;
+
+    // Main thread only: elapsed-clock time each subscriber is due at, or NO_TICK
+    private final Map<Subscriber, Long> dueAt = new LinkedHashMap<>();
+    private final List<Subscriber> due = new ArrayList<>();
+    private boolean interactive = true;
+    private BroadcastReceiver screenReceiver;
+
+    private TickScheduler(Context context) {
+        this.context = context;
+        tickAlarm = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+            ? new AlarmManager.OnAlarmListener() {
+                @Override
+                public void onAlarm() {
+                    alarmSet = false;
+                    tick();
+                }
+            }
+            : null;
+    }
+
+    static synchronized TickScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new TickScheduler(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Add a subscriber, or re-plan it after its state changed. Any thread.
+     */
+    void schedule(final Subscriber subscriber) {
+        if (Looper.myLooper() != handler.getLooper()) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    schedule(subscriber);
+                }
+            });
+            return;
+        }
+        if (dueAt.isEmpty()) {
+            registerScreenReceiver();
+        }
+        plan(subscriber);
+        postNextTick();
+    }
+
+    /**
+     * Stop ticking a subscriber. Any thread.
+     */
+    void remove(final Subscriber subscriber) {
+        if (Looper.myLooper() != handler.getLooper()) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    remove(subscriber);
+                }
+            });
+            return;
+        }
+        if (dueAt.remove(subscriber) == null) {
+            return;
+        }
+        if (dueAt.isEmpty()) {
+            unregisterScreenReceiver();
+        }
+        postNextTick();
+    }
+
+    private void tick() {
+        AnchorTrace.Span trace = AnchorTrace.begin("TickScheduler.tick");
+        try {
+            long now = SystemClock.elapsedRealtime();
+            for (Map.Entry<Subscriber, Long> entry : dueAt.entrySet()) {
+                long at = entry.getValue();
+                if (at != NO_TICK && at <= now) {
+                    due.add(entry.getKey());
+                }
+            }
+            // A subscriber may schedule or remove itself from onTick
+            for (Subscriber subscriber : due) {
+                dueAt.put(subscriber, NO_TICK);
+                subscriber.onTick(interactive);
+                if (dueAt.containsKey(subscriber)) {
+                    plan(subscriber);
+                }
+            }
+            due.clear();
+            postNextTick();
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    private void plan(Subscriber subscriber) {
+        long delay = subscriber.nextTickDelay(interactive);
+        dueAt.put(subscriber, delay == NO_TICK ? NO_TICK : SystemClock.elapsedRealtime() + delay);
+    }
+
+    private void postNextTick() {
+        handler.removeCallbacks(tickRunnable);
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmSet) {
+            alarmManager.cancel(tickAlarm);
+            alarmSet = false;
+        }
+        long next = Long.MAX_VALUE;
+        for (long at : dueAt.values()) {
+            if (at != NO_TICK && at < next) {
+                next = at;
+            }
+        }
+        if (next == Long.MAX_VALUE) {
+            return;
+        }
+        if (!interactive && tickAlarm != null && alarmManager != null) {
+            alarmManager.set(AlarmManager.ELAPSED_REALTIME, next, "anchor:tick", tickAlarm, handler);
+            alarmSet = true;
+        } else {
+            handler.postDelayed(tickRunnable, Math.max(0, next - SystemClock.elapsedRealtime()));
+        }
+    }
+
+    // --- Screen ---
+
+    private void registerScreenReceiver() {
+        if (screenReceiver != null) {
+            return;
+        }
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        interactive = powerManager == null || powerManager.isInteractive();
+
+        screenReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                boolean screenOn = Intent.ACTION_SCREEN_ON.equals(intent.getAction());
+                if (screenOn == interactive) {
+                    return;
+                }
+                interactive = screenOn;
+                // New cadence for everyone; a subscriber that fell behind asks for 0
+                for (Subscriber subscriber : new ArrayList<>(dueAt.keySet())) {
+                    plan(subscriber);
+                }
+                postNextTick();
+            }
+        };
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        context.registerReceiver(screenReceiver, filter, null, handler);
+    }
+
+    private void unregisterScreenReceiver() {
+        if (screenReceiver != null) {
+            context.unregisterReceiver(screenReceiver);
+            screenReceiver = null;
+        }
+    }
+}
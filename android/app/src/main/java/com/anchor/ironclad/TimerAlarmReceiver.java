@@ -0,0 +1,74 @@
+package com.anchor.ironclad;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Receives the exact completion alarm for the focus timer
+ * Posts the completion notification and tears down the timer service.
+ * Also receives CycleScheduler's phase alarms, and re-arms every alarm after
+ * a reboot or app update, which clear them; both of those run off the main
+ * thread through CycleScheduler.handleAsync().
+ */
+public class TimerAlarmReceiver extends BroadcastReceiver {
+
+    static final String ACTION_TIMER_COMPLETE = "com.anchor.ironclad.TIMER_COMPLETE";
+    static final String ACTION_CYCLE_BOUNDARY = "com.anchor.ironclad.CYCLE_BOUNDARY";
+    static final String EXTRA_CYCLE_ID = "cycleId";
+
+    // Exact alarms may be delivered slightly early
+    private static final long COMPLETION_TOLERANCE_MS = 1000;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        AnchorTrace.Span trace = AnchorTrace.begin("TimerAlarmReceiver.onReceive");
+        try {
+            String action = intent.getAction();
+            final Context appContext = context.getApplicationContext();
+            if (Intent.ACTION_BOOT_COMPLETED.equals(action) || Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+                CycleScheduler.handleAsync(this, new Runnable() {
+                    @Override
+                    public void run() {
+                        // Loading the engine restores the snapshot and re-arms the alarm
+                        TimerEngine.getInstance(appContext);
+                        // Likewise for cycle timers, which also catch up on phases missed while off
+                        CycleScheduler.getInstance(appContext).restoreNotifications();
+                    }
+                });
+                return;
+            }
+            if (ACTION_CYCLE_BOUNDARY.equals(action)) {
+                final int id = intent.getIntExtra(EXTRA_CYCLE_ID, 0);
+                CycleScheduler.handleAsync(this, new Runnable() {
+                    @Override
+                    public void run() {
+                        CycleScheduler.getInstance(appContext).onAlarm(id);
+                    }
+                });
+                return;
+            }
+            if (!ACTION_TIMER_COMPLETE.equals(action)) {
+                return;
+            }
+
+            TimerEngine engine = TimerEngine.getInstance(context);
+            TimerEngine.State state = engine.getState();
+            if (state.status != TimerEngine.STATUS_RUNNING) {
+                // Paused or cancelled after the alarm was set
+                return;
+            }
+            if (state.remainingMillis() > COMPLETION_TOLERANCE_MS) {
+                // Stale alarm (e.g. extended while it was in flight) - re-arm for the real end
+                TimerAlarmScheduler.sync(context, state);
+                return;
+            }
+
+            TimerNotificationService.showCompletionNotification(context, state.taskText);
+            engine.complete();
+            context.stopService(new Intent(context, TimerNotificationService.class));
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.anchor.ironclad;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+
+/**
+ * Keeps one exact, allow-while-idle alarm at the end of the running timer
+ * Completion is delivered to TimerAlarmReceiver even in Doze or when the
+ * process is frozen, so nothing has to poll for it.
+ */
+final class TimerAlarmScheduler {
+
+    private TimerAlarmScheduler() {
+    }
+
+    /**
+     * Schedule the completion alarm for a running timer, cancel it otherwise
+     */
+    static void sync(Context context, TimerEngine.State state) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            return;
+        }
+
+        PendingIntent completeIntent = createCompleteIntent(context);
+        if (state.status != TimerEngine.STATUS_RUNNING) {
+            alarmManager.cancel(completeIntent);
+            return;
+        }
+
+        setExact(alarmManager, state.endElapsedMillis, completeIntent);
+    }
+
+    /**
+     * Exact wakeup on the elapsed clock that still fires in Doze; shared with CycleScheduler
+     */
+    static void setExact(AlarmManager alarmManager, long triggerAt, PendingIntent operation) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            // Exact alarm access revoked - still fire in Doze, possibly a few minutes late
+            alarmManager.setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, operation);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, operation);
+        } else {
+            alarmManager.setExact(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, operation);
+        }
+    }
+
+    private static PendingIntent createCompleteIntent(Context context) {
+        Intent intent = new Intent(context, TimerAlarmReceiver.class);
+        intent.setAction(TimerAlarmReceiver.ACTION_TIMER_COMPLETE);
+        return PendingIntent.getBroadcast(
+            context,
+            0,
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+}
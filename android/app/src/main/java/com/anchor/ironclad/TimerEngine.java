@@ -0,0 +1,218 @@
+package com.anchor.ironclad;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.provider.Settings;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Native focus timer shared by TimerModule and TimerNotificationService
+ * Runs on SystemClock.elapsedRealtime() so wall-clock changes do not move it,
+ * keeps a small crash-safe snapshot on disk so a restarted service can
+ * pick up a running timer without the JS runtime, and arms an exact alarm
+ * for completion.
+ */
+final class TimerEngine {
+
+    private static final String TAG = "TimerEngine";
+    private static final String SNAPSHOT_FILE = "timer_state.bin";
+
+    static final int STATUS_IDLE = TimerState.STATUS_IDLE;
+    static final int STATUS_RUNNING = TimerState.STATUS_RUNNING;
+    static final int STATUS_PAUSED = TimerState.STATUS_PAUSED;
+    static final int STATUS_COMPLETED = TimerState.STATUS_COMPLETED;
+
+    /**
+     * Notified after every state transition, on the thread that caused it
+     */
+    interface Listener {
+        void onTimerStateChanged(State state);
+    }
+
+    /**
+     * Immutable timer state on the Android clocks
+     */
+    static final class State extends TimerState {
+        static final State IDLE = new State(STATUS_IDLE, null, 0, 0, 0, true);
+
+        State(int status, String taskText, long durationMillis, long endElapsedMillis,
+              long pausedRemainingMillis, boolean useChronometer) {
+            super(status, taskText, durationMillis, endElapsedMillis, pausedRemainingMillis, useChronometer);
+        }
+
+        long remainingMillis() {
+            return remainingMillis(SystemClock.elapsedRealtime());
+        }
+
+        /**
+         * Wall-clock end time, for APIs such as the notification chronometer
+         * that only accept System.currentTimeMillis() based values
+         */
+        long endWallTimeMillis() {
+            return System.currentTimeMillis() + remainingMillis();
+        }
+    }
+
+    private static TimerEngine instance;
+
+    private final Context context;
+    private final AtomicFile snapshotFile;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile State state;
+
+    private TimerEngine(Context context) {
+        this.context = context;
+        snapshotFile = new AtomicFile(new File(context.getFilesDir(), SNAPSHOT_FILE));
+        state = readSnapshot();
+        // Alarms do not survive a reboot - re-arm completion for a restored timer
+        TimerAlarmScheduler.sync(context, state);
+        // A session whose timer ended while the process was dead gives its filter back now
+        DndSession.sync(context, state);
+    }
+
+    static synchronized TimerEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new TimerEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    synchronized State start(String taskText, long durationMillis, boolean useChronometer) {
+        long now = SystemClock.elapsedRealtime();
+        return apply(new State(STATUS_RUNNING, taskText, durationMillis, now + durationMillis, 0, useChronometer));
+    }
+
+    synchronized State pause() {
+        State current = state;
+        if (current.status != STATUS_RUNNING) {
+            return current;
+        }
+        return apply(new State(STATUS_PAUSED, current.taskText, current.durationMillis, 0,
+                current.remainingMillis(), current.useChronometer));
+    }
+
+    synchronized State resume() {
+        State current = state;
+        if (current.status != STATUS_PAUSED) {
+            return current;
+        }
+        long now = SystemClock.elapsedRealtime();
+        return apply(new State(STATUS_RUNNING, current.taskText, current.durationMillis,
+                now + current.pausedRemainingMillis, 0, current.useChronometer));
+    }
+
+    synchronized State extend(long extraMillis) {
+        State current = state;
+        if (!current.isActive() || extraMillis <= 0) {
+            return current;
+        }
+        if (current.status == STATUS_RUNNING) {
+            return apply(new State(STATUS_RUNNING, current.taskText, current.durationMillis + extraMillis,
+                    current.endElapsedMillis + extraMillis, 0, current.useChronometer));
+        }
+        return apply(new State(STATUS_PAUSED, current.taskText, current.durationMillis + extraMillis, 0,
+                current.pausedRemainingMillis + extraMillis, current.useChronometer));
+    }
+
+    /**
+     * Mark a running timer as finished. No-op if it was paused, cancelled or
+     * restarted in the meantime.
+     */
+    synchronized State complete() {
+        State current = state;
+        if (current.status != STATUS_RUNNING) {
+            return current;
+        }
+        return apply(new State(STATUS_COMPLETED, current.taskText, current.durationMillis, 0, 0,
+                current.useChronometer));
+    }
+
+    synchronized State cancel() {
+        if (state.status == STATUS_IDLE) {
+            return state;
+        }
+        return apply(State.IDLE);
+    }
+
+    private State apply(State next) {
+        state = next;
+        writeSnapshot(next);
+        TimerAlarmScheduler.sync(context, next);
+        DndSession.sync(context, next);
+        for (Listener listener : listeners) {
+            listener.onTimerStateChanged(next);
+        }
+        return next;
+    }
+
+    // --- Snapshot ---
+
+    private void writeSnapshot(State snapshot) {
+        AnchorTrace.count("disk.timerSnapshot");
+        if (snapshot.status == STATUS_IDLE) {
+            snapshotFile.delete();
+            return;
+        }
+
+        FileOutputStream stream = null;
+        try {
+            stream = snapshotFile.startWrite();
+            DataOutputStream out = new DataOutputStream(stream);
+            snapshot.writeSnapshot(out, SystemClock.elapsedRealtime(), System.currentTimeMillis(),
+                    bootCount(context));
+            out.flush();
+            snapshotFile.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write timer snapshot", e);
+            if (stream != null) {
+                snapshotFile.failWrite(stream);
+            }
+        }
+    }
+
+    private State readSnapshot() {
+        try (DataInputStream in = new DataInputStream(snapshotFile.openRead())) {
+            TimerState read = TimerState.readSnapshot(in, SystemClock.elapsedRealtime(),
+                    System.currentTimeMillis(), bootCount(context));
+            if (read == null) {
+                return State.IDLE;
+            }
+            return new State(read.status, read.taskText, read.durationMillis, read.endElapsedMillis,
+                    read.pausedRemainingMillis, read.useChronometer);
+        } catch (FileNotFoundException e) {
+            return State.IDLE;
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable timer snapshot", e);
+            return State.IDLE;
+        }
+    }
+
+    /**
+     * Boots since the device was set up, or SnapshotClock.UNKNOWN_BOOT
+     */
+    static int bootCount(Context context) {
+        return Settings.Global.getInt(context.getContentResolver(), Settings.Global.BOOT_COUNT,
+                SnapshotClock.UNKNOWN_BOOT);
+    }
+}
@@ -1,42 +1,119 @@
 package com.anchor.ironclad;
 
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
-import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
 import android.content.Intent;
-import android.os.Build;
 
 /**
  * React Native module bridge for timer notifications
+ * Drives the shared TimerEngine; TimerNotificationService renders its state.
  */
-public class TimerModule extends ReactContextBaseJavaModule {
-    private static final String MODULE_NAME = "TimerModule";
-
+public class TimerModule extends NativeTimerModuleSpec {
     TimerModule(ReactApplicationContext context) {
         super(context);
     }
 
     @Override
-    public String getName() {
-        return MODULE_NAME;
+    public void startTimer(String taskText, double durationMinutes) {
+        AnchorTrace.Span trace = AnchorTrace.begin("TimerModule.startTimer");
+        try {
+            startTimerWithMode(taskText, durationMinutes, true);
+        } finally {
+            AnchorTrace.end(trace);
+        }
     }
 
-    @ReactMethod
-    public void startTimer(String taskText, double durationMinutes) {
-        Intent serviceIntent = new Intent(getReactApplicationContext(), TimerNotificationService.class);
-        serviceIntent.putExtra("taskText", taskText);
-        serviceIntent.putExtra("durationMinutes", (long) durationMinutes);
-        
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            getReactApplicationContext().startForegroundService(serviceIntent);
-        } else {
-            getReactApplicationContext().startService(serviceIntent);
+    /**
+     * Start the timer, choosing between a system-rendered chronometer (default)
+     * and the legacy per-second text countdown
+     */
+    @Override
+    public void startTimerWithMode(String taskText, double durationMinutes, boolean useChronometer) {
+        AnchorTrace.Span trace = AnchorTrace.begin("TimerModule.startTimerWithMode");
+        try {
+            long durationMillis = (long) (durationMinutes * 60 * 1000);
+            getEngine().start(taskText, durationMillis, useChronometer);
+            startService();
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
+    public void pauseTimer() {
+        AnchorTrace.Span trace = AnchorTrace.begin("TimerModule.pauseTimer");
+        try {
+            getEngine().pause();
+            startService();
+        } finally {
+            AnchorTrace.end(trace);
         }
     }
 
-    @ReactMethod
+    @Override
+    public void resumeTimer() {
+        AnchorTrace.Span trace = AnchorTrace.begin("TimerModule.resumeTimer");
+        try {
+            getEngine().resume();
+            startService();
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
+    public void extendTimer(double minutes) {
+        AnchorTrace.Span trace = AnchorTrace.begin("TimerModule.extendTimer");
+        try {
+            getEngine().extend((long) (minutes * 60 * 1000));
+            startService();
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    @Override
     public void stopTimer() {
-        Intent serviceIntent = new Intent(getReactApplicationContext(), TimerNotificationService.class);
-        getReactApplicationContext().stopService(serviceIntent);
+        AnchorTrace.Span trace = AnchorTrace.begin("TimerModule.stopTimer");
+        try {
+            getEngine().cancel();
+            Intent serviceIntent = new Intent(getReactApplicationContext(), TimerNotificationService.class);
+            getReactApplicationContext().stopService(serviceIntent);
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    /**
+     * Current timer state, read synchronously from the native engine
+     */
+    @Override
+    public WritableMap getState() {
+        AnchorTrace.Span trace = AnchorTrace.begin("TimerModule.getState");
+        try {
+            TimerEngine.State state = getEngine().getState();
+            WritableMap map = Arguments.createMap();
+            map.putString("status", state.statusName());
+            map.putString("taskText", state.taskText);
+            map.putDouble("durationMs", state.durationMillis);
+            map.putDouble("remainingMs", state.remainingMillis());
+            if (state.status == TimerEngine.STATUS_RUNNING) {
+                map.putDouble("endTime", state.endWallTimeMillis());
+            } else {
+                map.putNull("endTime");
+            }
+            return map;
+        } finally {
+            AnchorTrace.end(trace);
+        }
+    }
+
+    private TimerEngine getEngine() {
+        return TimerEngine.getInstance(getReactApplicationContext());
+    }
+
+    private void startService() {
+        TimerNotificationService.ensureRunning(getReactApplicationContext());
     }
 }
@@ -5,85 +5,173 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
 import android.os.IBinder;
 import android.os.Handler;
 import android.os.Looper;
+import android.text.TextUtils;
 import androidx.core.app.NotificationCompat;
 
 /**
  * Foreground service to display persistent timer notification
- * Updates every second with remaining time
+ * Renders the AnchorSnapshot - its top task and TimerEngine state. In chronometer
+ * mode the system renders the countdown and the notification is only re-posted
+ * when the progress bar moves; otherwise it is rebuilt every second with the
+ * remaining time as text.
+ * Updates are ticked by the shared TickScheduler, only while the screen is on
+ * and just past the moment the output changes - completion is delivered by an
+ * exact alarm (TimerAlarmReceiver), not by ticks.
+ * When restarted by the system it resumes from the engine's on-disk snapshot.
  */
 public class TimerNotificationService extends Service {
     
-    private static final String CHANNEL_ID = "anchor_timer_channel";
+    static final String CHANNEL_ID = "anchor_timer_channel";
     private static final int NOTIFICATION_ID = 1001;
     
     private Handler updateHandler;
-    private Runnable updateRunnable;
-    private long endTimeMillis;
+    private TickScheduler ticks;
+    private TickScheduler.Subscriber ticker;
+    private AnchorSnapshot.Listener snapshotListener;
+    private TimerEngine.State state = TimerEngine.State.IDLE;
     private String taskText;
-    private long durationMinutes;
+    private long lastRenderKey = Long.MIN_VALUE;
     private NotificationManager notificationManager;
     
+    // Cached for the lifetime of the service so a tick does not re-create them
+    private PendingIntent openAppPendingIntent;
+    private PendingIntent completePendingIntent;
+    private PendingIntent deferPendingIntent;
+    private NotificationCompat.Builder notificationBuilder;
+    private final NotificationCompat.BigTextStyle bigTextStyle = new NotificationCompat.BigTextStyle();
+    private final StringBuilder textBuffer = new StringBuilder(64);
+    
     @Override
     public void onCreate() {
         super.onCreate();
-        createNotificationChannel();
+        createNotificationChannel(this);
         notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
         updateHandler = new Handler(Looper.getMainLooper());
+        ticks = TickScheduler.getInstance(this);
+        ticker = createTicker();
+        createPendingIntents();
+        notificationBuilder = createNotificationBuilder();
+        
+        snapshotListener = new AnchorSnapshot.Listener() {
+            @Override
+            public void onSnapshotChanged(final AnchorSnapshot snapshot) {
+                // Changes come from the JS module and background threads - render on the main looper
+                updateHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Stack changes below the top task don't show here
+                        if (snapshot.timer != state
+                                || !TextUtils.equals(snapshot.currentTaskText(), taskText)) {
+                            renderSnapshot(snapshot);
+                        }
+                    }
+                });
+            }
+        };
+        AnchorSnapshot.addListener(snapshotListener);
     }
     
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (intent == null) {
-            stopSelf();
-            return START_NOT_STICKY;
+        AnchorTrace.Span trace = AnchorTrace.begin("TimerNotificationService.onStartCommand");
+        try {
+            // A null intent means the system restarted us - the engine has restored
+            // the running timer from its snapshot, so just render it again
+            AnchorSnapshot current = AnchorSnapshot.get(this);
+            if (!current.timer.isActive()) {
+                stopSelf();
+                return START_NOT_STICKY;
+            }
+            
+            renderSnapshot(current);
+            return START_STICKY;
+        } finally {
+            AnchorTrace.end(trace);
         }
+    }
+    
+    private void renderSnapshot(AnchorSnapshot snapshot) {
+        TimerEngine.State newState = snapshot.timer;
+        state = newState;
+        taskText = snapshot.currentTaskText();
         
-        taskText = intent.getStringExtra("taskText");
-        durationMinutes = intent.getLongExtra("durationMinutes", 25);
-        endTimeMillis = System.currentTimeMillis() + (durationMinutes * 60 * 1000);
-        
-        // Start foreground service with initial notification
-        startForeground(NOTIFICATION_ID, buildNotification());
+        if (!newState.isActive()) {
+            ticks.remove(ticker);
+            stopSelf();
+            return;
+        }
         
-        // Start updating notification every second
-        startTimerUpdates();
+        // Start (or refresh) foreground notification
+        long remaining = newState.remainingMillis();
+        lastRenderKey = renderKey(remaining);
+        startForeground(NOTIFICATION_ID, buildNotification(remaining));
+        AnchorTrace.count("notification.startForeground");
         
-        return START_STICKY;
+        // Per progress step, or per visible second without the chronometer
+        ticks.schedule(ticker);
     }
     
-    private void startTimerUpdates() {
-        updateRunnable = new Runnable() {
+    private TickScheduler.Subscriber createTicker() {
+        return new TickScheduler.Subscriber() {
             @Override
-            public void run() {
-                long remaining = endTimeMillis - System.currentTimeMillis();
-                
+            public long nextTickDelay(boolean interactive) {
+                // Nobody sees the notification with the screen off; with it on, the
+                // shade may be open, and apps get no signal that tells them it is
+                if (!interactive || state.status != TimerEngine.STATUS_RUNNING) {
+                    return TickScheduler.NO_TICK;
+                }
+                long remaining = state.remainingMillis();
                 if (remaining <= 0) {
-                    // Timer complete - show alert with sound/vibration
-                    showCompletionNotification();
-                    stopSelf();
-                } else {
-                    // Update notification every second with progress
-                    notificationManager.notify(NOTIFICATION_ID, buildNotification());
-                    // Schedule next update in 1 second
-                    updateHandler.postDelayed(this, 1000);
+                    // Completion alarm takes it from here
+                    return TickScheduler.NO_TICK;
+                }
+                if (renderKey(remaining) != lastRenderKey) {
+                    // Fell behind while the screen was off - catch up now
+                    return 0;
+                }
+                return TimerMath.delayUntilNextRender(remaining, state.durationMillis, !state.useChronometer);
+            }
+            
+            @Override
+            public void onTick(boolean interactive) {
+                AnchorTrace.Span trace = AnchorTrace.begin("TimerNotificationService.tick");
+                try {
+                    if (state.status != TimerEngine.STATUS_RUNNING) {
+                        return;
+                    }
+                    long remaining = state.remainingMillis();
+                    
+                    // Only notify when the rendered output would actually differ
+                    long key = renderKey(remaining);
+                    if (remaining > 0 && key != lastRenderKey) {
+                        lastRenderKey = key;
+                        notificationManager.notify(NOTIFICATION_ID, buildNotification(remaining));
+                        AnchorTrace.count("notification.notify");
+                    }
+                } finally {
+                    AnchorTrace.end(trace);
                 }
             }
         };
-        updateHandler.post(updateRunnable);
     }
     
-    private Notification buildNotification() {
-        long remaining = endTimeMillis - System.currentTimeMillis();
-        String timeText = formatTime(remaining);
-        
+    /**
+     * What a notification for this remaining time would show; see TimerMath.renderKey()
+     */
+    private long renderKey(long remaining) {
+        return TimerMath.renderKey(remaining, state.durationMillis, !state.useChronometer);
+    }
+    
+    private void createPendingIntents() {
         // Intent to open app when notification is tapped
         Intent openAppIntent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
+        openAppPendingIntent = PendingIntent.getActivity(
             this, 
             0, 
             openAppIntent, 
@@ -93,7 +181,7 @@ public class TimerNotificationService extends Service {
         // Complete button action
         Intent completeIntent = new Intent(this, NotificationActionReceiver.class);
         completeIntent.setAction("COMPLETE_TASK");
-        PendingIntent completePendingIntent = PendingIntent.getBroadcast(
+        completePendingIntent = PendingIntent.getBroadcast(
             this, 
             0, 
             completeIntent, 
@@ -103,44 +191,90 @@ public class TimerNotificationService extends Service {
         // Defer button action
         Intent deferIntent = new Intent(this, NotificationActionReceiver.class);
         deferIntent.setAction("DEFER_TASK");
-        PendingIntent deferPendingIntent = PendingIntent.getBroadcast(
+        deferPendingIntent = PendingIntent.getBroadcast(
             this, 
             1, 
             deferIntent, 
             PendingIntent.FLAG_IMMUTABLE
         );
-        
-        // Calculate progress
-        long totalDuration = durationMinutes * 60 * 1000;
-        int progress = (int) ((remaining * 100) / totalDuration);
-
+    }
+    
+    /**
+     * Builder holding everything that stays the same for the whole session
+     */
+    private NotificationCompat.Builder createNotificationBuilder() {
         return new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("⏱️ " + (taskText != null ? taskText : "Task in Progress"))
-                .setContentText(timeText + " remaining")
                 .setSmallIcon(android.R.drawable.ic_menu_recent_history)
                 .setOngoing(true)
+                .setOnlyAlertOnce(true)
                 .setPriority(NotificationCompat.PRIORITY_MIN)  // LOWEST priority = silent
-                .setContentIntent(pendingIntent)
+                .setContentIntent(openAppPendingIntent)
                 .addAction(android.R.drawable.ic_menu_close_clear_cancel, "Complete", completePendingIntent)
                 .addAction(android.R.drawable.ic_menu_revert, "Defer", deferPendingIntent)
-                .setStyle(new NotificationCompat.BigTextStyle()
-                    .bigText((taskText != null ? taskText : "Task in Progress") + "\n" + timeText + " remaining"))
-                .setProgress(100, progress, false)  // Progress bar
+                .setStyle(bigTextStyle)
                 .setSound(null)  // Silent
-                .setVibrate(null)  // No vibration until end
-                .build();
+                .setVibrate(null);  // No vibration until end
     }
     
-    private void showCompletionNotification() {
-        Intent openAppIntent = new Intent(this, MainActivity.class);
+    private Notification buildNotification(long remaining) {
+        String title = taskText != null ? taskText : "Task in Progress";
+        boolean paused = state.status == TimerEngine.STATUS_PAUSED;
+        boolean chronometer = state.useChronometer && !paused;
+        
+        notificationBuilder
+                .setContentTitle((paused ? "⏸️ " : "⏱️ ") + title)
+                .setProgress(TimerMath.PROGRESS_MAX, TimerMath.remainingPercent(remaining, state.durationMillis), false)  // Progress bar
+                .setWhen(state.endWallTimeMillis())
+                .setShowWhen(chronometer)
+                .setUsesChronometer(chronometer)
+                .setChronometerCountDown(chronometer);
+        
+        if (chronometer) {
+            // Count-down chronometer rendered by the system, based on the end time
+            notificationBuilder.setContentText("Focus session in progress");
+            bigTextStyle.bigText(title);
+        } else {
+            textBuffer.setLength(0);
+            DurationFormatter.appendCountdown(textBuffer, remaining, paused);
+            String timeText = textBuffer.toString();
+            notificationBuilder.setContentText(timeText);
+            bigTextStyle.bigText(title + "\n" + timeText);
+        }
+        return notificationBuilder.build();
+    }
+    
+    /**
+     * Make sure the service is running for an active timer.
+     * It renders whatever the engine currently holds, so repeated starts are harmless.
+     */
+    static void ensureRunning(Context context) {
+        if (!TimerEngine.getInstance(context).getState().isActive()) {
+            return;
+        }
+        Intent serviceIntent = new Intent(context, TimerNotificationService.class);
+        
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            context.startForegroundService(serviceIntent);
+        } else {
+            context.startService(serviceIntent);
+        }
+    }
+    
+    /**
+     * Alert with sound/vibration once the timer is done
+     */
+    static void showCompletionNotification(Context context, String taskText) {
+        createNotificationChannel(context);
+        
+        Intent openAppIntent = new Intent(context, MainActivity.class);
         PendingIntent pendingIntent = PendingIntent.getActivity(
-            this, 
+            context, 
             0, 
             openAppIntent, 
             PendingIntent.FLAG_IMMUTABLE
         );
         
-        Notification completionNotif = new NotificationCompat.Builder(this, CHANNEL_ID)
+        Notification completionNotif = new NotificationCompat.Builder(context, CHANNEL_ID)
                 .setContentTitle("✅ Task Time Complete!")
                 .setContentText(taskText != null ? taskText : "Well done!")
                 .setSmallIcon(android.R.drawable.ic_menu_recent_history)
@@ -151,24 +285,14 @@ public class TimerNotificationService extends Service {
                 .setVibrate(new long[]{0, 500, 200, 500})
                 .build();
         
-        notificationManager.notify(NOTIFICATION_ID + 1, completionNotif);
-    }
-    
-    private String formatTime(long milliseconds) {
-        int totalSeconds = (int) (milliseconds / 1000);
-        int minutes = totalSeconds / 60;
-        int seconds = totalSeconds % 60;
-        
-        if (minutes >= 60) {
-            int hours = minutes / 60;
-            int mins = minutes % 60;
-            return String.format("%dh %02dm", hours, mins);
+        NotificationManager manager = (NotificationManager) context.getSystemService(NOTIFICATION_SERVICE);
+        if (manager != null) {
+            manager.notify(NOTIFICATION_ID + 1, completionNotif);
+            AnchorTrace.count("notification.completion");
         }
-        
-        return String.format("%dm %02ds", minutes, seconds);
     }
     
-    private void createNotificationChannel() {
+    static void createNotificationChannel(Context context) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             NotificationChannel channel = new NotificationChannel(
                     CHANNEL_ID,
@@ -180,7 +304,7 @@ public class TimerNotificationService extends Service {
             channel.enableLights(true);
             channel.enableVibration(false); // No vibration for timer updates
             
-            NotificationManager manager = getSystemService(NotificationManager.class);
+            NotificationManager manager = context.getSystemService(NotificationManager.class);
             if (manager != null) {
                 manager.createNotificationChannel(channel);
             }
@@ -189,8 +313,11 @@ public class TimerNotificationService extends Service {
     
     @Override
     public void onDestroy() {
-        if (updateHandler != null && updateRunnable != null) {
-            updateHandler.removeCallbacks(updateRunnable);
+        if (snapshotListener != null) {
+            AnchorSnapshot.removeListener(snapshotListener);
+        }
+        if (ticks != null) {
+            ticks.remove(ticker);
         }
         super.onDestroy();
     }
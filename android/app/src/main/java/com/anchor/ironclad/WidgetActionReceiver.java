@@ -12,25 +12,23 @@ public class WidgetActionReceiver extends BroadcastReceiver {
     
     @Override
     public void onReceive(Context context, Intent intent) {
-        String action = intent.getAction();
-        
-        if ("WIDGET_COMPLETE_TASK".equals(action)) {
-            // Open app and trigger complete
-            Intent launchIntent = new Intent(context, MainActivity.class);
-            launchIntent.putExtra("action", "COMPLETE_TASK");
-            launchIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
-            context.startActivity(launchIntent);
+        AnchorTrace.Span trace = AnchorTrace.begin("WidgetActionReceiver.onReceive");
+        try {
+            String action = intent.getAction();
             
-            Toast.makeText(context, "Task completed! 🎯", Toast.LENGTH_SHORT).show();
-            
-        } else if ("WIDGET_DEFER_TASK".equals(action)) {
-            // Open app and trigger defer
-            Intent launchIntent = new Intent(context, MainActivity.class);
-            launchIntent.putExtra("action", "DEFER_TASK");
-            launchIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_SINGLE_TOP);
-            context.startActivity(launchIntent);
-            
-            Toast.makeText(context, "Task deferred", Toast.LENGTH_SHORT).show();
+            if ("WIDGET_COMPLETE_TASK".equals(action)) {
+                // Applied natively in the background; the app is not opened
+                TaskActions.handleAsync(this, context, TaskActions.COMPLETED);
+                
+                Toast.makeText(context, "Task completed! 🎯", Toast.LENGTH_SHORT).show();
+                
+            } else if ("WIDGET_DEFER_TASK".equals(action)) {
+                TaskActions.handleAsync(this, context, TaskActions.DEFERRED);
+                
+                Toast.makeText(context, "Task deferred", Toast.LENGTH_SHORT).show();
+            }
+        } finally {
+            AnchorTrace.end(trace);
         }
     }
 }
@@ -0,0 +1,67 @@
+package com.anchor.ironclad;
+
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of placed widget ids per provider
+ * Queried from AppWidgetManager once, then kept current from the provider
+ * callbacks (onUpdate adds ids; onEnabled, onDeleted, onRestored and
+ * onDisabled drop the entry so it is re-queried).
+ */
+final class WidgetIdCache {
+
+    private static final ConcurrentHashMap<String, int[]> idsByProvider = new ConcurrentHashMap<>();
+
+    private WidgetIdCache() {
+    }
+
+    static int[] getIds(Context context, Class<?> provider) {
+        int[] ids = idsByProvider.get(provider.getName());
+        if (ids == null) {
+            ids = AppWidgetManager.getInstance(context)
+                .getAppWidgetIds(new ComponentName(context, provider));
+            idsByProvider.put(provider.getName(), ids);
+        }
+        return ids;
+    }
+
+    /**
+     * Merge ids the system just handed to onUpdate (a newly placed widget
+     * only gets onUpdate, not onEnabled)
+     */
+    static void add(Class<?> provider, int[] newIds) {
+        int[] ids = idsByProvider.get(provider.getName());
+        if (ids == null) {
+            // Not loaded yet - the next getIds() queries the full set
+            return;
+        }
+        int[] merged = Arrays.copyOf(ids, ids.length + newIds.length);
+        int count = ids.length;
+        for (int id : newIds) {
+            if (!contains(ids, id)) {
+                merged[count++] = id;
+            }
+        }
+        if (count != ids.length) {
+            idsByProvider.put(provider.getName(), Arrays.copyOf(merged, count));
+        }
+    }
+
+    static void invalidate(Class<?> provider) {
+        idsByProvider.remove(provider.getName());
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int existing : ids) {
+            if (existing == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,139 @@
+package com.anchor.ironclad;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.util.SparseArray;
+import android.widget.RemoteViews;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes widget content straight to AppWidgetManager
+ * Remembers what each instance last rendered: instances that have never been
+ * drawn (or that the host asked to redraw via onUpdate) get a full RemoteViews
+ * including click intents, everything else gets a partiallyUpdateAppWidget()
+ * carrying only the views that changed. Instances sharing the same previous
+ * state are updated together in one call.
+ */
+final class WidgetRenderer {
+
+    /**
+     * Widget content that can render itself as a diff against what was shown before
+     */
+    interface Content {
+        /**
+         * @param previous content last rendered on the instance, or null for a full render
+         *                 (all views plus click intents)
+         * @return views to apply, or null when nothing differs from previous
+         */
+        RemoteViews buildViews(Context context, Content previous);
+    }
+
+    private static final ConcurrentHashMap<String, SparseArray<Content>> renderedByProvider = new ConcurrentHashMap<>();
+
+    private WidgetRenderer() {
+    }
+
+    /**
+     * @param appWidgetIds instances to update, or null for every placed instance
+     * @param fullRender   ignore what the instances showed before (host asked for a redraw)
+     */
+    static void renderAnchor(Context context, int[] appWidgetIds, boolean fullRender) {
+        render(context, AnchorWidgetProvider.class, appWidgetIds, fullRender,
+            AnchorWidgetProvider.readContent(context));
+    }
+
+    /**
+     * @param appWidgetIds instances to update, or null for every placed instance
+     * @param fullRender   ignore what the instances showed before (host asked for a redraw)
+     */
+    static void renderBrain(Context context, int[] appWidgetIds, boolean fullRender) {
+        render(context, BrainWidgetProvider.class, appWidgetIds, fullRender,
+            BrainWidgetProvider.readContent(context));
+    }
+
+    /**
+     * Drop render state for removed instances
+     */
+    static void forget(Class<?> provider, int[] appWidgetIds) {
+        SparseArray<Content> rendered = renderedFor(provider);
+        synchronized (rendered) {
+            for (int id : appWidgetIds) {
+                rendered.remove(id);
+            }
+        }
+    }
+
+    /**
+     * Drop all render state, e.g. after a restore remapped the ids
+     */
+    static void forgetAll(Class<?> provider) {
+        SparseArray<Content> rendered = renderedFor(provider);
+        synchronized (rendered) {
+            rendered.clear();
+        }
+    }
+
+    private static void render(Context context, Class<?> provider, int[] appWidgetIds,
+                               boolean fullRender, Content content) {
+        int[] ids = appWidgetIds != null ? appWidgetIds : WidgetIdCache.getIds(context, provider);
+        if (ids.length == 0) {
+            return;
+        }
+
+        AppWidgetManager manager = AppWidgetManager.getInstance(context);
+        SparseArray<Content> rendered = renderedFor(provider);
+        synchronized (rendered) {
+            // Group instances by what they currently show (null key = needs a full render)
+            Map<Content, List<Integer>> groups = new IdentityHashMap<>();
+            for (int id : ids) {
+                Content previous = fullRender ? null : rendered.get(id);
+                List<Integer> group = groups.get(previous);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    groups.put(previous, group);
+                }
+                group.add(id);
+            }
+
+            for (Map.Entry<Content, List<Integer>> entry : groups.entrySet()) {
+                Content previous = entry.getKey();
+                int[] groupIds = toArray(entry.getValue());
+                RemoteViews views = content.buildViews(context, previous);
+                if (views != null) {
+                    if (previous == null) {
+                        manager.updateAppWidget(groupIds, views);
+                        AnchorTrace.count("widget.updateAppWidget");
+                    } else {
+                        manager.partiallyUpdateAppWidget(groupIds, views);
+                        AnchorTrace.count("widget.partiallyUpdateAppWidget");
+                    }
+                }
+                for (int id : groupIds) {
+                    rendered.put(id, content);
+                }
+            }
+        }
+    }
+
+    private static SparseArray<Content> renderedFor(Class<?> provider) {
+        SparseArray<Content> rendered = renderedByProvider.get(provider.getName());
+        if (rendered == null) {
+            renderedByProvider.putIfAbsent(provider.getName(), new SparseArray<Content>());
+            rendered = renderedByProvider.get(provider.getName());
+        }
+        return rendered;
+    }
+
+    private static int[] toArray(List<Integer> ids) {
+        int[] result = new int[ids.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+package com.anchor.ironclad;
+
+import static org.junit.Assert.assertEquals;
+
+import android.app.Application;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Update budgets for the brain widget: a note sync costs one transaction per
+ * batch, a sync that changes nothing costs nothing, and the widget is only
+ * redrawn when the note count changes
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class,
+    shadows = { CountingNotificationManager.class, CountingAppWidgetManager.class })
+public class BrainWidgetBudgetTest {
+
+    private static final int NOTES = 500;
+    private static final int BATCH = 50;
+
+    private SessionHarness harness;
+    private BrainWidgetModule module;
+
+    @Before
+    public void setUp() {
+        harness = new SessionHarness();
+        harness.placeWidgets(BrainWidgetProvider.class, R.layout.widget_brain, 1);
+        module = new BrainWidgetModule(harness.reactContext);
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void fullSyncWritesOncePerBatch() {
+        harness.startMeasuring();
+        syncAll();
+
+        assertEquals(NOTES, NoteSummaryStore.getInstance(harness.app).count());
+        // One redraw and one list reload, after the last batch only
+        harness.traffic().assertWithin(0, 2, 0, NOTES / BATCH + 1);
+    }
+
+    @Test
+    public void editsReloadTheListWithoutRedrawingTheWidget() {
+        syncAll();
+        harness.startMeasuring();
+        for (int i = 0; i < 20; i++) {
+            module.upsertNotes(JavaOnlyArray.of(note(i, "edited")));
+        }
+        harness.traffic().assertWithin(0, 20, 0, 20);
+
+        harness.startMeasuring();
+        module.removeNotes(JavaOnlyArray.of("n1", "n2", "n3", "n4", "n5"));
+        assertEquals(NOTES - 5, NoteSummaryStore.getInstance(harness.app).count());
+        // The count changed: one redraw plus the list reload, in one transaction
+        harness.traffic().assertWithin(0, 2, 0, 1);
+    }
+
+    @Test
+    public void emptySyncTouchesNothing() {
+        syncAll();
+        harness.startMeasuring();
+        module.syncNotes(new JavaOnlyArray(), new JavaOnlyArray(), true);
+
+        assertEquals(NOTES, NoteSummaryStore.getInstance(harness.app).count());
+        harness.traffic().assertWithin(0, 0, 0, 0);
+    }
+
+    @Test
+    public void syncOfEditedNotesOnlyReloadsTheList() {
+        syncAll();
+        harness.startMeasuring();
+        // 3 notes edited while the widget was not told, e.g. restored from a backup
+        module.syncNotes(JavaOnlyArray.of(note(0, "edited", 1), note(1, "edited", 1), note(2, "edited", 1)),
+            new JavaOnlyArray(), true);
+
+        assertEquals(NOTES, NoteSummaryStore.getInstance(harness.app).count());
+        // Same count: the header stays, only the list is told to reload
+        harness.traffic().assertWithin(0, 1, 0, 1);
+    }
+
+    /**
+     * Send every note through syncNotes in batches of BATCH, the last one flagged
+     */
+    private void syncAll() {
+        for (int start = 0; start < NOTES; start += BATCH) {
+            JavaOnlyArray batch = new JavaOnlyArray();
+            for (int i = start; i < Math.min(NOTES, start + BATCH); i++) {
+                batch.pushMap(note(i, "preview", 0));
+            }
+            module.syncNotes(batch, new JavaOnlyArray(), start + BATCH >= NOTES);
+        }
+    }
+
+    private static JavaOnlyMap note(int i, String preview) {
+        return note(i, preview, 1);
+    }
+
+    private static JavaOnlyMap note(int i, String preview, long version) {
+        return JavaOnlyMap.of(
+            "id", "n" + i,
+            "title", "Note " + i,
+            "preview", preview + " " + i,
+            "updatedAt", (double) (1760000000000L + i * 10 + version));
+    }
+}
@@ -0,0 +1,66 @@
+package com.anchor.ironclad;
+
+import android.appwidget.AppWidgetManager;
+import android.widget.RemoteViews;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowAppWidgetManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts every widget update sent to the host: full updates, partial updates
+ * and collection reloads, one per call whatever the number of instances.
+ * Robolectric has no host for the last two, so they are only counted.
+ */
+@Implements(AppWidgetManager.class)
+public class CountingAppWidgetManager extends ShadowAppWidgetManager {
+
+    private static final AtomicLong updates = new AtomicLong();
+
+    static long updates() {
+        return updates.get();
+    }
+
+    static void resetCount() {
+        updates.set(0);
+    }
+
+    @Implementation
+    @Override
+    protected void updateAppWidget(int[] appWidgetIds, RemoteViews views) {
+        updates.incrementAndGet();
+        // The shadow applies each id through updateAppWidget(int), counted once here
+        for (int id : appWidgetIds) {
+            super.updateAppWidget(id, views);
+        }
+    }
+
+    @Implementation
+    @Override
+    protected void updateAppWidget(int appWidgetId, RemoteViews views) {
+        updates.incrementAndGet();
+        super.updateAppWidget(appWidgetId, views);
+    }
+
+    @Implementation
+    protected void partiallyUpdateAppWidget(int[] appWidgetIds, RemoteViews views) {
+        updates.incrementAndGet();
+    }
+
+    @Implementation
+    protected void partiallyUpdateAppWidget(int appWidgetId, RemoteViews views) {
+        updates.incrementAndGet();
+    }
+
+    @Implementation
+    protected void notifyAppWidgetViewDataChanged(int[] appWidgetIds, int viewId) {
+        updates.incrementAndGet();
+    }
+
+    @Implementation
+    protected void notifyAppWidgetViewDataChanged(int appWidgetId, int viewId) {
+        updates.incrementAndGet();
+    }
+}
@@ -0,0 +1,35 @@
+package com.anchor.ironclad;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowNotificationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts every notification handed to the system, whichever code path posted
+ * it; Robolectric routes startForeground through notify() as well
+ */
+@Implements(NotificationManager.class)
+public class CountingNotificationManager extends ShadowNotificationManager {
+
+    private static final AtomicLong posted = new AtomicLong();
+
+    static long posted() {
+        return posted.get();
+    }
+
+    static void resetCount() {
+        posted.set(0);
+    }
+
+    @Implementation
+    @Override
+    protected void notify(String tag, int id, Notification notification) {
+        posted.incrementAndGet();
+        super.notify(tag, id, notification);
+    }
+}
@@ -0,0 +1,202 @@
+package com.anchor.ironclad;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Update budgets for focus sessions: notifications, widget updates, broadcasts
+ * and disk writes per simulated session. A failure here means a change made
+ * the app talk to the system more often than the design allows - fix the
+ * change, or raise the budget deliberately with a reason.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class,
+    shadows = { CountingNotificationManager.class, CountingAppWidgetManager.class })
+public class SessionBudgetTest {
+
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+
+    // AnchorWidgetProvider moves the progress bar in 5% steps
+    private static final int WIDGET_PROGRESS_STEPS = 20;
+    // One stack write when the session starts, a timer snapshot on start and on completion
+    private static final int SESSION_DISK_WRITES = 3;
+
+    private SessionHarness harness;
+
+    @Before
+    public void setUp() {
+        harness = new SessionHarness();
+        harness.placeWidgets(AnchorWidgetProvider.class, R.layout.widget_anchor, 1);
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void twentyFiveMinuteSessionWithScreenOn() {
+        harness.startMeasuring();
+        harness.publishFrame(startFrame(25, false));
+        harness.advance(25 * MINUTE + 5 * SECOND);
+
+        assertCompleted();
+        // Chronometer mode: the system draws the countdown, so the notification is
+        // re-posted once per 1% progress step, plus the start and the completion alert
+        harness.traffic().assertWithin(
+            1 + TimerMath.PROGRESS_MAX + 1,
+            1 + WIDGET_PROGRESS_STEPS + 1,
+            0,
+            SESSION_DISK_WRITES);
+    }
+
+    @Test
+    public void twentyFiveMinuteSessionWithScreenOff() {
+        harness.setScreenOn(false);
+        harness.startMeasuring();
+        harness.publishFrame(startFrame(25, false));
+        harness.advance(25 * MINUTE + 5 * SECOND);
+
+        assertCompleted();
+        // Nobody is looking: only the start, the end and the completion alert
+        harness.traffic().assertWithin(2, 2, 0, SESSION_DISK_WRITES);
+    }
+
+    @Test
+    public void twentyFiveMinuteTextCountdownWithScreenOn() {
+        harness.startMeasuring();
+        new TimerModule(harness.reactContext).startTimerWithMode("Write the report", 25, false);
+        harness.advance(25 * MINUTE + 5 * SECOND);
+
+        assertCompleted();
+        // Without the chronometer the text changes every second - but no more often
+        harness.traffic().assertWithin(
+            1 + 25 * 60 + 1,
+            1 + WIDGET_PROGRESS_STEPS + 1,
+            0,
+            2);
+    }
+
+    @Test
+    public void threeHourSessionWithScreenCyclesAndNowBar() {
+        SessionHarness.enableNowBar();
+        harness.startMeasuring();
+        harness.publishFrame(startFrame(180, true));
+        for (int hour = 0; hour < 3; hour++) {
+            // Glance at the phone for ten minutes at the top of each hour
+            harness.advance(10 * MINUTE);
+            harness.setScreenOn(false);
+            harness.advance(50 * MINUTE);
+            harness.setScreenOn(true);
+        }
+        harness.advance(5 * SECOND);
+
+        assertCompleted();
+        SessionHarness.Traffic traffic = harness.traffic();
+        // 108 s per progress step: about six steps per ten minutes on, and one catch-up
+        // post each time the screen comes back, plus the start and the completion alert
+        // Widget: a 9-minute refresh, delayed while the screen is off, plus start and end
+        // Now Bar: one broadcast per minute of the session, plus the first one and the clear
+        traffic.assertWithin(
+            1 + 3 * (6 + 1) + 1,
+            1 + 3 * 2 + 1 + 1,
+            180 + 2,
+            SESSION_DISK_WRITES);
+        assertTrue("Now Bar was never published: " + traffic, traffic.broadcasts > 0);
+    }
+
+    @Test
+    public void notificationAndWidgetActionsStayWithinBudget() throws Exception {
+        harness.publishFrame(startFrame(25, false));
+        harness.advance(5 * MINUTE);
+        assertTrue(harness.isServiceRunning());
+
+        // Complete from the notification: the next task's timer starts
+        harness.startMeasuring();
+        harness.tapNotificationAction("Complete");
+        assertEquals("Plan the sprint", harness.snapshot().currentTaskText());
+        // Stack file, action queue row and timer snapshot; the notification may be
+        // redrawn for the new top task, the new timer and the service restart
+        harness.traffic().assertWithin(3, 2, 0, 3);
+
+        // Defer from the widget
+        harness.advance(5 * MINUTE);
+        harness.startMeasuring();
+        harness.tapWidgetAction("WIDGET_DEFER_TASK");
+        assertEquals("Reply to email", harness.snapshot().currentTaskText());
+        harness.traffic().assertWithin(3, 2, 0, 3);
+
+        // Completing the last task ends the session and takes the notification away
+        harness.advance(5 * MINUTE);
+        harness.startMeasuring();
+        harness.tapNotificationAction("Complete");
+        assertFalse(harness.snapshot().timer.isActive());
+        assertFalse(harness.isServiceRunning());
+        harness.traffic().assertWithin(1, 2, 0, 3);
+    }
+
+    @Test
+    public void widgetModuleCallsOnlyRedrawWhatChanged() {
+        WidgetModule module = new WidgetModule(harness.reactContext);
+        harness.publishFrame(startFrame(25, false));
+        harness.startMeasuring();
+        // What the JS loop used to do: push the widget every second of a 5-minute stretch
+        for (int second = 0; second < 5 * 60; second++) {
+            module.updateWidget("Write the report", 25 * MINUTE - second * SECOND);
+            harness.advance(SECOND);
+        }
+        // The widget is diffed against what it shows: one update per 5% progress step
+        // (75 s), however often it is asked; the notification moves every 1% (15 s)
+        harness.traffic().assertWithin(
+            5 * 60 / 15 + 1,
+            5 * 60 / 75 + 1,
+            0,
+            0);
+
+        harness.advance(20 * MINUTE + 5 * SECOND);
+        assertCompleted();
+        harness.startMeasuring();
+        module.clearWidget();
+        module.clearWidget();
+        // Already showing the finished session
+        harness.traffic().assertWithin(0, 0, 0, 0);
+    }
+
+    private void assertCompleted() {
+        assertEquals(TimerEngine.STATUS_COMPLETED, harness.snapshot().timer.status);
+        assertFalse(harness.isServiceRunning());
+    }
+
+    /**
+     * The frame JS publishes when a focus session starts on a three-task stack
+     */
+    private static JavaOnlyMap startFrame(int minutes, boolean nowBar) {
+        JavaOnlyMap frame = JavaOnlyMap.of(
+            "stack", JavaOnlyMap.of(
+                "tasks", JavaOnlyArray.of(
+                    JavaOnlyMap.of("id", "t1", "text", "Write the report"),
+                    JavaOnlyMap.of("id", "t2", "text", "Plan the sprint"),
+                    JavaOnlyMap.of("id", "t3", "text", "Reply to email")),
+                "timerMinutes", minutes,
+                "autoDND", false),
+            "timer", JavaOnlyMap.of("taskText", "Write the report", "durationMinutes", (double) minutes));
+        if (nowBar) {
+            frame.putBoolean("nowBar", true);
+        }
+        return frame;
+    }
+}
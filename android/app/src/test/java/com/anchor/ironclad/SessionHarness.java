@@ -0,0 +1,446 @@
+package com.anchor.ironclad;
+
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.AlarmManager;
+import android.app.Application;
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.BroadcastReceiver;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.BridgeReactContext;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.shadows.ShadowAlarmManager;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * Drives the native surfaces through a simulated session on Robolectric's clock
+ * Time moves in one-second steps. After each step the harness runs everything
+ * that became due: main looper work (TickScheduler ticks), the surface
+ * coordinator's thread, alarms (the completion alarm always, widget refreshes
+ * only with the screen on, as non-waking alarms wait for the device to wake),
+ * and service starts and stops, which Robolectric records but never performs.
+ *
+ * Traffic is observed at the system boundary, never taken from the app's own
+ * counters: notifications and widget updates through the counting shadows
+ * (the test classes install CountingNotificationManager and
+ * CountingAppWidgetManager), broadcasts from what Robolectric recorded minus
+ * those the harness sent itself, and disk writes as data files whose contents
+ * changed. Files are compared after every settle(), so a file written several
+ * times within one step counts once.
+ */
+final class SessionHarness {
+
+    private static final long STEP_MS = 1000;
+    // Enough for the coordinator to pick up a frame, which waits 75 ms for more
+    private static final long FRAME_MS = 100;
+
+    /**
+     * System traffic caused since the last startMeasuring()
+     */
+    static final class Traffic {
+        final long notifications;
+        final long widgetUpdates;
+        final long broadcasts;
+        final long diskWrites;
+
+        Traffic(long notifications, long widgetUpdates, long broadcasts, long diskWrites) {
+            this.notifications = notifications;
+            this.widgetUpdates = widgetUpdates;
+            this.broadcasts = broadcasts;
+            this.diskWrites = diskWrites;
+        }
+
+        void assertWithin(long notificationBudget, long widgetBudget, long broadcastBudget, long diskBudget) {
+            assertAtMost("notifications posted", notifications, notificationBudget);
+            assertAtMost("widget updates", widgetUpdates, widgetBudget);
+            assertAtMost("broadcasts sent", broadcasts, broadcastBudget);
+            assertAtMost("disk writes", diskWrites, diskBudget);
+        }
+
+        @Override
+        public String toString() {
+            return "notifications=" + notifications + " widgetUpdates=" + widgetUpdates
+                + " broadcasts=" + broadcasts + " diskWrites=" + diskWrites;
+        }
+
+        private void assertAtMost(String what, long actual, long budget) {
+            assertTrue(what + ": " + actual + " over a budget of " + budget + " (" + this + ")",
+                actual <= budget);
+        }
+    }
+
+    final Application app;
+    final BridgeReactContext reactContext;
+
+    private final AlarmManager alarmManager;
+    private ServiceController<TimerNotificationService> service;
+    private int startId;
+    private boolean screenOn = true;
+    private int harnessBroadcasts;
+    private int broadcastBaseline;
+    // Data file (journal and temp files folded in) -> length, mtime and checksum at the last settle()
+    private Map<String, String> fileStates = new HashMap<>();
+    private long diskWrites;
+
+    SessionHarness() {
+        resetProcessState();
+        app = RuntimeEnvironment.getApplication();
+        reactContext = new BridgeReactContext(app);
+        alarmManager = (AlarmManager) app.getSystemService(Context.ALARM_SERVICE);
+        setScreenOn(true);
+    }
+
+    // --- Driving ---
+
+    /**
+     * Place widgets on the home screen; the provider gets its onUpdate
+     */
+    int[] placeWidgets(Class<? extends AppWidgetProvider> provider, int layoutId, int count) {
+        int[] ids = shadowOf(AppWidgetManager.getInstance(app)).createWidgets(provider, layoutId, count);
+        settle();
+        return ids;
+    }
+
+    /**
+     * Publish a frame the way the JS store does, and let the coordinator apply it
+     */
+    void publishFrame(ReadableMap frame) {
+        new SurfaceModule(reactContext).publishFrame(frame);
+        advance(FRAME_MS);
+    }
+
+    void setScreenOn(boolean on) {
+        screenOn = on;
+        shadowOf((PowerManager) app.getSystemService(Context.POWER_SERVICE)).setIsInteractive(on);
+        sendBroadcast(new Intent(on ? Intent.ACTION_SCREEN_ON : Intent.ACTION_SCREEN_OFF));
+    }
+
+    /**
+     * Let time pass, running whatever falls due on the way
+     */
+    void advance(long millis) {
+        long end = SystemClock.elapsedRealtime() + millis;
+        for (long now = SystemClock.elapsedRealtime(); now < end; now = SystemClock.elapsedRealtime()) {
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(Math.min(STEP_MS, end - now)));
+            settle();
+        }
+    }
+
+    /**
+     * Tap a button on the ongoing timer notification
+     */
+    void tapNotificationAction(String title) throws PendingIntent.CanceledException {
+        Notification notification = shadowOf(service.get()).getLastForegroundNotification();
+        for (Notification.Action action : notification.actions) {
+            if (title.contentEquals(action.title)) {
+                harnessBroadcasts++;
+                action.actionIntent.send();
+                awaitTaskActions();
+                return;
+            }
+        }
+        throw new AssertionError("No \"" + title + "\" action on the timer notification");
+    }
+
+    /**
+     * Tap a widget button, which broadcasts straight to its receiver
+     */
+    void tapWidgetAction(String action) {
+        sendBroadcast(new Intent(action).setClass(app, WidgetActionReceiver.class));
+        awaitTaskActions();
+    }
+
+    AnchorSnapshot snapshot() {
+        return AnchorSnapshot.get(app);
+    }
+
+    boolean isServiceRunning() {
+        return service != null;
+    }
+
+    // --- Measuring ---
+
+    void startMeasuring() {
+        settle();
+        CountingNotificationManager.resetCount();
+        CountingAppWidgetManager.resetCount();
+        diskWrites = 0;
+        broadcastBaseline = shadowOf(app).getBroadcastIntents().size();
+        harnessBroadcasts = 0;
+    }
+
+    Traffic traffic() {
+        settle();
+        return new Traffic(
+            CountingNotificationManager.posted(),
+            CountingAppWidgetManager.updates(),
+            shadowOf(app).getBroadcastIntents().size() - broadcastBaseline - harnessBroadcasts,
+            diskWrites);
+    }
+
+    void close() {
+        if (service != null) {
+            service.destroy();
+            service = null;
+        }
+        resetProcessState();
+    }
+
+    // --- Internals ---
+
+    private void sendBroadcast(Intent intent) {
+        harnessBroadcasts++;
+        app.sendBroadcast(intent);
+        settle();
+    }
+
+    /**
+     * Deliver a tapped action and wait for TaskActions to apply it in the background
+     */
+    private void awaitTaskActions() {
+        shadowOf(Looper.getMainLooper()).idle();
+        ExecutorService executor = ReflectionHelpers.getStaticField(TaskActions.class, "EXECUTOR");
+        try {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new AssertionError(e);
+        }
+        settle();
+    }
+
+    /**
+     * Run everything that is due now, until nothing new turns up
+     */
+    private void settle() {
+        for (int pass = 0; pass < 3; pass++) {
+            shadowOf(Looper.getMainLooper()).idle();
+            Looper coordinator = coordinatorLooper();
+            if (coordinator != null) {
+                shadowOf(coordinator).idle();
+            }
+            fireDueAlarms();
+            pumpServices();
+        }
+        scanDisk();
+    }
+
+    private void fireDueAlarms() {
+        List<ShadowAlarmManager.ScheduledAlarm> alarms = new ArrayList<>(shadowOf(alarmManager).getScheduledAlarms());
+        for (ShadowAlarmManager.ScheduledAlarm alarm : alarms) {
+            int type = alarm.getType();
+            boolean wakeup = type == AlarmManager.ELAPSED_REALTIME_WAKEUP || type == AlarmManager.RTC_WAKEUP;
+            boolean elapsed = type == AlarmManager.ELAPSED_REALTIME_WAKEUP || type == AlarmManager.ELAPSED_REALTIME;
+            long now = elapsed ? SystemClock.elapsedRealtime() : System.currentTimeMillis();
+            if (alarm.getTriggerAtMs() > now || (!wakeup && !screenOn)) {
+                continue;
+            }
+            if (alarm.onAlarmListener != null) {
+                // In-process alarm, e.g. TickScheduler's screen-off tick
+                alarmManager.cancel(alarm.onAlarmListener);
+                alarm.onAlarmListener.onAlarm();
+                shadowOf(Looper.getMainLooper()).idle();
+                continue;
+            }
+            PendingIntent operation = alarm.operation;
+            if (operation == null) {
+                continue;
+            }
+            alarmManager.cancel(operation);
+            Intent intent = shadowOf(operation).getSavedIntent();
+            BroadcastReceiver receiver = ReflectionHelpers.callConstructor(
+                receiverClass(intent.getComponent()));
+            receiver.onReceive(app, intent);
+            shadowOf(Looper.getMainLooper()).idle();
+        }
+    }
+
+    private static Class<? extends BroadcastReceiver> receiverClass(ComponentName component) {
+        try {
+            return Class.forName(component.getClassName()).asSubclass(BroadcastReceiver.class);
+        } catch (ClassNotFoundException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Perform the service starts and stops the app asked for
+     */
+    private void pumpServices() {
+        Intent started;
+        while ((started = shadowOf(app).getNextStartedService()) != null) {
+            if (!isTimerService(started)) {
+                continue;
+            }
+            if (service == null) {
+                service = Robolectric.buildService(TimerNotificationService.class, started).create();
+            }
+            service.startCommand(0, ++startId);
+        }
+        Intent stopped;
+        while ((stopped = shadowOf(app).getNextStoppedService()) != null) {
+            if (isTimerService(stopped) && service != null) {
+                service.destroy();
+                service = null;
+            }
+        }
+        if (service != null && shadowOf(service.get()).isStoppedBySelf()) {
+            service.destroy();
+            service = null;
+        }
+    }
+
+    /**
+     * Count the data files whose contents changed since the last scan
+     */
+    private void scanDisk() {
+        // SharedPreferences.apply() writes on a background thread
+        ReflectionHelpers.callStaticMethod(
+            ReflectionHelpers.loadClass(getClass().getClassLoader(), "android.app.QueuedWork"), "waitToFinish");
+        Map<String, String> states = new HashMap<>();
+        File dataDir = app.getDataDir();
+        for (String dir : new String[] { "files", "shared_prefs", "databases" }) {
+            collectFiles(dataDir, new File(dataDir, dir), states);
+        }
+        Set<String> changed = new HashSet<>();
+        Set<String> names = new HashSet<>(states.keySet());
+        names.addAll(fileStates.keySet());
+        for (String name : names) {
+            String before = fileStates.get(name);
+            String after = states.get(name);
+            if (before == null ? after != null : !before.equals(after)) {
+                changed.add(dataFileName(name));
+            }
+        }
+        fileStates = states;
+        diskWrites += changed.size();
+    }
+
+    private static void collectFiles(File root, File file, Map<String, String> states) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                collectFiles(root, child, states);
+            }
+            return;
+        }
+        if (!file.isFile()) {
+            return;
+        }
+        try {
+            CRC32 checksum = new CRC32();
+            checksum.update(Files.readAllBytes(file.toPath()));
+            long modified = Files.getLastModifiedTime(file.toPath()).to(TimeUnit.NANOSECONDS);
+            states.put(root.toPath().relativize(file.toPath()).toString(),
+                file.length() + ":" + modified + ":" + checksum.getValue());
+        } catch (IOException e) {
+            // Deleted while scanning, e.g. a rollback journal; the next scan sees the result
+        }
+    }
+
+    /**
+     * The file a journal, backup or temporary file belongs to
+     */
+    private static String dataFileName(String name) {
+        for (String suffix : new String[] { "-journal", "-wal", "-shm", ".bak", ".new" }) {
+            if (name.endsWith(suffix)) {
+                return name.substring(0, name.length() - suffix.length());
+            }
+        }
+        return name;
+    }
+
+    private static boolean isTimerService(Intent intent) {
+        return intent.getComponent() != null
+            && TimerNotificationService.class.getName().equals(intent.getComponent().getClassName());
+    }
+
+    private static Looper coordinatorLooper() {
+        SurfaceUpdateCoordinator coordinator = ReflectionHelpers.getStaticField(SurfaceUpdateCoordinator.class, "instance");
+        if (coordinator == null) {
+            return null;
+        }
+        Handler handler = ReflectionHelpers.getField(coordinator, "handler");
+        return handler.getLooper();
+    }
+
+    /**
+     * Robolectric gives every test a fresh application and data directory, but
+     * the app's process-wide singletons survive from the previous test
+     */
+    private static void resetProcessState() {
+        Looper coordinator = coordinatorLooper();
+        if (coordinator != null) {
+            coordinator.quitSafely();
+        }
+        AnchorDatabase database = ReflectionHelpers.getStaticField(AnchorDatabase.class, "instance");
+        if (database != null) {
+            database.close();
+        }
+        ReflectionHelpers.setStaticField(AnchorDatabase.class, "instance", null);
+        ReflectionHelpers.setStaticField(AnchorEventBus.class, "instance", null);
+        ReflectionHelpers.setStaticField(CycleEventLog.class, "instance", null);
+        ReflectionHelpers.setStaticField(CycleScheduler.class, "instance", null);
+        ReflectionHelpers.setStaticField(NoteSummaryStore.class, "instance", null);
+        ReflectionHelpers.setStaticField(HistoryStore.class, "instance", null);
+        ReflectionHelpers.setStaticField(NoteSearchIndex.class, "instance", null);
+        ReflectionHelpers.setStaticField(SurfaceUpdateCoordinator.class, "instance", null);
+        ReflectionHelpers.setStaticField(TimerEngine.class, "instance", null);
+        ReflectionHelpers.setStaticField(TickScheduler.class, "instance", null);
+
+        ReflectionHelpers.<AtomicReference<?>>getStaticField(AnchorSnapshot.class, "current").set(null);
+        ReflectionHelpers.<List<?>>getStaticField(AnchorSnapshot.class, "listeners").clear();
+        ReflectionHelpers.setStaticField(AnchorSnapshot.class, "snapshotFile", null);
+
+        ReflectionHelpers.setStaticField(NowBarPublisher.class, "available", null);
+        ReflectionHelpers.setStaticField(NowBarPublisher.class, "intent", null);
+        ReflectionHelpers.setStaticField(NowBarPublisher.class, "sentText", null);
+        ReflectionHelpers.setStaticField(NowBarPublisher.class, "sentKey", 0L);
+        ReflectionHelpers.setStaticField(NowBarPublisher.class, "shown", null);
+
+        ReflectionHelpers.<Map<?, ?>>getStaticField(WidgetIdCache.class, "idsByProvider").clear();
+        ReflectionHelpers.<Map<?, ?>>getStaticField(WidgetRenderer.class, "renderedByProvider").clear();
+        AnchorTrace.reset();
+    }
+
+    /**
+     * Pretend to be a Samsung device with a Now Bar receiver installed
+     */
+    static void enableNowBar() {
+        ReflectionHelpers.setStaticField(NowBarPublisher.class, "available", Boolean.TRUE);
+    }
+}
@@ -1,11 +1,36 @@
 import "../global.css";
 import { Stack } from 'expo-router';
 import { StatusBar } from 'expo-status-bar';
+import { useEffect } from 'react';
 import { View } from 'react-native';
 import { GestureHandlerRootView } from 'react-native-gesture-handler';
 import { JournalModal } from '../components/JournalModal';
+import { useStore, whenStorePersisted } from '../store/useStore';
+import { startAnchorEvents, PendingAction } from '../utils/anchorEvents';
+
+// Notification and widget buttons apply their actions natively and queue them for the store
+const applyAction = (action: PendingAction) => useStore.getState().applyNativeAction(action);
+const anchorEventsOptions = {
+    lastAppliedId: () => useStore.getState().lastAppliedActionId,
+    persisted: whenStorePersisted,
+};
 
 export default function Layout() {
+    // Queued actions need the persisted stack, so start once it is loaded
+    useEffect(() => {
+        let stop = () => {};
+        const start = () => {
+            stop();
+            stop = startAnchorEvents(applyAction, anchorEventsOptions);
+        };
+        if (useStore.persist.hasHydrated()) start();
+        const unsubscribe = useStore.persist.onFinishHydration(start);
+        return () => {
+            unsubscribe();
+            stop();
+        };
+    }, []);
+
     return (
         <GestureHandlerRootView style={{ flex: 1 }}>
             <View className="flex-1 bg-bg">
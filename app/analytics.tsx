@@ -4,40 +4,28 @@ import { SafeAreaView } from 'react-native-safe-area-context';
 import { Stack, Link } from 'expo-router';
 import { useStore } from '../store/useStore';
 import { SimpleChart } from '../components/SimpleChart';
-import { subDays, isSameDay, differenceInDays, startOfDay } from 'date-fns';
+import { useHistoryCount, useHistoryRollup, useHistoryStreak, rollupAverage } from '../utils/historyStore';
+import { subDays, startOfDay } from 'date-fns';
 
 export default function Analytics() {
     const history = useStore(s => s.history);
     const stack = useStore(s => s.stack);
     const backlog = useStore(s => s.backlog);
     const [period, setPeriod] = useState<7 | 30>(7);
-
-    // Streak calculation
-    const streak = useMemo(() => {
-        let count = 0;
-        let day = startOfDay(new Date());
-        while (true) {
-            const hasTask = history.some(t => t.completedAt && isSameDay(t.completedAt, day));
-            if (!hasTask && count > 0) break;
-            if (hasTask) count++;
-            day = subDays(day, 1);
-            if (count === 0 && !hasTask) break;
-        }
-        return count;
-    }, [history]);
+    const historyCount = useHistoryCount(history);
+    const streak = useHistoryStreak(history);
+    const allTime = useHistoryRollup(history);
+    const periodStart = useMemo(() => startOfDay(subDays(new Date(), period - 1)).getTime(), [period]);
+    const periodRollup = useHistoryRollup(history, { from: periodStart });
 
     // Completion rate
-    const totalCreated = history.length + stack.length + backlog.length;
-    const completionRate = totalCreated > 0 ? Math.round((history.length / totalCreated) * 100) : 0;
+    const totalCreated = historyCount.total + stack.length + backlog.length;
+    const completionRate = totalCreated > 0 ? Math.round((historyCount.total / totalCreated) * 100) : 0;
 
     // Average energy & focus
-    const journaled = history.filter(t => t.journal);
-    const avgEnergy = journaled.length > 0
-        ? (journaled.reduce((s, t) => s + (t.journal?.energy ?? 0), 0) / journaled.length).toFixed(1)
-        : '—';
-    const avgFocus = journaled.length > 0
-        ? (journaled.reduce((s, t) => s + (t.journal?.focus ?? 0), 0) / journaled.length).toFixed(1)
-        : '—';
+    const avgEnergy = rollupAverage(allTime, 'energy')?.toFixed(1) ?? '—';
+    const avgFocus = rollupAverage(allTime, 'focus')?.toFixed(1) ?? '—';
+    const focusHours = (periodRollup.timeOnTaskMs / 3600000).toFixed(1);
 
     // Hour-of-day heatmap (24 cells)
     const hourData = useMemo(() => {
@@ -96,7 +84,7 @@ export default function Analytics() {
                 <View className="flex-row flex-wrap gap-3 mb-4">
                     <View className="flex-1 min-w-[45%] bg-surface p-4 rounded-2xl border border-dim items-center">
                         <Text className="text-gray-500 text-[10px] uppercase font-bold">Total Done</Text>
-                        <Text className="text-white text-3xl font-black">{history.length}</Text>
+                        <Text className="text-white text-3xl font-black">{historyCount.total}</Text>
                     </View>
                     <View className="flex-1 min-w-[45%] bg-surface p-4 rounded-2xl border border-dim items-center">
                         <Text className="text-gray-500 text-[10px] uppercase font-bold">Streak</Text>
@@ -122,6 +110,11 @@ export default function Analytics() {
                         <Text className="text-gray-500 text-[10px] uppercase font-bold">Avg Focus</Text>
                         <Text className="text-focus text-2xl font-black">{avgFocus}</Text>
                     </View>
+                    <View className="flex-1 bg-surface p-4 rounded-2xl border border-dim items-center">
+                        <Text className="text-gray-500 text-[10px] uppercase font-bold">Focus Time</Text>
+                        <Text className="text-white text-2xl font-black">{focusHours}h</Text>
+                        <Text className="text-gray-600 text-[10px]">last {period} days</Text>
+                    </View>
                 </View>
 
                 {/* Hour-of-Day Heatmap */}
@@ -169,7 +162,7 @@ export default function Analytics() {
                             </View>
                         </View>
                     ))}
-                    {history.length > 10 && (
+                    {historyCount.total > 10 && (
                         <Link href="/history" asChild>
                             <Pressable
                                 className="bg-surface border border-dim p-3 rounded-xl mt-2"
@@ -177,7 +170,7 @@ export default function Analytics() {
                                 accessibilityRole="button"
                             >
                                 <Text className="text-focus text-sm font-bold text-center">
-                                    View All {history.length} Tasks →
+                                    View All {historyCount.total} Tasks →
                                 </Text>
                             </Pressable>
                         </Link>
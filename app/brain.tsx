@@ -1,9 +1,12 @@
-import React, { useState, useMemo } from 'react';
+import React, { useState, useMemo, useEffect, useRef } from 'react';
 import { View, Text, TextInput, Pressable, ScrollView, KeyboardAvoidingView, Platform } from 'react-native';
 import { SafeAreaView } from 'react-native-safe-area-context';
 import { Link, router } from 'expo-router';
 import { useStore } from '../store/useStore';
 import { format } from 'date-fns';
+import { searchNotes } from '../utils/noteSearch';
+
+const SEARCH_PAGE_SIZE = 50;
 
 export default function Brain() {
     const { brainNotes, categories, addNote, deleteNote } = useStore();
@@ -21,15 +24,66 @@ export default function Brain() {
         { name: 'Quick 🚀', content: '' },
     ];
 
+    // Ranked results from the native index: note id -> snippet (null = not available),
+    // loaded a page at a time; nativeTotal counts every match
+    const [nativeResults, setNativeResults] = useState<Map<string, string> | null>(null);
+    const [nativeTotal, setNativeTotal] = useState(0);
+    const [loadingMore, setLoadingMore] = useState(false);
+    const searchRef = useRef(search);
+    searchRef.current = search;
+
+    useEffect(() => {
+        if (!search.trim()) {
+            setNativeResults(null);
+            return;
+        }
+        let cancelled = false;
+        const timeout = setTimeout(() => {
+            searchNotes(search, 0, SEARCH_PAGE_SIZE).then(page => {
+                if (cancelled) return;
+                setNativeResults(page ? new Map(page.results.map(r => [r.id, r.snippet])) : null);
+                setNativeTotal(page ? page.total : 0);
+            }).catch(() => {
+                if (!cancelled) setNativeResults(null);
+            });
+        }, 150);
+        return () => {
+            cancelled = true;
+            clearTimeout(timeout);
+        };
+    }, [search, brainNotes]);
+
+    const loadMoreResults = () => {
+        if (!nativeResults || loadingMore) return;
+        const query = search;
+        setLoadingMore(true);
+        searchNotes(query, nativeResults.size, SEARCH_PAGE_SIZE).then(page => {
+            // Dropped if the query changed while this page loaded
+            if (!page || searchRef.current !== query) return;
+            setNativeResults(prev => prev && new Map([...prev, ...page.results.map(r => [r.id, r.snippet] as const)]));
+            setNativeTotal(page.total);
+        }).catch(() => {}).finally(() => setLoadingMore(false));
+    };
+    const moreResults = nativeResults ? nativeTotal - nativeResults.size : 0;
+
     // Filter notes by search
     const filteredNotes = useMemo(() => {
         if (!search.trim()) return brainNotes;
+        if (nativeResults) {
+            // Keep the index's ranking order
+            const byId = new Map(brainNotes.map(n => [n.id, n]));
+            return [...nativeResults.keys()]
+                .map(id => byId.get(id))
+                .filter((n): n is NonNullable<typeof n> => !!n);
+        }
         const query = search.toLowerCase();
         return brainNotes.filter(note =>
             note.title.toLowerCase().includes(query) ||
             note.content.toLowerCase().includes(query)
         );
-    }, [brainNotes, search]);
+    }, [brainNotes, search, nativeResults]);
+    // Every match counts, including pages not loaded yet
+    const noteCount = nativeResults ? nativeTotal : filteredNotes.length;
 
     const handleAddNote = () => {
         if (!title.trim() && !content.trim()) return;
@@ -60,7 +114,7 @@ export default function Brain() {
                 <View>
                     <Text className="text-gray-500 text-xs font-bold uppercase tracking-widest">Second Brain</Text>
                     <Text className="text-white text-3xl font-bold">
-                        {filteredNotes.length} {filteredNotes.length === 1 ? 'Note' : 'Notes'}
+                        {noteCount} {noteCount === 1 ? 'Note' : 'Notes'}
                     </Text>
                 </View>
                 <View className="flex-row gap-2">
@@ -133,7 +187,7 @@ export default function Brain() {
                                 <Text className="text-white text-lg font-bold mb-1">{note.title}</Text>
                                 {note.content && (
                                     <Text className="text-gray-400 text-sm mb-2" numberOfLines={2}>
-                                        {note.content}
+                                        {nativeResults?.get(note.id) || note.content}
                                     </Text>
                                 )}
                                 <View className="flex-row items-center justify-between">
@@ -160,6 +214,19 @@ export default function Brain() {
                         );
                     })
                 )}
+                {moreResults > 0 && (
+                    <Pressable
+                        onPress={loadMoreResults}
+                        disabled={loadingMore}
+                        className="items-center py-3 mb-3"
+                        accessibilityLabel={`Show ${moreResults} more matching notes`}
+                        accessibilityRole="button"
+                    >
+                        <Text className="text-primary font-bold text-sm">
+                            {loadingMore ? 'Loading…' : `Show more · ${moreResults} more`}
+                        </Text>
+                    </Pressable>
+                )}
             </ScrollView>
 
             {/* Quick Add Note */}
@@ -1,8 +1,9 @@
-import React, { useState } from 'react';
+import React, { useState, useEffect } from 'react';
 import { View, Text, TextInput, Pressable, ScrollView } from 'react-native';
 import { SafeAreaView } from 'react-native-safe-area-context';
 import { Link } from 'expo-router';
 import { useStore } from '../store/useStore';
+import { countHistoryByCategory } from '../utils/historyStore';
 
 // Predefined colors
 const PRESET_COLORS = [
@@ -31,6 +32,23 @@ export default function Categories() {
     const [selectedColor, setSelectedColor] = useState(PRESET_COLORS[0]);
     const [selectedIcon, setSelectedIcon] = useState(PRESET_ICONS[0]);
     const [editingId, setEditingId] = useState<string | null>(null);
+    // Completed-task counts per category from the native history store (null = not available)
+    const [historyUsage, setHistoryUsage] = useState<Record<string, number> | null>(null);
+
+    useEffect(() => {
+        let cancelled = false;
+        countHistoryByCategory()
+            .then(counts => {
+                if (cancelled || !counts) return;
+                const usage: Record<string, number> = {};
+                categories.forEach(cat => { usage[cat.id] = counts[cat.id]?.total ?? 0; });
+                setHistoryUsage(usage);
+            })
+            .catch(() => {});
+        return () => {
+            cancelled = true;
+        };
+    }, [categories, history]);
 
     const handleAdd = () => {
         if (!newName.trim()) return;
@@ -59,9 +77,11 @@ export default function Categories() {
     };
 
     const getCategoryUsage = (categoryId: string) => {
-        const tasksCount = [...stack, ...backlog, ...history].filter(t =>
+        const historyCount = historyUsage?.[categoryId]
+            ?? history.filter(t => t.categories.includes(categoryId)).length;
+        const tasksCount = [...stack, ...backlog].filter(t =>
             t.categories.includes(categoryId)
-        ).length;
+        ).length + historyCount;
         const notesCount = brainNotes.filter(n => n.categories.includes(categoryId)).length;
         return { tasks: tasksCount, notes: notesCount };
     };
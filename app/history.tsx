@@ -1,4 +1,4 @@
-import React, { useState, useMemo } from 'react';
+import React, { useState, useMemo, useEffect, useCallback, useRef } from 'react';
 import { View, Text, Pressable, ScrollView, TextInput } from 'react-native';
 import { SafeAreaView } from 'react-native-safe-area-context';
 import { Stack } from 'expo-router';
@@ -6,6 +6,10 @@ import { useStore } from '../store/useStore';
 import { subDays, startOfDay, format } from 'date-fns';
 import TaskEditModal from '../components/TaskEditModal';
 import type { Task } from '../store/useStore';
+import { isHistoryStoreAvailable, queryHistory, useHistoryCount } from '../utils/historyStore';
+import type { HistoryFilter } from '../utils/historyStore';
+
+const PAGE_SIZE = 50;
 
 type Period = 7 | 30 | 'all';
 
@@ -15,8 +19,56 @@ export default function History() {
     const [period, setPeriod] = useState<Period>(7);
     const [editingTask, setEditingTask] = useState<Task | null>(null);
 
+    // Pages loaded from the native history store (unused without it)
+    const [pages, setPages] = useState<{ items: Task[]; nextCursor: string | null }>({ items: [], nextCursor: null });
+    const [loading, setLoading] = useState(false);
+    // Which filter the pages were loaded for and how many items they hold
+    const loaded = useRef<{ filter: HistoryFilter | null; count: number }>({ filter: null, count: 0 });
+    const useNativeStore = isHistoryStoreAvailable();
+    const totals = useHistoryCount(history);
+
+    const nativeFilter = useMemo(() => ({
+        from: period === 'all' ? undefined : subDays(new Date(), period).getTime(),
+        text: search.trim() || undefined,
+    }), [period, search]);
+    const filteredTotals = useHistoryCount(history, nativeFilter);
+
+    // A new filter starts over at the first page; a history change (a task
+    // completed or edited) reloads every page already shown, in one query
+    useEffect(() => {
+        if (!useNativeStore) return;
+        let cancelled = false;
+        const limit = loaded.current.filter === nativeFilter
+            ? Math.max(PAGE_SIZE, loaded.current.count)
+            : PAGE_SIZE;
+        const timeout = setTimeout(() => {
+            queryHistory(nativeFilter, null, limit).then(page => {
+                if (cancelled || !page) return;
+                loaded.current = { filter: nativeFilter, count: page.items.length };
+                setPages(page);
+            }).catch(e => console.error('History query failed:', e));
+        }, 150);
+        return () => {
+            cancelled = true;
+            clearTimeout(timeout);
+        };
+    }, [useNativeStore, nativeFilter, history]);
+
+    const loadMore = useCallback(() => {
+        if (!pages.nextCursor || loading) return;
+        setLoading(true);
+        queryHistory(nativeFilter, pages.nextCursor, PAGE_SIZE).then(page => {
+            if (!page || loaded.current.filter !== nativeFilter) return;
+            loaded.current = { filter: nativeFilter, count: loaded.current.count + page.items.length };
+            setPages(prev => ({ items: [...prev.items, ...page.items], nextCursor: page.nextCursor }));
+        }).catch(e => console.error('History query failed:', e))
+            .finally(() => setLoading(false));
+    }, [pages.nextCursor, loading, nativeFilter]);
+
     // Filter by period and search
     const filtered = useMemo(() => {
+        if (useNativeStore) return pages.items; // Already filtered and newest first
+
         let tasks = [...history].reverse(); // Most recent first
 
         // Date filter
@@ -35,7 +87,7 @@ export default function History() {
         }
 
         return tasks;
-    }, [history, period, search]);
+    }, [history, period, search, useNativeStore, pages.items]);
 
     // Group by date
     const groupedByDate = useMemo(() => {
@@ -107,16 +159,16 @@ export default function History() {
             <View className="flex-row gap-3 mb-4">
                 <View className="flex-1 bg-surface p-3 rounded-xl border border-dim items-center">
                     <Text className="text-gray-500 text-[10px] uppercase font-bold">Showing</Text>
-                    <Text className="text-white text-2xl font-black">{filtered.length}</Text>
+                    <Text className="text-white text-2xl font-black">{useNativeStore ? filteredTotals.total : filtered.length}</Text>
                 </View>
                 <View className="flex-1 bg-surface p-3 rounded-xl border border-dim items-center">
                     <Text className="text-gray-500 text-[10px] uppercase font-bold">Total</Text>
-                    <Text className="text-primary text-2xl font-black">{history.length}</Text>
+                    <Text className="text-primary text-2xl font-black">{totals.total}</Text>
                 </View>
                 <View className="flex-1 bg-surface p-3 rounded-xl border border-dim items-center">
                     <Text className="text-gray-500 text-[10px] uppercase font-bold">Journaled</Text>
                     <Text className="text-focus text-2xl font-black">
-                        {history.filter(t => t.journal).length}
+                        {totals.journaled}
                     </Text>
                 </View>
             </View>
@@ -220,6 +272,21 @@ export default function History() {
                         </View>
                     ))
                 )}
+
+                {/* Next page from the native store */}
+                {useNativeStore && pages.nextCursor && (
+                    <Pressable
+                        onPress={loadMore}
+                        className="bg-surface border border-dim rounded-xl p-4 mb-6 items-center"
+                        accessibilityLabel="Load more history"
+                        accessibilityRole="button"
+                        style={{ minHeight: 48 }}
+                    >
+                        <Text className="text-gray-400 font-bold text-xs">
+                            {loading ? 'Loading…' : 'Load more'}
+                        </Text>
+                    </Pressable>
+                )}
             </ScrollView>
 
             {/* Edit Modal */}
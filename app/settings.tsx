@@ -1,10 +1,13 @@
-import React, { useState } from 'react';
+import React, { useState, useEffect } from 'react';
 import { View, Text, Pressable, ScrollView, Alert, TextInput } from 'react-native';
 import { SafeAreaView } from 'react-native-safe-area-context';
 import { Stack, Link } from 'expo-router';
 import * as Haptics from 'expo-haptics';
+import * as DocumentPicker from 'expo-document-picker';
 import { useStore } from '../store/useStore';
 import type { Settings } from '../store/useStore';
+import { onBackupProgress } from '../utils/backup';
+import { subscribeDND } from '../utils/dndManager';
 
 const TIMER_PRESETS = [15, 25, 45, 60];
 const HAPTIC_OPTIONS: { label: string; value: Settings['hapticStrength'] }[] = [
@@ -17,6 +20,24 @@ const HAPTIC_OPTIONS: { label: string; value: Settings['hapticStrength'] }[] = [
 export default function SettingsScreen() {
     const { settings, updateSettings, panic } = useStore();
     const { calendarSync } = settings;
+    const [backupProgress, setBackupProgress] = useState<string | null>(null);
+    const [awaitingDNDPermission, setAwaitingDNDPermission] = useState(false);
+
+    // Show streaming export/import progress from the native backup module
+    useEffect(() => onBackupProgress(({ operation, processed, total }) => {
+        const label = operation === 'import' ? 'Importing' : 'Exporting';
+        setBackupProgress(total >= 0 && processed >= total ? null : `${label}… ${processed}${total > 0 ? ` / ${total}` : ''}`);
+    }), []);
+
+    // Finish turning on Auto DND once access is granted in system settings
+    useEffect(() => {
+        if (!awaitingDNDPermission) return;
+        return subscribeDND(({ permission }) => {
+            if (!permission) return;
+            updateSettings({ autoDND: true });
+            setAwaitingDNDPermission(false);
+        });
+    }, [awaitingDNDPermission]);
 
     const confirmReset = () => {
         Alert.alert(
@@ -29,6 +50,35 @@ export default function SettingsScreen() {
         );
     };
 
+    const restoreBackup = async () => {
+        const picked = await DocumentPicker.getDocumentAsync({
+            type: ['application/json', 'application/gzip', 'application/octet-stream'],
+            copyToCacheDirectory: true,
+        });
+        if (picked.canceled || !picked.assets?.length) return;
+        setBackupProgress('Importing…');
+        try {
+            await useStore.getState().importBackupFile(picked.assets[0].uri);
+            Alert.alert('Backup restored', 'Your tasks, history, notes and settings were restored.');
+        } catch (e) {
+            Alert.alert('Import failed', e instanceof Error ? e.message : String(e));
+        } finally {
+            // Imports don't know their total, so progress never reports done
+            setBackupProgress(null);
+        }
+    };
+
+    const confirmRestore = () => {
+        Alert.alert(
+            'Restore Backup',
+            'This replaces your current tasks, history, notes and settings with the backup.',
+            [
+                { text: 'Cancel', style: 'cancel' },
+                { text: 'Choose File', onPress: () => { restoreBackup(); } },
+            ]
+        );
+    };
+
     return (
         <SafeAreaView className="flex-1 bg-bg px-4">
             <Stack.Screen
@@ -217,6 +267,8 @@ export default function SettingsScreen() {
                                     const granted = await requestDNDPermissions();
                                     if (granted) {
                                         updateSettings({ autoDND: true });
+                                    } else {
+                                        setAwaitingDNDPermission(true);
                                     }
                                 } else {
                                     updateSettings({ autoDND: false });
@@ -247,6 +299,15 @@ export default function SettingsScreen() {
                 >
                     <Text className="text-white font-bold text-center">💾 Backup JSON</Text>
                 </Pressable>
+                <Pressable
+                    onPress={() => useStore.getState().exportData(true)}
+                    className="bg-surface border border-dim p-4 rounded-xl mb-2"
+                    accessibilityLabel="Backup as compressed JSON"
+                    accessibilityRole="button"
+                    style={{ minHeight: 48 }}
+                >
+                    <Text className="text-white font-bold text-center">🗜️ Backup JSON (compressed)</Text>
+                </Pressable>
                 <Pressable
                     onPress={() => useStore.getState().exportCSV()}
                     className="bg-surface border border-dim p-4 rounded-xl mb-2"
@@ -266,6 +327,18 @@ export default function SettingsScreen() {
                     <Text className="text-primary font-bold text-center">📝 Export Markdown (Obsidian)</Text>
                     <Text className="text-primary/70 text-xs text-center mt-1">Daily notes with tags & journal entries</Text>
                 </Pressable>
+                <Pressable
+                    onPress={confirmRestore}
+                    className="bg-surface border border-dim p-4 rounded-xl mb-2"
+                    accessibilityLabel="Restore from a JSON backup"
+                    accessibilityRole="button"
+                    style={{ minHeight: 48 }}
+                >
+                    <Text className="text-white font-bold text-center">📥 Restore Backup</Text>
+                </Pressable>
+                {backupProgress && (
+                    <Text className="text-gray-500 text-xs text-center mb-2">{backupProgress}</Text>
+                )}
 
                 {/* Danger Zone */}
                 <Text className="text-gray-500 font-bold uppercase text-xs mb-2 mt-6">Danger Zone</Text>
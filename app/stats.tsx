@@ -4,9 +4,11 @@ import { SafeAreaView } from 'react-native-safe-area-context';
 import { Stack, Link } from 'expo-router';
 import { useStore } from '../store/useStore';
 import { SimpleChart } from '../components/SimpleChart';
+import { useHistoryCount } from '../utils/historyStore';
 
 export default function Stats() {
     const { history, exportData, exportCSV, panic } = useStore();
+    const historyCount = useHistoryCount(history);
 
     return (
         <SafeAreaView className="flex-1 bg-bg px-4">
@@ -27,7 +29,7 @@ export default function Stats() {
                 <View className="flex-row gap-4 mb-6">
                     <View className="flex-1 bg-surface p-4 rounded-2xl border border-dim items-center">
                         <Text className="text-gray-500 text-xs uppercase">Total Done</Text>
-                        <Text className="text-white text-4xl font-black">{history.length}</Text>
+                        <Text className="text-white text-4xl font-black">{historyCount.total}</Text>
                     </View>
                     <View className="flex-1 bg-surface p-4 rounded-2xl border border-dim items-center">
                         <Text className="text-gray-500 text-xs uppercase">Stack</Text>
@@ -48,7 +50,7 @@ export default function Stats() {
 
                 <Text className="text-gray-500 font-bold mb-2 uppercase text-xs">Data Management</Text>
                 <Pressable
-                    onPress={exportData}
+                    onPress={() => exportData()}
                     className="bg-dim p-4 rounded-xl mb-2"
                     accessibilityLabel="Backup as JSON"
                     accessibilityRole="button"
@@ -1,7 +1,8 @@
 import React from 'react';
 import { View, Text } from 'react-native';
 import { useStore } from '../store/useStore';
-import { subDays, isSameDay } from 'date-fns';
+import { subDays, startOfDay } from 'date-fns';
+import { useDailyRollups, dayKey } from '../utils/historyStore';
 
 interface Props {
     days?: number;
@@ -10,13 +11,14 @@ interface Props {
 export const SimpleChart = ({ days = 7 }: Props) => {
     const history = useStore(s => s.history);
     const dayList = Array.from({ length: days }, (_, i) => subDays(new Date(), days - 1 - i));
+    const rollups = useDailyRollups(history, { from: startOfDay(dayList[0]).getTime() });
+    const byDay = new Map(rollups.map(r => [r.day, r]));
 
     const data = dayList.map(day => {
-        const tasks = history.filter(t => t.completedAt && isSameDay(t.completedAt, day));
-        const count = tasks.length;
-        const avgEnergy = tasks.length > 0
-            ? tasks.reduce((sum, t) => sum + (t.journal?.energy ?? 0), 0) / tasks.length
-            : 0;
+        const rollup = byDay.get(dayKey(day));
+        const count = rollup?.count ?? 0;
+        // Unjournaled tasks count as zero energy, as before
+        const avgEnergy = rollup && count > 0 ? rollup.energySum / count : 0;
         return { day, count, avgEnergy };
     });
     const max = Math.max(...data.map(d => d.count), 1);
@@ -0,0 +1,20 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+/** What the widget stores per note - never the full markdown */
+export type NoteSummarySpec = {
+    id: string;
+    title: string;
+    preview: string;
+    updatedAt: number;
+};
+
+export interface Spec extends TurboModule {
+    upsertNotes(notes: NoteSummarySpec[]): void;
+    removeNotes(noteIds: string[]): void;
+    getNoteVersions(): Promise<{ [noteId: string]: number }>;
+    syncNotes(notes: NoteSummarySpec[], removedIds: string[], last: boolean): void;
+    clearWidget(): void;
+}
+
+export default TurboModuleRegistry.get<Spec>('BrainWidgetModule');
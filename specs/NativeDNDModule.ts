@@ -0,0 +1,28 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export type DNDStateSpec = {
+    permission: boolean;
+    enabled: boolean;
+    filter: number; // Android interruption filter
+    session: boolean; // A focus-session DND is running and will be restored natively
+};
+
+export interface Spec extends TurboModule {
+    // Synchronous reads of NotificationManager state
+    checkDNDPermission(): boolean;
+    isDNDEnabled(): boolean;
+    getDNDState(): DNDStateSpec;
+
+    requestDNDPermission(): void;
+    enableDND(): Promise<boolean>;
+    disableDND(): Promise<boolean>;
+    startDNDSession(): Promise<boolean>;
+    endDNDSession(): Promise<boolean>;
+
+    // AnchorDNDChanged, through NativeEventEmitter
+    addListener(eventName: string): void;
+    removeListeners(count: number): void;
+}
+
+export default TurboModuleRegistry.get<Spec>('DNDModule');
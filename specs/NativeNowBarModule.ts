@@ -0,0 +1,13 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export interface Spec extends TurboModule {
+    // Synchronous: checked once per process natively
+    checkNowBarAvailable(): boolean;
+    setUpdateInterval(intervalMs: number): void;
+    updateNowBar(taskText: string, timeRemainingMs: number): Promise<boolean>;
+    clearNowBar(): Promise<boolean>;
+    setNowBarClickAction(): Promise<boolean>;
+}
+
+export default TurboModuleRegistry.get<Spec>('NowBarModule');
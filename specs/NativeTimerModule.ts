@@ -0,0 +1,23 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export type TimerStateSpec = {
+    status: string; // 'idle' | 'running' | 'paused' | 'completed'
+    taskText: string | null;
+    durationMs: number;
+    remainingMs: number;
+    endTime: number | null;
+};
+
+export interface Spec extends TurboModule {
+    startTimer(taskText: string, durationMinutes: number): void;
+    startTimerWithMode(taskText: string, durationMinutes: number, useChronometer: boolean): void;
+    pauseTimer(): void;
+    resumeTimer(): void;
+    extendTimer(minutes: number): void;
+    stopTimer(): void;
+    // Synchronous: read straight from the native engine
+    getState(): TimerStateSpec;
+}
+
+export default TurboModuleRegistry.get<Spec>('TimerModule');
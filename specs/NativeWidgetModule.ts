@@ -0,0 +1,9 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export interface Spec extends TurboModule {
+    updateWidget(taskText: string, timeRemaining: number): void;
+    clearWidget(): void;
+}
+
+export default TurboModuleRegistry.get<Spec>('WidgetModule');
@@ -2,8 +2,11 @@ import { create } from 'zustand';
 import { createJSONStorage, persist } from 'zustand/middleware';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import * as Haptics from 'expo-haptics';
-import { writeAsStringAsync, documentDirectory } from 'expo-file-system/legacy';
+import { writeAsStringAsync, readAsStringAsync, documentDirectory } from 'expo-file-system/legacy';
 import * as Sharing from 'expo-sharing';
+import { isHistoryStoreAvailable, recentHistory, putHistoryTasks, replaceHistory, loadAllHistory, queryHistory, RECENT_HISTORY_DAYS, RECENT_HISTORY_LIMIT } from '../utils/historyStore';
+import { isBackupModuleAvailable, exportBackup, importBackup, BackupFormat } from '../utils/backup';
+import type { PendingAction } from '../utils/anchorEvents';
 
 // --- Types ---
 
@@ -43,6 +46,7 @@ export interface Task {
     categories: string[]; // Category IDs
     linkedNotes: string[]; // BrainNote IDs
     calendarEventId?: string; // Calendar event ID if synced
+    timeOnTaskMs?: number; // Time spent as the top task, set on completion
 }
 
 export interface Settings {
@@ -65,7 +69,9 @@ interface AppState {
     // Data
     stack: Task[];
     backlog: Task[];
-    history: Task[];
+    history: Task[]; // Recent slice only when the native history store is available
+    historyMigrated: boolean; // Full history has been copied into the native store
+    lastAppliedActionId: number; // Newest native action applied - see applyNativeAction
     brainNotes: BrainNote[];
     categories: Category[];
     timerStart: number | null;
@@ -80,6 +86,7 @@ interface AppState {
     addTask: (text: string, isNow: boolean, deadline?: number, categories?: string[]) => void;
     completeTop: () => void;
     deferTop: () => void;
+    applyNativeAction: (action: PendingAction) => void;
     promote: (id: string) => void;
     panic: () => void;
 
@@ -109,10 +116,11 @@ interface AppState {
     updateSettings: (partial: Partial<Settings>) => void;
 
     // Data Management
-    exportData: () => Promise<void>;
+    exportData: (compressed?: boolean) => Promise<void>;
     exportCSV: () => Promise<void>;
     exportMarkdown: () => Promise<void>;
     importData: (json: string) => void;
+    importBackupFile: (fileUri: string) => Promise<void>; // Rejects when the backup can't be read
 }
 
 const DEFAULT_SETTINGS: Settings = {
@@ -138,6 +146,76 @@ const hapticMap = {
     heavy: Haptics.ImpactFeedbackStyle.Heavy,
 };
 
+// AsyncStorage runs writes in order, so once the newest one settles every
+// state change made before it is on disk
+let lastPersist: Promise<void> = Promise.resolve();
+const trackedStorage = {
+    getItem: (name: string) => AsyncStorage.getItem(name),
+    setItem: (name: string, value: string) => {
+        const write = AsyncStorage.setItem(name, value);
+        lastPersist = write;
+        return write;
+    },
+    removeItem: (name: string) => AsyncStorage.removeItem(name),
+};
+
+/**
+ * Resolves once every store change made so far has been persisted
+ */
+export const whenStorePersisted = () => lastPersist;
+
+/**
+ * Replace the native snapshot's stack with the top of the JS stack
+ */
+function publishStack(state: AppState) {
+    import('../utils/surfaceManager').then(({ publishSurfaces }) => {
+        publishSurfaces({
+            stack: {
+                tasks: state.stack.slice(0, STACK_MIRROR_SIZE).map(t => ({ id: t.id, text: t.text })),
+                timerMinutes: state.settings.timerDuration || 25,
+                autoDND: state.settings.autoDND,
+            },
+        });
+    });
+}
+
+/**
+ * Point the native note index and brain widget at a freshly imported note set
+ */
+function syncImportedNotes(notes: BrainNote[]) {
+    import('../utils/noteSearch').then(({ resetNoteIndex }) => {
+        resetNoteIndex(notes);
+    });
+    import('../utils/brainWidgetManager').then(({ syncBrainWidget }) => {
+        syncBrainWidget(notes).catch(e => console.error('Brain widget sync failed:', e));
+    });
+}
+
+/**
+ * Stream an export natively and share it. Returns false when the native path is
+ * unavailable (no module, or history not yet in the native store) so callers fall back.
+ */
+async function exportNatively(format: BackupFormat, filename: string, stateJson: string | null = null) {
+    if (!isBackupModuleAvailable() || !useStore.getState().historyMigrated) return false;
+    const uri = documentDirectory + filename;
+    await exportBackup(format, uri, stateJson);
+    await Sharing.shareAsync(uri);
+    return true;
+}
+
+/**
+ * History with a newly completed task added. Older tasks can only be dropped
+ * once the native store holds them.
+ */
+function withCompleted(state: AppState, completed: Task) {
+    return state.historyMigrated
+        ? recentHistory([completed, ...state.history])
+        : [completed, ...state.history];
+}
+
+// Tasks the native snapshot holds - enough for a run of widget/notification taps
+const STACK_MIRROR_SIZE = 20;
+
 function doHaptic(strength: Settings['hapticStrength']) {
     const style = hapticMap[strength];
     if (style) Haptics.impactAsync(style);
@@ -149,6 +227,8 @@ export const useStore = create<AppState>()(
             stack: [],
             backlog: [],
             history: [],
+            historyMigrated: false,
+            lastAppliedActionId: 0,
             brainNotes: [],
             categories: [],
             timerStart: null,
@@ -173,24 +253,19 @@ export const useStore = create<AppState>()(
 
                 // Trigger DND if autoDND is enabled and this is an anchor task
                 if (isNow && get().settings.autoDND) {
-                    import('../utils/dndManager').then(({ enableDND }) => {
-                        enableDND();
+                    import('../utils/dndManager').then(({ startDNDSession }) => {
+                        startDNDSession();
                     });
                 }
 
-                // Start timer notification if this is an anchor task
+                // Start the timer and show the Now Bar (One UI 8) if this is an anchor task
                 if (isNow) {
                     const timerDuration = get().settings.timerDuration || 25;
-                    import('../utils/timerNotification').then(({ startTimerNotification }) => {
-                        startTimerNotification(text, timerDuration);
-                    });
-                    // Update widget with new task
-                    import('../utils/widgetManager').then(({ updateWidget }) => {
-                        updateWidget(text, timerDuration * 60 * 1000);
-                    });
-                    // Update Now Bar (One UI 8)
-                    import('../utils/nowBarManager').then(({ updateNowBar }) => {
-                        updateNowBar(text, timerDuration * 60 * 1000);
+                    import('../utils/surfaceManager').then(({ publishSurfaces }) => {
+                        publishSurfaces({
+                            timer: { taskId: task.id, taskText: text, durationMinutes: timerDuration },
+                            nowBar: { taskText: text, timeRemainingMs: timerDuration * 60 * 1000 },
+                        });
                     });
                     set(s => ({ stack: [task, ...s.stack], timerStart: Date.now() }));
                 } else {
@@ -200,46 +275,41 @@ export const useStore = create<AppState>()(
 
             completeTop: () => {
                 Haptics.notificationAsync(Haptics.NotificationFeedbackType.Success);
-                const { stack } = get();
+                const { stack, timerStart } = get();
                 if (stack.length === 0) return;
                 const [done, ...rest] = stack;
-                const completed = { ...done, type: 'DONE' as const, completedAt: Date.now() };
+                const now = Date.now();
+                const completed = {
+                    ...done,
+                    type: 'DONE' as const,
+                    completedAt: now,
+                    timeOnTaskMs: timerStart ? now - timerStart : undefined,
+                };
 
-                // Disable DND if enabled
+                // End the DND session, giving back the filter the user had
                 if (get().settings.autoDND) {
-                    import('../utils/dndManager').then(({ disableDND }) => {
-                        disableDND();
+                    import('../utils/dndManager').then(({ endDNDSession }) => {
+                        endDNDSession();
                     });
                 }
 
-                // Stop timer notification
-                import('../utils/timerNotification').then(({ stopTimerNotification }) => {
-                    stopTimerNotification();
-                });
-
                 set({
                     stack: rest,
-                    history: [completed, ...get().history],
+                    history: withCompleted(get(), completed),
                     timerStart: rest.length > 0 ? Date.now() : null,
                     pendingJournalTaskId: completed.id,
                 });
-
-                // Start new timer if there's another task
-                if (rest.length > 0) {
-                    const timerDuration = get().settings.timerDuration || 25;
-                    import('../utils/timerNotification').then(({ startTimerNotification }) => {
-                        startTimerNotification(rest[0].text, timerDuration);
-                    });
-                    // Update widget with next task
-                    import('../utils/widgetManager').then(({ updateWidget }) => {
-                        updateWidget(rest[0].text, timerDuration * 60 * 1000);
-                    });
-                } else {
-                    // Clear widget if no more tasks
-                    import('../utils/widgetManager').then(({ clearWidget }) => {
-                        clearWidget();
-                    });
-                }
+                putHistoryTasks([completed]);
+
+                // Start the timer for the next task, or stop it
+                const timerDuration = get().settings.timerDuration || 25;
+                import('../utils/surfaceManager').then(({ publishSurfaces }) => {
+                    publishSurfaces(rest.length > 0
+                        ? {
+                            timer: { taskId: rest[0].id, taskText: rest[0].text, durationMinutes: timerDuration },
+                        }
+                        : { timer: null });
+                });
             },
 
             deferTop: () => {
@@ -247,38 +317,68 @@ export const useStore = create<AppState>()(
                 if (stack.length === 0) return;
                 const [deferred, ...rest] = stack;
 
-                // Disable DND if enabled
+                // End the DND session, giving back the filter the user had
                 if (get().settings.autoDND) {
-                    import('../utils/dndManager').then(({ disableDND }) => {
-                        disableDND();
+                    import('../utils/dndManager').then(({ endDNDSession }) => {
+                        endDNDSession();
                     });
                 }
 
-                // Stop timer notification
-                import('../utils/timerNotification').then(({ stopTimerNotification }) => {
-                    stopTimerNotification();
-                });
-
                 set({
                     stack: rest,
                     backlog: [...backlog, { ...deferred, type: 'LATER' }],
                     timerStart: rest.length > 0 ? Date.now() : null,
                 });
 
-                // Start new timer if there's another task
-                if (rest.length > 0) {
-                    const timerDuration = get().settings.timerDuration || 25;
-                    import('../utils/timerNotification').then(({ startTimerNotification }) => {
-                        startTimerNotification(rest[0].text, timerDuration);
-                    });
-                    // Update widget with next task
-                    import('../utils/widgetManager').then(({ updateWidget }) => {
-                        updateWidget(rest[0].text, timerDuration * 60 * 1000);
+                // Start the timer for the next task, or stop it
+                const timerDuration = get().settings.timerDuration || 25;
+                import('../utils/surfaceManager').then(({ publishSurfaces }) => {
+                    publishSurfaces(rest.length > 0
+                        ? {
+                            timer: { taskId: rest[0].id, taskText: rest[0].text, durationMinutes: timerDuration },
+                        }
+                        : { timer: null });
+                });
+            },
+
+            // Every path records the action id in the same set() as its effect, so an
+            // action handed out again (the app died before acknowledging it) is skipped
+            applyNativeAction: ({ id, action, taskId, postedAt }) => {
+                const { stack, backlog, timerStart, lastAppliedActionId } = get();
+                if (id <= lastAppliedActionId) return;
+                // Already applied, the stack moved on since the tap, or the native
+                // snapshot was empty (no task id) - nothing changed natively that JS
+                // should repeat. Send the JS stack back so the surfaces stop showing
+                // what the tap was based on.
+                if (stack.length === 0 || !taskId || stack[0].id !== taskId) {
+                    set({ lastAppliedActionId: id });
+                    publishStack(get());
+                    return;
+                }
+
+                // Native code has already moved the timer, widget and tile on to the next task
+                const [top, ...rest] = stack;
+                if (action === 'TASK_COMPLETED') {
+                    const completed = {
+                        ...top,
+                        type: 'DONE' as const,
+                        completedAt: postedAt,
+                        timeOnTaskMs: timerStart ? postedAt - timerStart : undefined,
+                    };
+                    set({
+                        stack: rest,
+                        history: withCompleted(get(), completed),
+                        timerStart: rest.length > 0 ? postedAt : null,
+                        pendingJournalTaskId: completed.id,
+                        lastAppliedActionId: id,
                     });
+                    putHistoryTasks([completed]);
                 } else {
-                    // Clear widget if no more tasks
-                    import('../utils/widgetManager').then(({ clearWidget }) => {
-                        clearWidget();
+                    set({
+                        stack: rest,
+                        backlog: [...backlog, { ...top, type: 'LATER' }],
+                        timerStart: rest.length > 0 ? postedAt : null,
+                        lastAppliedActionId: id,
                     });
                 }
             },
@@ -307,6 +407,8 @@ export const useStore = create<AppState>()(
                     ),
                     pendingJournalTaskId: null,
                 }));
+                const journaled = get().history.find(t => t.id === taskId);
+                if (journaled) putHistoryTasks([journaled]);
             },
 
             dismissJournal: () => set({ pendingJournalTaskId: null }),
@@ -355,6 +457,8 @@ export const useStore = create<AppState>()(
                     backlog: s.backlog.map(t => t.id === taskId ? { ...t, linkedNotes: [...t.linkedNotes, noteId] } : t),
                     history: s.history.map(t => t.id === taskId ? { ...t, linkedNotes: [...t.linkedNotes, noteId] } : t),
                 }));
+                const linked = get().history.find(t => t.id === taskId);
+                if (linked) putHistoryTasks([linked]);
             },
 
             // Brain Notes
@@ -369,6 +473,12 @@ export const useStore = create<AppState>()(
                     updatedAt: Date.now(),
                 };
                 set(s => ({ brainNotes: [...s.brainNotes, note] }));
+                import('../utils/brainWidgetManager').then(({ upsertBrainWidgetNotes }) => {
+                    upsertBrainWidgetNotes([note]);
+                });
+                import('../utils/noteSearch').then(({ indexNotes }) => {
+                    indexNotes([note]);
+                });
             },
 
             updateNote: (id, updates) => {
@@ -377,10 +487,25 @@ export const useStore = create<AppState>()(
                         n.id === id ? { ...n, ...updates, updatedAt: Date.now() } : n
                     ),
                 }));
+                const updated = get().brainNotes.find(n => n.id === id);
+                if (updated) {
+                    import('../utils/brainWidgetManager').then(({ upsertBrainWidgetNotes }) => {
+                        upsertBrainWidgetNotes([updated]);
+                    });
+                    import('../utils/noteSearch').then(({ indexNotes }) => {
+                        indexNotes([updated]);
+                    });
+                }
             },
 
             deleteNote: (id) => {
                 set(s => ({ brainNotes: s.brainNotes.filter(n => n.id !== id) }));
+                import('../utils/brainWidgetManager').then(({ removeBrainWidgetNotes }) => {
+                    removeBrainWidgetNotes([id]);
+                });
+                import('../utils/noteSearch').then(({ removeIndexedNotes }) => {
+                    removeIndexedNotes([id]);
+                });
             },
 
             // Categories
@@ -410,16 +535,24 @@ export const useStore = create<AppState>()(
             },
 
             // Data Export
-            exportData: async () => {
-                const { stack, backlog, history, settings } = get();
-                const data = JSON.stringify({ stack, backlog, history, settings }, null, 2);
+            exportData: async (compressed = false) => {
+                const { stack, backlog, brainNotes, settings } = get();
+                if (await exportNatively(compressed ? 'json.gz' : 'json',
+                    compressed ? 'anchor_backup.json.gz' : 'anchor_backup.json',
+                    JSON.stringify({ stack, backlog, brainNotes, settings }))) {
+                    return;
+                }
+                const history = (await loadAllHistory()) ?? get().history;
+                // brainNotes lets the native search index be rebuilt from a backup
+                const data = JSON.stringify({ stack, backlog, history, brainNotes, settings }, null, 2);
                 const uri = documentDirectory + 'anchor_backup.json';
                 await writeAsStringAsync(uri, data);
                 await Sharing.shareAsync(uri);
             },
 
             exportCSV: async () => {
-                const { history } = get();
+                if (await exportNatively('csv', 'anchor_history.csv')) return;
+                const history = (await loadAllHistory()) ?? get().history;
                 const header = 'Task,Created,Completed,Energy,Focus,Note\n';
                 const rows = history.map(t => {
                     const created = new Date(t.createdAt).toISOString();
@@ -436,9 +569,10 @@ export const useStore = create<AppState>()(
             },
 
             exportMarkdown: async () => {
-                const { history } = get();
                 const now = new Date();
                 const filename = `anchor_export_${now.getFullYear()}-${String(now.getMonth() + 1).padStart(2, '0')}-${String(now.getDate()).padStart(2, '0')}.md`;
+                if (await exportNatively('markdown', filename)) return;
+                const history = (await loadAllHistory()) ?? get().history;
 
                 // YAML frontmatter
                 let markdown = `---\n`;
@@ -527,20 +661,89 @@ export const useStore = create<AppState>()(
             importData: (json) => {
                 try {
                     const data = JSON.parse(json);
+                    const history: Task[] = data.history ?? [];
                     set({
                         stack: data.stack ?? [],
                         backlog: data.backlog ?? [],
-                        history: data.history ?? [],
+                        history,
+                        brainNotes: data.brainNotes ?? get().brainNotes,
                         settings: { ...DEFAULT_SETTINGS, ...(data.settings ?? {}) },
                     });
+                    if (isHistoryStoreAvailable()) {
+                        replaceHistory(history).then(() => {
+                            set(s => ({ historyMigrated: true, history: recentHistory(s.history) }));
+                        }).catch(e => console.error('History import failed:', e));
+                    }
+                    if (data.brainNotes) {
+                        syncImportedNotes(data.brainNotes);
+                    }
                 } catch (e) {
                     console.error('Import failed:', e);
                 }
             },
+
+            importBackupFile: async (fileUri) => {
+                if (!isBackupModuleAvailable() || !isHistoryStoreAvailable()) {
+                    get().importData(await readAsStringAsync(fileUri));
+                    return;
+                }
+                try {
+                    // History streams straight into the native store; only the rest comes back
+                    const { state: data } = await importBackup(fileUri);
+                    const cutoff = Date.now() - RECENT_HISTORY_DAYS * 24 * 60 * 60 * 1000;
+                    const recent = await queryHistory({ from: cutoff }, null, RECENT_HISTORY_LIMIT);
+                    set({
+                        stack: data.stack ?? [],
+                        backlog: data.backlog ?? [],
+                        history: recent?.items ?? [],
+                        historyMigrated: true,
+                        brainNotes: data.brainNotes ?? get().brainNotes,
+                        settings: { ...DEFAULT_SETTINGS, ...(data.settings ?? {}) },
+                    });
+                    if (data.brainNotes) {
+                        syncImportedNotes(data.brainNotes);
+                    }
+                } catch (e) {
+                    console.error('Import failed:', e);
+                    throw e;
+                }
+            },
         }),
         {
             name: 'anchor-storage',
-            storage: createJSONStorage(() => AsyncStorage),
+            storage: createJSONStorage(() => trackedStorage),
+            onRehydrateStorage: () => (state) => {
+                // One-time move of the full persisted history into the native store;
+                // after that only the recent slice stays in JS state
+                if (state && !state.historyMigrated && isHistoryStoreAvailable()) {
+                    putHistoryTasks(state.history).then(() => {
+                        useStore.setState(s => ({
+                            historyMigrated: true,
+                            history: recentHistory(s.history),
+                        }));
+                    }).catch(e => console.error('History migration failed:', e));
+                }
+                // Bring the widget's native note list in line with the persisted notes
+                if (state) {
+                    import('../utils/brainWidgetManager').then(({ syncBrainWidget }) => {
+                        syncBrainWidget(state.brainNotes)
+                            .catch(e => console.error('Brain widget sync failed:', e));
+                    });
+                    import('../utils/noteSearch').then(({ ensureNoteIndex }) => {
+                        ensureNoteIndex(state.brainNotes);
+                    });
+                }
+            },
         }
     )
 );
+
+// Keep the native snapshot current - every surface renders from it, and
+// notification and widget buttons complete or defer its top task without
+// starting the app
+useStore.subscribe((state, prev) => {
+    if (state.stack === prev.stack
+        && state.settings.timerDuration === prev.settings.timerDuration
+        && state.settings.autoDND === prev.settings.autoDND) return;
+    publishStack(state);
+});
@@ -0,0 +1,60 @@
+import { NativeEventEmitter, NativeModules } from 'react-native';
+
+export type AnchorAction = 'TASK_COMPLETED' | 'TASK_DEFERRED';
+
+export interface PendingAction {
+    id: number;
+    action: AnchorAction;
+    taskId: string | null; // Task the action was already applied to natively
+    postedAt: number;
+}
+
+interface AnchorEventsModuleType {
+    takeActions(): Promise<PendingAction[]>;
+    acknowledgeActions(id: number): Promise<boolean>;
+}
+
+const AnchorEventsModule: AnchorEventsModuleType | undefined = NativeModules.AnchorEventsModule;
+
+export interface AnchorEventsOptions {
+    lastAppliedId: () => number; // Newest action id the handler has applied
+    persisted: () => Promise<void>; // Resolves once applied actions are saved
+}
+
+/**
+ * Reconcile notification and widget actions queued natively: everything waiting
+ * now, then each new batch as it arrives. Delivery is at least once - actions
+ * are only acknowledged after the state that applied them is saved, and are
+ * handed out again if the app dies first. The handler must record each action's
+ * id in the same state update that applies it; actions at or below
+ * lastAppliedId() are skipped, so each is applied once. Returns an unsubscribe function.
+ */
+export const startAnchorEvents = (
+    handler: (action: PendingAction) => void,
+    { lastAppliedId, persisted }: AnchorEventsOptions,
+) => {
+    if (!AnchorEventsModule) return () => {};
+    const module = AnchorEventsModule;
+
+    const drain = async () => {
+        const actions = await module.takeActions();
+        if (actions.length === 0) return;
+        actions.forEach(action => {
+            if (action.id <= lastAppliedId()) return;
+            try {
+                handler(action);
+            } catch (e) {
+                console.warn('Failed to apply action', action.action, e);
+            }
+        });
+        await persisted();
+        await module.acknowledgeActions(actions[actions.length - 1].id);
+    };
+
+    const emitter = new NativeEventEmitter(NativeModules.AnchorEventsModule);
+    const subscription = emitter.addListener('AnchorActionsPending', () => {
+        drain().catch(() => {});
+    });
+    drain().catch(() => {});
+    return () => subscription.remove();
+};
@@ -0,0 +1,47 @@
+import { NativeEventEmitter, NativeModules } from 'react-native';
+
+export type BackupFormat = 'json' | 'json.gz' | 'csv' | 'markdown';
+
+export interface BackupProgress {
+    operation: 'export' | 'import';
+    processed: number;
+    total: number; // -1 when unknown (imports)
+}
+
+interface BackupModuleType {
+    exportBackup(format: BackupFormat, fileUri: string, stateJson: string | null): Promise<number>;
+    importBackup(fileUri: string): Promise<{ state: string; historyCount: number }>;
+}
+
+const BackupModule: BackupModuleType | undefined = NativeModules.BackupModule;
+
+export const isBackupModuleAvailable = () => !!BackupModule;
+
+/**
+ * Stream a backup to fileUri natively. stateJson is the non-history state,
+ * only used by the JSON formats. Resolves the number of history records written.
+ */
+export const exportBackup = async (format: BackupFormat, fileUri: string, stateJson: string | null = null) => {
+    if (!BackupModule) throw new Error('BackupModule not available');
+    return BackupModule.exportBackup(format, fileUri, stateJson);
+};
+
+/**
+ * Stream a JSON backup (plain or gzip) into the native history store.
+ * Resolves the rest of the backup as a parsed object.
+ */
+export const importBackup = async (fileUri: string) => {
+    if (!BackupModule) throw new Error('BackupModule not available');
+    const result = await BackupModule.importBackup(fileUri);
+    return { state: JSON.parse(result.state), historyCount: result.historyCount };
+};
+
+/**
+ * Subscribe to export/import progress. Returns an unsubscribe function.
+ */
+export const onBackupProgress = (listener: (progress: BackupProgress) => void) => {
+    if (!BackupModule) return () => {};
+    const emitter = new NativeEventEmitter(NativeModules.BackupModule);
+    const subscription = emitter.addListener('BackupProgress', listener);
+    return () => subscription.remove();
+};
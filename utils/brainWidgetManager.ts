@@ -1,15 +1,62 @@
-import { NativeModules } from 'react-native';
+import type { BrainNote } from '../store/useStore';
+import BrainWidgetModule from '../specs/NativeBrainWidgetModule';
+import type { NoteSummarySpec as NoteSummary } from '../specs/NativeBrainWidgetModule';
 
-interface BrainWidgetModule {
-    updateWidget(title: string, content: string, noteCount: number): void;
-    clearWidget(): void;
-}
+const PREVIEW_LENGTH = 140;
+const SYNC_BATCH_SIZE = 50;
 
-const { BrainWidgetModule } = NativeModules;
+const toSummary = (note: BrainNote): NoteSummary => ({
+    id: note.id,
+    title: note.title,
+    // Plain-text preview: drop markdown markers and collapse whitespace
+    preview: note.content
+        .slice(0, PREVIEW_LENGTH * 2)
+        .replace(/[#*_`>\[\]]/g, '')
+        .replace(/\s+/g, ' ')
+        .trim()
+        .slice(0, PREVIEW_LENGTH),
+    updatedAt: note.updatedAt,
+});
 
-export const updateBrainWidget = (title: string, content: string, noteCount: number) => {
-    if (BrainWidgetModule) {
-        BrainWidgetModule.updateWidget(title, content, noteCount);
+/**
+ * Add or update notes in the widget list
+ */
+export const upsertBrainWidgetNotes = (notes: BrainNote[]) => {
+    if (BrainWidgetModule && notes.length > 0) {
+        BrainWidgetModule.upsertNotes(notes.map(toSummary));
+    }
+};
+
+export const removeBrainWidgetNotes = (noteIds: string[]) => {
+    if (BrainWidgetModule && noteIds.length > 0) {
+        BrainWidgetModule.removeNotes(noteIds);
+    }
+};
+
+/**
+ * Bring the widget's note list in line with the given notes. Only notes whose
+ * updatedAt differs from the widget's copy are sent, in small batches, together
+ * with the ids of notes that are gone.
+ */
+export const syncBrainWidget = async (notes: BrainNote[]) => {
+    if (!BrainWidgetModule) return;
+    if (notes.length === 0) {
+        BrainWidgetModule.clearWidget();
+        return;
+    }
+
+    const stored = await BrainWidgetModule.getNoteVersions();
+    const changed = notes.filter(note => stored[note.id] !== note.updatedAt);
+    const current = new Set(notes.map(note => note.id));
+    const removed = Object.keys(stored).filter(id => !current.has(id));
+    if (changed.length === 0 && removed.length === 0) return;
+
+    // Removals ride on the last batch, so removing notes alone is still one call
+    const batches = Math.max(1, Math.ceil(changed.length / SYNC_BATCH_SIZE));
+    for (let b = 0; b < batches; b++) {
+        const last = b === batches - 1;
+        const batch = changed.slice(b * SYNC_BATCH_SIZE, (b + 1) * SYNC_BATCH_SIZE).map(toSummary);
+        BrainWidgetModule.syncNotes(batch, last ? removed : [], last);
     }
 };
 
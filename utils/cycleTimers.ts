@@ -0,0 +1,121 @@
+import { NativeEventEmitter, NativeModules } from 'react-native';
+
+export interface CyclePhase {
+    label: string;
+    kind: string; // e.g. 'work' | 'break' | 'longBreak' | 'timer'
+    minutes: number;
+}
+
+export interface CycleTimerState {
+    id: number;
+    label: string | null;
+    status: 'running' | 'paused' | 'finished';
+    phaseIndex: number;
+    phaseCount: number;
+    phaseLabel: string | null;
+    phaseKind: string | null;
+    remainingMs: number; // Left in the current phase
+    planRemainingMs: number; // Left until the whole plan is done
+}
+
+export interface CycleEvent {
+    id: number;
+    timerId: number;
+    timerLabel: string | null;
+    event: 'PHASE_STARTED' | 'CYCLE_FINISHED' | 'PAUSED' | 'RESUMED' | 'STOPPED';
+    phaseIndex: number; // Phase that started, the last phase when finished, else the current phase
+    phaseLabel: string | null;
+    phaseKind: string | null;
+    at: number; // When it happened; a boundary counts from when it was due, even if noticed later
+}
+
+interface CycleModuleType {
+    startCycle(label: string, phases: CyclePhase[]): Promise<CycleTimerState>;
+    pauseCycle(id: number): Promise<CycleTimerState | null>;
+    resumeCycle(id: number): Promise<CycleTimerState | null>;
+    skipPhase(id: number): Promise<CycleTimerState | null>;
+    stopCycle(id: number): Promise<boolean>;
+    getCycles(): Promise<CycleTimerState[]>;
+    takeEvents(): Promise<CycleEvent[]>;
+    acknowledgeEvents(id: number): Promise<boolean>;
+}
+
+const CycleModule: CycleModuleType | undefined = NativeModules.CycleModule;
+
+/**
+ * Work/break plan, 4 x (25 work + 5 break) + 15 long break by default.
+ * The last round ends in the long break instead of a short one.
+ */
+export const pomodoroPlan = (rounds = 4, workMinutes = 25, breakMinutes = 5, longBreakMinutes = 15): CyclePhase[] => {
+    const phases: CyclePhase[] = [];
+    for (let round = 1; round <= rounds; round++) {
+        phases.push({ label: `Focus ${round}/${rounds}`, kind: 'work', minutes: workMinutes });
+        if (round < rounds) {
+            phases.push({ label: 'Short break', kind: 'break', minutes: breakMinutes });
+        }
+    }
+    phases.push({ label: 'Long break', kind: 'longBreak', minutes: longBreakMinutes });
+    return phases;
+};
+
+/**
+ * Hand a whole plan to the native scheduler; phases then change on exact alarms
+ * with their own notification, whether or not JS is running
+ */
+export const startCycle = (label: string, phases: CyclePhase[]): Promise<CycleTimerState | null> => {
+    return CycleModule ? CycleModule.startCycle(label, phases) : Promise.resolve(null);
+};
+
+/**
+ * A single-phase countdown that runs alongside the focus timer, e.g. a tea timer
+ */
+export const startParallelTimer = (label: string, minutes: number): Promise<CycleTimerState | null> => {
+    return startCycle(label, [{ label, kind: 'timer', minutes }]);
+};
+
+export const pauseCycle = (id: number) => CycleModule?.pauseCycle(id) ?? Promise.resolve(null);
+
+export const resumeCycle = (id: number) => CycleModule?.resumeCycle(id) ?? Promise.resolve(null);
+
+export const skipPhase = (id: number) => CycleModule?.skipPhase(id) ?? Promise.resolve(null);
+
+export const stopCycle = (id: number) => CycleModule?.stopCycle(id) ?? Promise.resolve(false);
+
+export const getCycles = (): Promise<CycleTimerState[]> => {
+    return CycleModule ? CycleModule.getCycles() : Promise.resolve([]);
+};
+
+/**
+ * Follow phase boundaries and status changes: everything logged while JS was
+ * not running, then each new batch as it happens. Events are acknowledged once
+ * the handler has run and are not handed out twice to one runtime; one whose
+ * acknowledgement was lost to a restart comes again, so handlers that must not
+ * repeat work should key on event.id. Only the newest 200 events are kept
+ * natively. Returns an unsubscribe function.
+ */
+export const startCycleEvents = (handler: (event: CycleEvent) => void) => {
+    if (!CycleModule) return () => {};
+    const module = CycleModule;
+    let lastSeenId = 0;
+
+    const drain = async () => {
+        const events = (await module.takeEvents()).filter(event => event.id > lastSeenId);
+        if (events.length === 0) return;
+        lastSeenId = events[events.length - 1].id;
+        events.forEach(event => {
+            try {
+                handler(event);
+            } catch (e) {
+                console.warn('Failed to apply cycle event', event.event, e);
+            }
+        });
+        await module.acknowledgeEvents(events[events.length - 1].id);
+    };
+
+    const emitter = new NativeEventEmitter(NativeModules.CycleModule);
+    const subscription = emitter.addListener('AnchorCycleEventsPending', () => {
+        drain().catch(() => {});
+    });
+    drain().catch(() => {});
+    return () => subscription.remove();
+};
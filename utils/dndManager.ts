@@ -1,17 +1,47 @@
-import { NativeModules, Platform } from 'react-native';
+import { NativeEventEmitter, Platform } from 'react-native';
+import DNDModule from '../specs/NativeDNDModule';
+import type { DNDStateSpec } from '../specs/NativeDNDModule';
 
-interface DNDModuleType {
-    checkDNDPermission(): Promise<boolean>;
-    requestDNDPermission(): void;
-    enableDND(): Promise<boolean>;
-    disableDND(): Promise<boolean>;
-    isDNDEnabled(): Promise<boolean>;
-}
-
-const { DNDModule } = NativeModules;
+export type DNDState = DNDStateSpec;
 
 let dndEnabled = false;
 
+// Kept current by AnchorDNDChanged once events are started
+let dndState: DNDState | null = null;
+let eventsStarted = false;
+const listeners = new Set<(state: DNDState) => void>();
+
+const setDNDState = (state: DNDState) => {
+    dndState = state;
+    dndEnabled = state.enabled;
+    listeners.forEach(listener => listener(state));
+};
+
+/**
+ * Start following native DND changes (once per app run)
+ */
+const startDNDEvents = () => {
+    if (eventsStarted || Platform.OS !== 'android' || !DNDModule) return;
+    eventsStarted = true;
+    const emitter = new NativeEventEmitter(DNDModule);
+    emitter.addListener('AnchorDNDChanged', setDNDState);
+    // Synchronous read; events keep it current from here on
+    setDNDState(DNDModule.getDNDState());
+};
+
+/**
+ * Be told of every DND or permission change, starting with the current state.
+ * Returns an unsubscribe function.
+ */
+export const subscribeDND = (listener: (state: DNDState) => void) => {
+    startDNDEvents();
+    listeners.add(listener);
+    if (dndState) listener(dndState);
+    return () => {
+        listeners.delete(listener);
+    };
+};
+
 /**
  * Request Do Not Disturb permission
  * Opens Android Settings for user to grant permission
@@ -20,7 +50,7 @@ export const requestDNDPermission = async (): Promise<boolean> => {
     if (Platform.OS !== 'android' || !DNDModule) return false;
 
     try {
-        const hasPermission = await DNDModule.checkDNDPermission();
+        const hasPermission = DNDModule.checkDNDPermission();
         if (!hasPermission) {
             // Open Settings page for user to grant permission
             DNDModule.requestDNDPermission();
@@ -43,9 +73,11 @@ export const requestDNDPermissions = requestDNDPermission;
  */
 export const hasDNDPermission = async (): Promise<boolean> => {
     if (Platform.OS !== 'android' || !DNDModule) return false;
+    startDNDEvents();
+    if (dndState) return dndState.permission;
 
     try {
-        return await DNDModule.checkDNDPermission();
+        return DNDModule.checkDNDPermission();
     } catch (error) {
         console.warn('DND permission check error:', error);
         return false;
@@ -91,14 +123,46 @@ export const disableDND = async (): Promise<boolean> => {
     }
 };
 
+/**
+ * Priority mode for this focus session. Native code records the filter the
+ * user had and restores it when the session ends or the timer stops,
+ * even if JS is no longer running.
+ */
+export const startDNDSession = async (): Promise<boolean> => {
+    if (Platform.OS !== 'android' || !DNDModule) return false;
+
+    try {
+        return await DNDModule.startDNDSession();
+    } catch (error) {
+        console.warn('Failed to start DND session:', error);
+        return false;
+    }
+};
+
+/**
+ * End the focus session, restoring the user's previous filter
+ */
+export const endDNDSession = async (): Promise<boolean> => {
+    if (Platform.OS !== 'android' || !DNDModule) return false;
+
+    try {
+        return await DNDModule.endDNDSession();
+    } catch (error) {
+        console.warn('Failed to end DND session:', error);
+        return false;
+    }
+};
+
 /**
  * Check if DND is currently enabled
  */
 export const isDNDEnabled = async (): Promise<boolean> => {
     if (Platform.OS !== 'android' || !DNDModule) return false;
+    startDNDEvents();
+    if (dndState) return dndState.enabled;
 
     try {
-        return await DNDModule.isDNDEnabled();
+        return DNDModule.isDNDEnabled();
     } catch (error) {
         console.warn('DND status check error:', error);
         return dndEnabled;
@@ -0,0 +1,290 @@
+import { useEffect, useState } from 'react';
+import { NativeModules } from 'react-native';
+import type { Task } from '../store/useStore';
+
+export interface HistoryFilter {
+    from?: number;      // completedAt, inclusive
+    to?: number;        // completedAt, exclusive
+    category?: string;
+    text?: string;
+}
+
+export interface HistoryPage {
+    items: Task[];
+    nextCursor: string | null;
+}
+
+export interface HistoryCount {
+    total: number;
+    journaled: number;
+}
+
+/** Whole days covering [from, to), optionally for one category */
+export interface RollupRange {
+    from?: number;
+    to?: number;
+    category?: string;
+}
+
+/** Min/max are null when no task in the range was journaled */
+export interface HistoryRollup {
+    count: number;
+    journaled: number;
+    energySum: number;
+    energyMin: number | null;
+    energyMax: number | null;
+    focusSum: number;
+    focusMin: number | null;
+    focusMax: number | null;
+    timeOnTaskMs: number;
+}
+
+export interface DailyRollup extends HistoryRollup {
+    day: number; // yyyyMMdd, local time
+}
+
+interface HistoryStoreModuleType {
+    putTasks(payloads: string[]): Promise<number>;
+    removeTasks(taskIds: string[]): Promise<number>;
+    query(filter: HistoryFilter & { cursor?: string | null; limit?: number }): Promise<{ items: string[]; nextCursor: string | null }>;
+    count(filter: HistoryFilter): Promise<HistoryCount>;
+    countByCategory(filter: HistoryFilter): Promise<Record<string, HistoryCount>>;
+    rollup(range: RollupRange): Promise<HistoryRollup>;
+    daily(range: RollupRange): Promise<DailyRollup[]>;
+    streak(): Promise<number>;
+    clear(): Promise<boolean>;
+}
+
+const HistoryStoreModule: HistoryStoreModuleType | undefined = NativeModules.HistoryStoreModule;
+
+const PUT_BATCH_SIZE = 200;
+
+/** With the native store, the JS state only keeps this recent slice of history */
+export const RECENT_HISTORY_DAYS = 30;
+export const RECENT_HISTORY_LIMIT = 500;
+
+export const isHistoryStoreAvailable = () => !!HistoryStoreModule;
+
+/**
+ * Trim history to the recent slice kept in JS state. Without the native store
+ * JS state is the only copy, so nothing is dropped.
+ */
+export const recentHistory = (history: Task[]): Task[] => {
+    if (!HistoryStoreModule) return history;
+    const cutoff = Date.now() - RECENT_HISTORY_DAYS * 24 * 60 * 60 * 1000;
+    return history
+        .filter(t => (t.completedAt ?? t.createdAt) >= cutoff)
+        .slice(0, RECENT_HISTORY_LIMIT);
+};
+
+/**
+ * Add or replace completed tasks in the native store
+ */
+export const putHistoryTasks = async (tasks: Task[]) => {
+    if (!HistoryStoreModule || tasks.length === 0) return;
+    for (let i = 0; i < tasks.length; i += PUT_BATCH_SIZE) {
+        await HistoryStoreModule.putTasks(tasks.slice(i, i + PUT_BATCH_SIZE).map(t => JSON.stringify(t)));
+    }
+};
+
+/**
+ * Replace the native store's contents, e.g. after an import
+ */
+export const replaceHistory = async (tasks: Task[]) => {
+    if (!HistoryStoreModule) return;
+    await HistoryStoreModule.clear();
+    await putHistoryTasks(tasks);
+};
+
+/**
+ * One page of history, newest first. Pass the previous page's nextCursor to continue.
+ */
+export const queryHistory = async (
+    filter: HistoryFilter,
+    cursor: string | null = null,
+    limit = 50
+): Promise<HistoryPage | null> => {
+    if (!HistoryStoreModule) return null;
+    const page = await HistoryStoreModule.query({ ...filter, cursor, limit });
+    return { items: page.items.map(p => JSON.parse(p) as Task), nextCursor: page.nextCursor };
+};
+
+/**
+ * Every task matching the filter, read page by page
+ */
+export const loadAllHistory = async (filter: HistoryFilter = {}): Promise<Task[] | null> => {
+    if (!HistoryStoreModule) return null;
+    const all: Task[] = [];
+    let cursor: string | null = null;
+    do {
+        const page: HistoryPage | null = await queryHistory(filter, cursor, 500);
+        if (!page) break;
+        all.push(...page.items);
+        cursor = page.nextCursor;
+    } while (cursor);
+    return all;
+};
+
+export const countHistory = async (filter: HistoryFilter = {}): Promise<HistoryCount | null> => {
+    if (!HistoryStoreModule) return null;
+    return HistoryStoreModule.count(filter);
+};
+
+/**
+ * Counts for every category in one native query; categories with no
+ * matching tasks are absent. The filter's category is ignored.
+ */
+export const countHistoryByCategory = async (filter: HistoryFilter = {}): Promise<Record<string, HistoryCount> | null> => {
+    if (!HistoryStoreModule) return null;
+    return HistoryStoreModule.countByCategory(filter);
+};
+
+/**
+ * History counts for a screen: the native store's totals, or the in-memory
+ * history when the store is unavailable. Refreshes when history changes.
+ */
+export const useHistoryCount = (history: Task[], filter: HistoryFilter = {}): HistoryCount => {
+    const fallback = {
+        total: history.length,
+        journaled: history.filter(t => t.journal).length,
+    };
+    const [count, setCount] = useState<HistoryCount | null>(null);
+    const filterKey = JSON.stringify(filter);
+
+    useEffect(() => {
+        let cancelled = false;
+        countHistory(filter).then(result => {
+            if (!cancelled) setCount(result);
+        }).catch(() => {});
+        return () => {
+            cancelled = true;
+        };
+    }, [history, filterKey]);
+
+    return count ?? fallback;
+};
+
+/** yyyyMMdd key of the local day containing the timestamp, as the native rollups use */
+export const dayKey = (time: number | Date): number => {
+    const d = new Date(time);
+    return d.getFullYear() * 10000 + (d.getMonth() + 1) * 100 + d.getDate();
+};
+
+const emptyRollup = (): HistoryRollup => ({
+    count: 0,
+    journaled: 0,
+    energySum: 0,
+    energyMin: null,
+    energyMax: null,
+    focusSum: 0,
+    focusMin: null,
+    focusMax: null,
+    timeOnTaskMs: 0,
+});
+
+const addToRollup = (rollup: HistoryRollup, task: Task) => {
+    rollup.count++;
+    rollup.timeOnTaskMs += task.timeOnTaskMs ?? 0;
+    if (!task.journal) return;
+    const { energy, focus } = task.journal;
+    rollup.journaled++;
+    rollup.energySum += energy;
+    rollup.focusSum += focus;
+    rollup.energyMin = Math.min(rollup.energyMin ?? energy, energy);
+    rollup.energyMax = Math.max(rollup.energyMax ?? energy, energy);
+    rollup.focusMin = Math.min(rollup.focusMin ?? focus, focus);
+    rollup.focusMax = Math.max(rollup.focusMax ?? focus, focus);
+};
+
+const inRange = (task: Task, range: RollupRange) => {
+    if (!task.completedAt) return false;
+    const day = dayKey(task.completedAt);
+    if (range.from && day < dayKey(range.from)) return false;
+    if (range.to && day > dayKey(range.to - 1)) return false;
+    return !range.category || task.categories?.includes(range.category);
+};
+
+/** Daily rollups computed from in-memory tasks, for when the native store is unavailable */
+const dailyFromTasks = (tasks: Task[], range: RollupRange): DailyRollup[] => {
+    const days = new Map<number, DailyRollup>();
+    tasks.forEach(t => {
+        if (!inRange(t, range)) return;
+        const day = dayKey(t.completedAt!);
+        let rollup = days.get(day);
+        if (!rollup) {
+            rollup = { ...emptyRollup(), day };
+            days.set(day, rollup);
+        }
+        addToRollup(rollup, t);
+    });
+    return [...days.values()].sort((a, b) => a.day - b.day);
+};
+
+const rollupFromTasks = (tasks: Task[], range: RollupRange): HistoryRollup => {
+    const rollup = emptyRollup();
+    tasks.forEach(t => {
+        if (inRange(t, range)) addToRollup(rollup, t);
+    });
+    return rollup;
+};
+
+const streakFromTasks = (tasks: Task[]): number => {
+    const days = new Set(tasks.filter(t => t.completedAt).map(t => dayKey(t.completedAt!)));
+    const day = new Date();
+    let streak = 0;
+    while (days.has(dayKey(day))) {
+        streak++;
+        day.setDate(day.getDate() - 1);
+    }
+    return streak;
+};
+
+/** Average of a rollup's sum over its journaled tasks, or null when none were journaled */
+export const rollupAverage = (rollup: HistoryRollup, field: 'energy' | 'focus'): number | null =>
+    rollup.journaled > 0
+        ? (field === 'energy' ? rollup.energySum : rollup.focusSum) / rollup.journaled
+        : null;
+
+/**
+ * Re-runs a native rollup query when history or the key changes, using the
+ * in-memory fallback until it resolves or when the store is unavailable
+ */
+const useRollupQuery = <T>(
+    history: Task[],
+    key: string,
+    native: (module: HistoryStoreModuleType) => Promise<T>,
+    fallback: () => T
+): T => {
+    const [result, setResult] = useState<T | null>(null);
+
+    useEffect(() => {
+        if (!HistoryStoreModule) return;
+        let cancelled = false;
+        native(HistoryStoreModule).then(value => {
+            if (!cancelled) setResult(value);
+        }).catch(() => {});
+        return () => {
+            cancelled = true;
+        };
+    }, [history, key]);
+
+    return result ?? fallback();
+};
+
+/**
+ * Totals, energy/focus and time on task for the days in the range
+ */
+export const useHistoryRollup = (history: Task[], range: RollupRange = {}): HistoryRollup =>
+    useRollupQuery(history, JSON.stringify(range), m => m.rollup(range), () => rollupFromTasks(history, range));
+
+/**
+ * One rollup per day with completed tasks in the range, oldest first
+ */
+export const useDailyRollups = (history: Task[], range: RollupRange = {}): DailyRollup[] =>
+    useRollupQuery(history, JSON.stringify(range), m => m.daily(range), () => dailyFromTasks(history, range));
+
+/**
+ * Consecutive days, ending today, with a completed task
+ */
+export const useHistoryStreak = (history: Task[]): number =>
+    useRollupQuery(history, '', m => m.streak(), () => streakFromTasks(history));
@@ -0,0 +1,50 @@
+import { NativeModules } from 'react-native';
+
+export interface SectionMetrics {
+    count: number;
+    perSecond: number;
+    p50Ms: number; // Upper bound of the histogram bucket holding the percentile
+    p99Ms: number;
+    maxMs: number;
+    totalMs: number;
+}
+
+export interface MetricsSnapshot {
+    sessionStartedAt: number;
+    sessionMs: number;
+    sections: Record<string, SectionMetrics>; // e.g. 'WidgetModule.updateWidget'
+    counters: Record<string, number>; // e.g. 'notification.notify'
+}
+
+interface MetricsModuleType {
+    getSnapshot(): MetricsSnapshot;
+    reset(): void;
+}
+
+const MetricsModule: MetricsModuleType | undefined = NativeModules.MetricsModule;
+
+/**
+ * Latency and call counts of every native entry point since launch or the last reset.
+ * Synchronous; for debug tooling and update-budget checks.
+ */
+export const getNativeMetrics = (): MetricsSnapshot | null => {
+    return MetricsModule ? MetricsModule.getSnapshot() : null;
+};
+
+/**
+ * Start a new metrics session
+ */
+export const resetNativeMetrics = () => {
+    MetricsModule?.reset();
+};
+
+/**
+ * Sections over their p99 budget, for example { 'WidgetModule.updateWidget': 4 }
+ */
+export const findBudgetViolations = (budgetsMs: Record<string, number>): string[] => {
+    const snapshot = getNativeMetrics();
+    if (!snapshot) return [];
+    return Object.entries(budgetsMs)
+        .filter(([name, budget]) => (snapshot.sections[name]?.p99Ms ?? 0) > budget)
+        .map(([name]) => name);
+};
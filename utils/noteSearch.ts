@@ -0,0 +1,79 @@
+import { NativeModules } from 'react-native';
+import type { BrainNote } from '../store/useStore';
+
+export interface NoteSearchResult {
+    id: string;
+    title: string;
+    snippet: string;
+    score: number;
+}
+
+export interface NoteSearchPage {
+    total: number;
+    results: NoteSearchResult[];
+}
+
+interface NoteSearchModuleType {
+    upsertNotes(notes: { id: string; title: string; content: string }[]): Promise<number>;
+    removeNotes(noteIds: string[]): Promise<number>;
+    search(query: string, offset: number, limit: number): Promise<NoteSearchPage>;
+    getIndexedCount(): Promise<number>;
+    rebuildFromDump(fileUri: string): Promise<number>;
+    clearIndex(): Promise<boolean>;
+}
+
+const NoteSearchModule: NoteSearchModuleType | undefined = NativeModules.NoteSearchModule;
+
+const INDEX_BATCH_SIZE = 50;
+
+export const isNoteSearchAvailable = () => !!NoteSearchModule;
+
+export const indexNotes = async (notes: BrainNote[]) => {
+    if (!NoteSearchModule || notes.length === 0) return;
+    for (let i = 0; i < notes.length; i += INDEX_BATCH_SIZE) {
+        const batch = notes.slice(i, i + INDEX_BATCH_SIZE)
+            .map(({ id, title, content }) => ({ id, title, content }));
+        await NoteSearchModule.upsertNotes(batch);
+    }
+};
+
+export const removeIndexedNotes = async (noteIds: string[]) => {
+    if (!NoteSearchModule || noteIds.length === 0) return;
+    await NoteSearchModule.removeNotes(noteIds);
+};
+
+/**
+ * Ranked, paged search. Returns null when the native index is unavailable.
+ */
+export const searchNotes = async (query: string, offset = 0, limit = 50): Promise<NoteSearchPage | null> => {
+    if (!NoteSearchModule) return null;
+    return NoteSearchModule.search(query, offset, limit);
+};
+
+/**
+ * Re-index everything if the native index has drifted from the persisted notes
+ * (first launch with the index, reinstall, cleared app data)
+ */
+export const ensureNoteIndex = async (notes: BrainNote[]) => {
+    if (!NoteSearchModule) return;
+    const indexed = await NoteSearchModule.getIndexedCount();
+    if (indexed === notes.length) return;
+    await resetNoteIndex(notes);
+};
+
+/**
+ * Drop the index and re-index the given notes
+ */
+export const resetNoteIndex = async (notes: BrainNote[]) => {
+    if (!NoteSearchModule) return;
+    await NoteSearchModule.clearIndex();
+    await indexNotes(notes);
+};
+
+/**
+ * Rebuild the index from an exported backup file ({ brainNotes: [...] })
+ */
+export const rebuildNoteIndex = async (fileUri: string) => {
+    if (!NoteSearchModule) return 0;
+    return NoteSearchModule.rebuildFromDump(fileUri);
+};
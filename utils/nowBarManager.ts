@@ -1,25 +1,17 @@
-import { NativeModules, Platform } from 'react-native';
-
-interface NowBarModuleType {
-    checkNowBarAvailable(): Promise<boolean>;
-    updateNowBar(taskText: string, timeRemainingMs: number): Promise<boolean>;
-    clearNowBar(): Promise<boolean>;
-    setNowBarClickAction(): Promise<boolean>;
-}
-
-const { NowBarModule } = NativeModules;
+import { Platform } from 'react-native';
+import NowBarModule from '../specs/NativeNowBarModule';
 
 let nowBarAvailable: boolean | null = null;
 
 /**
- * Check if Now Bar is available (Samsung One UI 8+)
+ * Check if Now Bar is available (Samsung One UI 8+) - a synchronous native read
  */
-export const checkNowBarAvailable = async (): Promise<boolean> => {
+export const checkNowBarAvailable = (): boolean => {
     if (Platform.OS !== 'android' || !NowBarModule) return false;
 
     if (nowBarAvailable === null) {
         try {
-            nowBarAvailable = await NowBarModule.checkNowBarAvailable();
+            nowBarAvailable = NowBarModule.checkNowBarAvailable();
         } catch (error) {
             console.warn('Now Bar availability check error:', error);
             nowBarAvailable = false;
@@ -31,13 +23,12 @@ export const checkNowBarAvailable = async (): Promise<boolean> => {
 
 /**
  * Update Now Bar with current task
+ * Native code skips the broadcast when the Now Bar is unavailable or the
+ * payload is unchanged. While a timer runs it keeps the Now Bar current itself.
  */
 export const updateNowBar = async (taskText: string, timeRemainingMs: number = 0): Promise<boolean> => {
     if (Platform.OS !== 'android' || !NowBarModule) return false;
 
-    const available = await checkNowBarAvailable();
-    if (!available) return false;
-
     try {
         await NowBarModule.updateNowBar(taskText, timeRemainingMs);
         console.log('Now Bar updated:', taskText);
@@ -54,9 +45,6 @@ export const updateNowBar = async (taskText: string, timeRemainingMs: number = 0
 export const clearNowBar = async (): Promise<boolean> => {
     if (Platform.OS !== 'android' || !NowBarModule) return false;
 
-    const available = await checkNowBarAvailable();
-    if (!available) return false;
-
     try {
         await NowBarModule.clearNowBar();
         console.log('Now Bar cleared');
@@ -67,6 +55,14 @@ export const clearNowBar = async (): Promise<boolean> => {
     }
 };
 
+/**
+ * How often the native timer re-sends the Now Bar while it runs (default one minute)
+ */
+export const setNowBarUpdateInterval = (intervalMs: number) => {
+    if (Platform.OS !== 'android' || !NowBarModule) return;
+    NowBarModule.setUpdateInterval(intervalMs);
+};
+
 /**
  * Set click action to open app
  */
@@ -0,0 +1,54 @@
+import { NativeModules } from 'react-native';
+import { startTimerNotification, stopTimerNotification } from './timerNotification';
+import { updateWidget, clearWidget } from './widgetManager';
+import { updateNowBar, clearNowBar } from './nowBarManager';
+
+/**
+ * One update frame for the native surfaces.
+ * Leave a key out to keep that part as it is; set it to null to stop/clear it.
+ * A timer section naming the task and length already counting down leaves it running.
+ * stack replaces the native snapshot of the stack, which the widget, notification,
+ * Now Bar and tile all render from. nowBar only switches the Now Bar on or off;
+ * natively it always shows the snapshot's task.
+ * The brain widget keeps its own note store - see brainWidgetManager.
+ */
+export interface SurfaceFrame {
+    timer?: { taskId?: string; taskText: string; durationMinutes: number } | null;
+    nowBar?: { taskText: string; timeRemainingMs: number } | null;
+    stack?: { tasks: { id: string; text: string }[]; timerMinutes: number; autoDND: boolean };
+}
+
+interface SurfaceModuleType {
+    publishFrame(frame: SurfaceFrame): void;
+}
+
+const { SurfaceModule } = NativeModules;
+
+/**
+ * Publish a frame in a single bridge call. Native code coalesces bursts
+ * and only applies the final state of each surface.
+ */
+export const publishSurfaces = (frame: SurfaceFrame) => {
+    if (SurfaceModule) {
+        SurfaceModule.publishFrame(frame);
+        return;
+    }
+
+    // Older native builds - fall back to one call per surface, the widget following the timer
+    if (frame.timer !== undefined) {
+        if (frame.timer) {
+            startTimerNotification(frame.timer.taskText, frame.timer.durationMinutes);
+            updateWidget(frame.timer.taskText, frame.timer.durationMinutes * 60 * 1000);
+        } else {
+            stopTimerNotification();
+            clearWidget();
+        }
+    }
+    if (frame.nowBar !== undefined) {
+        if (frame.nowBar) {
+            updateNowBar(frame.nowBar.taskText, frame.nowBar.timeRemainingMs);
+        } else {
+            clearNowBar();
+        }
+    }
+};
@@ -1,15 +1,20 @@
-import { NativeModules } from 'react-native';
+import TimerModule from '../specs/NativeTimerModule';
 
-interface TimerModuleType {
-    startTimer(taskText: string, durationMinutes: number): void;
-    stopTimer(): void;
+export interface TimerState {
+    status: 'idle' | 'running' | 'paused' | 'completed';
+    taskText: string | null;
+    durationMs: number;
+    remainingMs: number;
+    endTime: number | null;
 }
 
-const { TimerModule } = NativeModules;
-
-export const startTimerNotification = (taskText: string, durationMinutes: number = 25) => {
+/**
+ * Start the timer notification. By default the countdown is rendered by the
+ * system chronometer; pass useChronometer = false for the per-second text countdown.
+ */
+export const startTimerNotification = (taskText: string, durationMinutes: number = 25, useChronometer: boolean = true) => {
     if (TimerModule) {
-        TimerModule.startTimer(taskText, durationMinutes);
+        TimerModule.startTimerWithMode(taskText, durationMinutes, useChronometer);
     } else {
         console.warn('TimerModule not available - notification will not show');
     }
@@ -22,3 +27,31 @@ export const stopTimerNotification = () => {
         console.warn('TimerModule not available');
     }
 };
+
+export const pauseTimerNotification = () => {
+    if (TimerModule) {
+        TimerModule.pauseTimer();
+    }
+};
+
+export const resumeTimerNotification = () => {
+    if (TimerModule) {
+        TimerModule.resumeTimer();
+    }
+};
+
+export const extendTimerNotification = (minutes: number) => {
+    if (TimerModule) {
+        TimerModule.extendTimer(minutes);
+    }
+};
+
+/**
+ * Read the native timer state synchronously (survives JS reloads and service restarts)
+ */
+export const getTimerState = (): TimerState | null => {
+    if (TimerModule) {
+        return TimerModule.getState() as TimerState;
+    }
+    return null;
+};
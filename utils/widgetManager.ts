@@ -1,11 +1,4 @@
-import { NativeModules } from 'react-native';
-
-interface WidgetModuleType {
-    updateWidget(taskText: string, timeRemaining: number): void;
-    clearWidget(): void;
-}
-
-const { WidgetModule } = NativeModules;
+import WidgetModule from '../specs/NativeWidgetModule';
 
 export const updateWidget = (taskText: string, timeRemaining: number = 0) => {
     if (WidgetModule) {